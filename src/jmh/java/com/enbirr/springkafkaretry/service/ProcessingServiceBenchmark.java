@@ -0,0 +1,52 @@
+package com.enbirr.springkafkaretry.service;
+
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProcessingServiceBenchmark {
+
+  private static final int MESSAGE_MAX_LENGTH = 5;
+
+  @Param({"3", "1024"})
+  private int messageLength;
+
+  private String message;
+
+  @Setup
+  public void setUp() {
+    message = "x".repeat(messageLength);
+  }
+
+  @Benchmark
+  public String truncateMessage() {
+    return ProcessingService.truncateMessage(message, MESSAGE_MAX_LENGTH);
+  }
+
+  @Benchmark
+  public ProcessingException createProcessingException() {
+    return new ProcessingException(message, true);
+  }
+
+  @Benchmark
+  public ProcessingException createStacklessProcessingException() {
+    return new ProcessingException(message, false);
+  }
+}
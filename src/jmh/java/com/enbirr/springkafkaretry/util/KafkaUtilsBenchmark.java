@@ -0,0 +1,127 @@
+package com.enbirr.springkafkaretry.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ORIGINAL_TIMESTAMP;
+
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer.HeaderNames;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the code that runs for every consumed or failed record. Records carry the same
+ * headers as the records from the retry topic, exceptions are wrapped like Spring does it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KafkaUtilsBenchmark {
+
+  private static final int MAX_ATTEMPTS_COUNT = 3;
+  private static final HeaderNames HEADER_NAMES = HeaderNames.Builder
+      .original()
+      .offsetHeader(KafkaHeaders.ORIGINAL_OFFSET)
+      .timestampHeader(KafkaHeaders.ORIGINAL_TIMESTAMP)
+      .timestampTypeHeader(KafkaHeaders.ORIGINAL_TIMESTAMP_TYPE)
+      .topicHeader(KafkaHeaders.ORIGINAL_TOPIC)
+      .partitionHeader(KafkaHeaders.ORIGINAL_PARTITION)
+      .consumerGroupHeader(KafkaHeaders.ORIGINAL_CONSUMER_GROUP)
+      .exception()
+      .keyExceptionFqcn(KafkaHeaders.KEY_EXCEPTION_FQCN)
+      .exceptionFqcn(KafkaHeaders.EXCEPTION_FQCN)
+      .exceptionCauseFqcn(KafkaHeaders.EXCEPTION_CAUSE_FQCN)
+      .keyExceptionMessage(KafkaHeaders.KEY_EXCEPTION_MESSAGE)
+      .exceptionMessage(KafkaHeaders.EXCEPTION_MESSAGE)
+      .keyExceptionStacktrace(KafkaHeaders.KEY_EXCEPTION_STACKTRACE)
+      .exceptionStacktrace(KafkaHeaders.EXCEPTION_STACKTRACE)
+      .build();
+
+  /**
+   * Count of exceptions between the listener exception and the informative one.
+   */
+  @Param({"1", "10"})
+  private int causeChainDepth;
+
+  private ConsumerRecord<String, String> mainTopicRecord;
+  private ConsumerRecord<String, String> retryTopicRecord;
+  private Exception listenerException;
+  private Headers exceptionHeaders;
+
+  @Setup
+  public void setUp() {
+    mainTopicRecord = new ConsumerRecord<>("spring.kafka.example", 3, 123_456L, "key", "message");
+
+    retryTopicRecord = new ConsumerRecord<>("spring.kafka.example.retry", 0, 98_765L, "key",
+        "message");
+    long now = System.currentTimeMillis();
+    retryTopicRecord.headers()
+        .add(KafkaHeaders.ORIGINAL_TOPIC, "spring.kafka.example".getBytes(UTF_8))
+        .add(KafkaHeaders.ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(3).array())
+        .add(KafkaHeaders.ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(123_456L).array())
+        .add(KafkaHeaders.EXCEPTION_FQCN, ProcessingException.class.getName().getBytes(UTF_8))
+        .add(KafkaHeaders.EXCEPTION_MESSAGE, "Failed to process the message".getBytes(UTF_8))
+        .add(DEFAULT_HEADER_ATTEMPTS, ByteBuffer.allocate(Integer.BYTES).putInt(2).array())
+        .add(DEFAULT_HEADER_ORIGINAL_TIMESTAMP, BigInteger.valueOf(now - 5000).toByteArray())
+        .add(DEFAULT_HEADER_BACKOFF_TIMESTAMP, BigInteger.valueOf(now).toByteArray());
+
+    Throwable cause = new ProcessingFatalException("Fatal processing error",
+        new ProcessingException("Foo Bar"));
+    for (int i = 1; i < causeChainDepth; i++) {
+      cause = new IllegalStateException("Wrapper " + i, cause);
+    }
+    listenerException = new ListenerExecutionFailedException("Listener method failed", cause);
+    // The headers creator replaces old exception headers, so the same headers could be reused.
+    exceptionHeaders = new RecordHeaders(retryTopicRecord.headers().toArray());
+  }
+
+  @Benchmark
+  public RecordDetails recordDetailsNotRendered() {
+    return RecordDetails.of(retryTopicRecord, MAX_ATTEMPTS_COUNT);
+  }
+
+  @Benchmark
+  public String recordDetailsRenderedForMainTopic() {
+    return RecordDetails.of(mainTopicRecord, MAX_ATTEMPTS_COUNT).toString();
+  }
+
+  @Benchmark
+  public String recordDetailsRenderedForRetryTopic() {
+    return RecordDetails.of(retryTopicRecord, MAX_ATTEMPTS_COUNT).toString();
+  }
+
+  @Benchmark
+  public Headers customExceptionHeadersCreator() {
+    KafkaUtils.getCustomExceptionHeadersCreator(exceptionHeaders, listenerException, false,
+        HEADER_NAMES);
+    return exceptionHeaders;
+  }
+
+  @Benchmark
+  public Throwable findInformativeExceptionInCauseChain() {
+    return KafkaUtils.findInformativeExceptionInCauseChain(listenerException);
+  }
+}
@@ -0,0 +1,57 @@
+package com.enbirr.springkafkaretry.backlog;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import lombok.RequiredArgsConstructor;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * "backlog" component of the health endpoint, polled by an autoscaler. Details are the lag and
+ * the drain time of each topic role and the age of the retry backlog; "scaleOut" is true when the
+ * main topic or the retry topics don't drain in time or the retry records are overdue too long.
+ * The status is DOWN only if the backlog could not be read, UNKNOWN before the first result.
+ */
+@Component
+@RegisterReflectionForBinding(RoleBacklog.class)
+@RequiredArgsConstructor
+public class BacklogHealthIndicator implements HealthIndicator {
+
+  private final BacklogMonitor backlogMonitor;
+  private final KafkaCustomProperties kafkaProperties;
+
+  @Override
+  public Health health() {
+    BacklogSnapshot snapshot = backlogMonitor.getSnapshot();
+    if (!kafkaProperties.isBacklogEnabled() || snapshot.timestamp() == 0) {
+      return Health.unknown().build();
+    }
+    Health.Builder health = snapshot.error() == null
+        ? Health.up()
+        : Health.down().withDetail("error", snapshot.error());
+    snapshot.roles().forEach((topicRole, backlog) ->
+        health.withDetail(topicRole.getTagValue(), backlog));
+    return health
+        .withDetail("retryAgeMs", snapshot.retryAgeMs())
+        .withDetail("scaleOut", isScaleOutNeeded(snapshot))
+        .withDetail("updatedAt", Instant.ofEpochMilli(snapshot.timestamp()))
+        .build();
+  }
+
+  /**
+   * The DLQ is not processed, its backlog doesn't need more consumers.
+   */
+  boolean isScaleOutNeeded(BacklogSnapshot snapshot) {
+    return isBehind(snapshot.get(TopicRole.MAIN)) || isBehind(snapshot.get(TopicRole.RETRY))
+        || snapshot.retryAgeMs() > kafkaProperties.getBacklogScaleOutMaxRetryAgeMs();
+  }
+
+  private boolean isBehind(RoleBacklog backlog) {
+    return backlog.drainSeconds() == RoleBacklog.NOT_DRAINING
+        || backlog.drainSeconds() > kafkaProperties.getBacklogScaleOutMaxDrainSeconds();
+  }
+}
@@ -0,0 +1,366 @@
+package com.enbirr.springkafkaretry.backlog;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.BACKLOG_UPDATE_FAILED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_BACKLOG_MONITOR;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Regularly computes how far behind the consumers of the application are, so the consumers could
+ * be scaled by these signals instead of by hand (see {@link BacklogHealthIndicator} and the
+ * "kafka.backlog" metrics):
+ * <ul>
+ *   <li>Lag of the main topic, of the retry topics (all tiers) and of the DLQ: end offsets minus
+ *   the offsets committed by the consumer groups of the application.</li>
+ *   <li>Consume and produce rates from the change of these offsets since the previous update, and
+ *   the drain time estimated from them.</li>
+ *   <li>Age of the retry backlog: how long the head records of the retry topics have been waiting
+ *   after their due time (backoff timestamp). It grows when the retry consumers fall behind.</li>
+ * </ul>
+ * Everything is read by its own admin client and consumer on a separate thread, the listeners are
+ * not affected. The first update only records the offsets: rates need two of them.
+ */
+@Component
+@Slf4j
+public class BacklogMonitor implements SmartLifecycle {
+
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration HEAD_POLL_TIMEOUT = Duration.ofMillis(200);
+  private static final Duration HEAD_READ_TIMEOUT = Duration.ofSeconds(2);
+  private static final String CLIENT_ID_SUFFIX = "-backlog-monitor";
+  // Weight of the last update in the smoothed rates
+  private static final double RATE_SMOOTHING = 0.3;
+  private static final BacklogSnapshot NO_SNAPSHOT = new BacklogSnapshot(Map.of(), 0, 0, null);
+
+  private final KafkaCustomProperties kafkaProperties;
+  private final ConsumerFactory<?, ?> consumerFactory;
+  private final KafkaListenerEndpointRegistry listenerRegistry;
+  // Offsets and rates of the previous update, used by the monitor thread only
+  private final Map<TopicRole, RoleState> roleStates = new EnumMap<>(TopicRole.class);
+  private boolean hasPreviousUpdate;
+  private long previousUpdateNanos;
+  private AdminClient adminClient;
+  private Consumer<byte[], byte[]> headConsumer;
+  private ScheduledExecutorService executor;
+  private volatile BacklogSnapshot snapshot = NO_SNAPSHOT;
+  private volatile boolean running;
+
+  public BacklogMonitor(
+      KafkaCustomProperties kafkaProperties,
+      ConsumerFactory<?, ?> consumerFactory,
+      KafkaListenerEndpointRegistry listenerRegistry
+  ) {
+    this.kafkaProperties = kafkaProperties;
+    this.consumerFactory = consumerFactory;
+    this.listenerRegistry = listenerRegistry;
+  }
+
+  /**
+   * @return result of the last update, its timestamp is 0 if there was no update yet.
+   */
+  public BacklogSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  @Override
+  public void start() {
+    if (!kafkaProperties.isBacklogEnabled()) {
+      return;
+    }
+    long intervalMs = kafkaProperties.getBacklogIntervalMs();
+    log.info(SETTING_UP_BACKLOG_MONITOR, intervalMs);
+    executor = Executors.newSingleThreadScheduledExecutor(
+        new CustomizableThreadFactory("backlog-monitor-"));
+    executor.scheduleWithFixedDelay(this::update, 0, intervalMs, TimeUnit.MILLISECONDS);
+    running = true;
+  }
+
+  /**
+   * Clients are not thread-safe, so they are closed by the monitor thread after the last update.
+   */
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.execute(this::closeClients);
+      executor.shutdown();
+    }
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void update() {
+    try {
+      BacklogSnapshot newSnapshot = computeSnapshot();
+      if (newSnapshot != null) {
+        snapshot = newSnapshot;
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException | RuntimeException ex) {
+      log.warn(BACKLOG_UPDATE_FAILED, ex.toString());
+      snapshot = snapshot.withError(ex.toString(), System.currentTimeMillis());
+    }
+  }
+
+  /**
+   * @return null after the first update: it only records the offsets.
+   */
+  private BacklogSnapshot computeSnapshot()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    if (adminClient == null) {
+      adminClient = AdminClient.create(getAdminConfigs());
+    }
+    long nowNanos = System.nanoTime();
+    List<TopicPartition> partitions = getPipelinePartitions();
+    Map<TopicPartition, Long> endOffsets = listOffsets(partitions, OffsetSpec.latest());
+    Map<TopicPartition, Long> startOffsets = listOffsets(partitions, OffsetSpec.earliest());
+    Map<TopicPartition, Long> committedOffsets = getCommittedOffsets();
+
+    // Sums by role: lag, consumed offsets, end offsets
+    Map<TopicRole, long[]> lagAndOffsets = new EnumMap<>(TopicRole.class);
+    Map<TopicPartition, Long> retryHeadOffsets = new HashMap<>();
+    for (TopicPartition partition : partitions) {
+      long startOffset = startOffsets.get(partition);
+      long endOffset = endOffsets.get(partition);
+      // Records removed by the retention are not the lag anymore
+      long consumedOffset = Math.max(committedOffsets.getOrDefault(partition, startOffset),
+          startOffset);
+      long lag = Math.max(endOffset - consumedOffset, 0);
+      TopicRole topicRole = TopicRole.of(partition.topic(), kafkaProperties);
+      long[] totals = lagAndOffsets.computeIfAbsent(topicRole, role -> new long[3]);
+      totals[0] += lag;
+      totals[1] += consumedOffset;
+      totals[2] += endOffset;
+      if (topicRole == TopicRole.RETRY && lag > 0) {
+        retryHeadOffsets.put(partition, consumedOffset);
+      }
+    }
+
+    boolean isFirstUpdate = !hasPreviousUpdate;
+    double elapsedSeconds = (nowNanos - previousUpdateNanos) / 1e9;
+    hasPreviousUpdate = true;
+    previousUpdateNanos = nowNanos;
+    Map<TopicRole, RoleBacklog> roles = new EnumMap<>(TopicRole.class);
+    lagAndOffsets.forEach((topicRole, totals) -> {
+      RoleState state = roleStates.computeIfAbsent(topicRole, role -> new RoleState());
+      roles.put(topicRole, state.update(totals[0], totals[1], totals[2], elapsedSeconds));
+    });
+    if (isFirstUpdate) {
+      return null;
+    }
+    return new BacklogSnapshot(Map.copyOf(roles), getRetryAgeMs(retryHeadOffsets),
+        System.currentTimeMillis(), null);
+  }
+
+  /**
+   * @return partitions of the main topic, of the retry topics (all tiers) and of the DLQ.
+   */
+  private List<TopicPartition> getPipelinePartitions()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    String mainTopic = kafkaProperties.getMainTopic();
+    Set<String> topics = adminClient.listTopics().names()
+        .get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).stream()
+        .filter(topic -> topic.equals(mainTopic)
+            || topic.startsWith(mainTopic + kafkaProperties.getRetryTopicSuffix())
+            || topic.equals(mainTopic + kafkaProperties.getDlqTopicSuffix()))
+        .collect(Collectors.toSet());
+    Map<String, TopicDescription> descriptions = adminClient.describeTopics(topics)
+        .allTopicNames().get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    List<TopicPartition> partitions = new ArrayList<>();
+    descriptions.values().forEach(description -> description.partitions().forEach(partition ->
+        partitions.add(new TopicPartition(description.name(), partition.partition()))));
+    return partitions;
+  }
+
+  private Map<TopicPartition, Long> listOffsets(
+      List<TopicPartition> partitions,
+      OffsetSpec offsetSpec
+  ) throws ExecutionException, InterruptedException, TimeoutException {
+    Map<TopicPartition, OffsetSpec> request = partitions.stream()
+        .collect(Collectors.toMap(partition -> partition, partition -> offsetSpec));
+    Map<TopicPartition, ListOffsetsResultInfo> offsets = adminClient.listOffsets(request).all()
+        .get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    Map<TopicPartition, Long> result = new HashMap<>();
+    offsets.forEach((partition, info) -> result.put(partition, info.offset()));
+    return result;
+  }
+
+  /**
+   * The main topic and the retry topics may be consumed by different groups (e.g. listeners with
+   * their own group id), so offsets of all groups of the application are merged.
+   */
+  private Map<TopicPartition, Long> getCommittedOffsets()
+      throws ExecutionException, InterruptedException, TimeoutException {
+    Map<TopicPartition, Long> committedOffsets = new HashMap<>();
+    for (String groupId : getGroupIds()) {
+      Map<TopicPartition, OffsetAndMetadata> groupOffsets = adminClient
+          .listConsumerGroupOffsets(groupId).partitionsToOffsetAndMetadata()
+          .get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      groupOffsets.forEach((partition, offset) -> {
+        if (offset != null) {
+          committedOffsets.merge(partition, offset.offset(), Math::max);
+        }
+      });
+    }
+    return committedOffsets;
+  }
+
+  private Set<String> getGroupIds() {
+    Set<String> groupIds = new HashSet<>();
+    Object defaultGroupId = consumerFactory.getConfigurationProperties()
+        .get(ConsumerConfig.GROUP_ID_CONFIG);
+    if (defaultGroupId != null) {
+      groupIds.add(defaultGroupId.toString());
+    }
+    for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+      if (container.getGroupId() != null) {
+        groupIds.add(container.getGroupId());
+      }
+    }
+    return groupIds;
+  }
+
+  /**
+   * Reads the head (first not consumed) record of each lagging retry partition. Partitions whose
+   * head is not read in time are left for the next update.
+   */
+  private long getRetryAgeMs(Map<TopicPartition, Long> headOffsets) {
+    if (headOffsets.isEmpty()) {
+      return 0;
+    }
+    if (headConsumer == null) {
+      headConsumer = createHeadConsumer();
+    }
+    headConsumer.assign(headOffsets.keySet());
+    headConsumer.resume(headConsumer.paused());
+    headOffsets.forEach(headConsumer::seek);
+
+    long maxAgeMs = 0;
+    Set<TopicPartition> readPartitions = new HashSet<>();
+    long deadlineNanos = System.nanoTime() + HEAD_READ_TIMEOUT.toNanos();
+    while (readPartitions.size() < headOffsets.size() && System.nanoTime() < deadlineNanos) {
+      for (ConsumerRecord<byte[], byte[]> headRecord : headConsumer.poll(HEAD_POLL_TIMEOUT)) {
+        var partition = new TopicPartition(headRecord.topic(), headRecord.partition());
+        if (readPartitions.add(partition)) {
+          headConsumer.pause(List.of(partition));
+          long dueTime = KafkaUtils.getNumberFromHeader(headRecord,
+              DEFAULT_HEADER_BACKOFF_TIMESTAMP, headRecord.timestamp());
+          maxAgeMs = Math.max(maxAgeMs, System.currentTimeMillis() - dueTime);
+        }
+      }
+    }
+    return maxAgeMs;
+  }
+
+  /**
+   * Only headers are needed: values are not deserialized (and offloaded ones are not loaded).
+   * Without a group id, nothing is committed.
+   */
+  private Consumer<byte[], byte[]> createHeadConsumer() {
+    Map<String, Object> configs = new HashMap<>(consumerFactory.getConfigurationProperties());
+    configs.remove(ConsumerConfig.GROUP_ID_CONFIG);
+    configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    configs.put(ConsumerConfig.CLIENT_ID_CONFIG, kafkaProperties.getMainTopic() + CLIENT_ID_SUFFIX);
+    return new KafkaConsumer<>(configs, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+  }
+
+  /**
+   * Lag is read from the cluster the consumers of the application are connected to.
+   */
+  private Map<String, Object> getAdminConfigs() {
+    Set<String> adminConfigNames = AdminClientConfig.configNames();
+    Map<String, Object> configs = new HashMap<>();
+    consumerFactory.getConfigurationProperties().forEach((name, value) -> {
+      if (adminConfigNames.contains(name)) {
+        configs.put(name, value);
+      }
+    });
+    configs.put(AdminClientConfig.CLIENT_ID_CONFIG,
+        kafkaProperties.getMainTopic() + CLIENT_ID_SUFFIX);
+    return configs;
+  }
+
+  private void closeClients() {
+    if (headConsumer != null) {
+      headConsumer.close(REQUEST_TIMEOUT);
+    }
+    if (adminClient != null) {
+      adminClient.close(REQUEST_TIMEOUT);
+    }
+  }
+
+  /**
+   * Sums of the consumed and the end offsets of the topics of a role at the previous update, and
+   * the rates smoothed over the updates.
+   */
+  private static final class RoleState {
+
+    private boolean hasOffsets;
+    private boolean hasRates;
+    private long consumedOffsets;
+    private long endOffsets;
+    private double consumeRate;
+    private double produceRate;
+
+    private RoleBacklog update(long lag, long consumedOffsets, long endOffsets,
+        double elapsedSeconds) {
+      if (hasOffsets && elapsedSeconds > 0) {
+        // A new tier topic or retention may make a sum jump, it's not a negative rate
+        double consumeSample = Math.max(consumedOffsets - this.consumedOffsets, 0) / elapsedSeconds;
+        double produceSample = Math.max(endOffsets - this.endOffsets, 0) / elapsedSeconds;
+        consumeRate = hasRates ? smooth(consumeRate, consumeSample) : consumeSample;
+        produceRate = hasRates ? smooth(produceRate, produceSample) : produceSample;
+        hasRates = true;
+      }
+      this.consumedOffsets = consumedOffsets;
+      this.endOffsets = endOffsets;
+      hasOffsets = true;
+      return RoleBacklog.of(lag, consumeRate, produceRate);
+    }
+
+    private double smooth(double previous, double sample) {
+      return previous + RATE_SMOOTHING * (sample - previous);
+    }
+  }
+}
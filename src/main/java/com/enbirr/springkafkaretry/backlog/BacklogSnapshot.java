@@ -0,0 +1,31 @@
+package com.enbirr.springkafkaretry.backlog;
+
+import com.enbirr.springkafkaretry.retry.TopicRole;
+
+import java.util.Map;
+
+/**
+ * Result of the last update of {@link BacklogMonitor}.
+ *
+ * @param roles      backlog by topic role.
+ * @param retryAgeMs how long the most overdue head record of the retry topics waits after its due
+ *                   time: 0 if all of them are consumed in time.
+ * @param timestamp  time of the update.
+ * @param error      message of the exception the last update failed with (the backlog is the one
+ *                   of the previous update then), or null.
+ */
+public record BacklogSnapshot(
+    Map<TopicRole, RoleBacklog> roles,
+    long retryAgeMs,
+    long timestamp,
+    String error
+) {
+
+  public RoleBacklog get(TopicRole topicRole) {
+    return roles.getOrDefault(topicRole, RoleBacklog.EMPTY);
+  }
+
+  BacklogSnapshot withError(String error, long timestamp) {
+    return new BacklogSnapshot(roles, retryAgeMs, timestamp, error);
+  }
+}
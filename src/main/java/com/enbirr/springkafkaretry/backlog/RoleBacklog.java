@@ -0,0 +1,33 @@
+package com.enbirr.springkafkaretry.backlog;
+
+/**
+ * Backlog of the topics of one role (e.g. all retry tier topics).
+ *
+ * @param lag          records not consumed yet by the consumer groups of the application.
+ * @param consumeRate  records consumed per second (smoothed over the recent updates).
+ * @param produceRate  records written into the topics per second (smoothed the same way).
+ * @param drainSeconds estimated time until the lag is consumed: 0 - no lag,
+ *                     {@link #NOT_DRAINING} - the lag doesn't go down at the current rates.
+ */
+public record RoleBacklog(long lag, double consumeRate, double produceRate, long drainSeconds) {
+
+  public static final long NOT_DRAINING = -1;
+  public static final RoleBacklog EMPTY = new RoleBacklog(0, 0, 0, 0);
+
+  public static RoleBacklog of(long lag, double consumeRate, double produceRate) {
+    return new RoleBacklog(lag, consumeRate, produceRate,
+        estimateDrainSeconds(lag, consumeRate, produceRate));
+  }
+
+  /**
+   * The lag goes down by the difference of the rates: records are still written into the topics
+   * while it's consumed.
+   */
+  static long estimateDrainSeconds(long lag, double consumeRate, double produceRate) {
+    if (lag <= 0) {
+      return 0;
+    }
+    double drainRate = consumeRate - produceRate;
+    return drainRate > 0 ? (long) Math.ceil(lag / drainRate) : NOT_DRAINING;
+  }
+}
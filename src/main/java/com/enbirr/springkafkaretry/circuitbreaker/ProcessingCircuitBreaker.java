@@ -0,0 +1,204 @@
+package com.enbirr.springkafkaretry.circuitbreaker;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.CIRCUIT_BREAKER_CLOSED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.CIRCUIT_BREAKER_HALF_OPEN;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.CIRCUIT_BREAKER_OPENED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.CIRCUIT_IS_OPEN;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.exception.CircuitOpenException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops consuming the main topic when most of its records fail with retryable errors (e.g. a
+ * dependency of the processing is down). Otherwise, every record would be copied into the retry
+ * topic and would burn its attempts while the outage continues.
+ * <ul>
+ *   <li>CLOSED: outcomes of the main topic records are kept in a window of the last records. If
+ *   the part of retryable failures in the window reaches the threshold, the circuit opens.</li>
+ *   <li>OPEN: the main topic containers are paused. Records that were already polled are not
+ *   processed, they stay in the main topic (see {@link CircuitOpenException}).</li>
+ *   <li>HALF_OPEN: after the open duration, the containers are resumed, and a few trial records
+ *   are processed. If all of them succeed, the circuit closes, if any fails, it opens again.</li>
+ * </ul>
+ * Fatal failures are caused by the record itself, not by a dependency, so they are counted
+ * separately and don't open the circuit. Records from the retry topic are not guarded.
+ */
+@Component
+@Slf4j
+public class ProcessingCircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final KafkaCustomProperties kafkaProperties;
+  private final KafkaListenerEndpointRegistry containerRegistry;
+  private final TaskScheduler scheduler;
+
+  @Getter
+  private final AtomicLong retryableFailuresCount = new AtomicLong();
+  @Getter
+  private final AtomicLong fatalFailuresCount = new AtomicLong();
+
+  // Ring buffer of the last outcomes: true means a retryable failure.
+  private final boolean[] outcomesWindow;
+  private int outcomesCount;
+  private int nextOutcomeIndex;
+  private int failuresInWindow;
+  @Getter
+  private volatile State state = State.CLOSED;
+  private int trialPermits;
+  private int trialSuccesses;
+
+  public ProcessingCircuitBreaker(
+      KafkaCustomProperties kafkaProperties,
+      KafkaListenerEndpointRegistry containerRegistry,
+      TaskScheduler scheduler
+  ) {
+    this.kafkaProperties = kafkaProperties;
+    this.containerRegistry = containerRegistry;
+    this.scheduler = scheduler;
+    this.outcomesWindow = new boolean[kafkaProperties.getCircuitBreakerWindowSize()];
+  }
+
+  /**
+   * @throws CircuitOpenException if the record must not be processed now.
+   */
+  public synchronized void acquirePermission(ConsumerRecord<?, ?> consumerRecord) {
+    if (!isGuarded(consumerRecord) || state == State.CLOSED) {
+      return;
+    }
+    if (state == State.HALF_OPEN && trialPermits > 0) {
+      trialPermits--;
+      return;
+    }
+    throw new CircuitOpenException(CIRCUIT_IS_OPEN);
+  }
+
+  /**
+   * Returns the permission of a record whose outcome was not counted: something other than a
+   * processing exception was thrown (e.g. an Error of a processing stage, or a failure to record
+   * the metrics). Otherwise, a trial permit of the HALF_OPEN state would be lost, and the circuit
+   * would never close.
+   */
+  public synchronized void releasePermission(ConsumerRecord<?, ?> consumerRecord) {
+    if (isGuarded(consumerRecord) && state == State.HALF_OPEN) {
+      trialPermits = Math.min(trialPermits + 1, kafkaProperties.getCircuitBreakerTrialRecords());
+    }
+  }
+
+  public synchronized void onSuccess(ConsumerRecord<?, ?> consumerRecord) {
+    if (isGuarded(consumerRecord)) {
+      onCompletedCall();
+    }
+  }
+
+  public synchronized void onFailure(ConsumerRecord<?, ?> consumerRecord, Exception exception) {
+    if (!isGuarded(consumerRecord)) {
+      return;
+    }
+    if (KafkaUtils.findInformativeExceptionInCauseChain(exception)
+        instanceof ProcessingFatalException) {
+      fatalFailuresCount.incrementAndGet();
+      onCompletedCall();
+      return;
+    }
+
+    retryableFailuresCount.incrementAndGet();
+    if (state == State.HALF_OPEN) {
+      open();
+    } else if (state == State.CLOSED) {
+      addOutcome(true);
+      if (outcomesCount >= kafkaProperties.getCircuitBreakerMinimumRecords()
+          && failuresInWindow * 100 >= kafkaProperties.getCircuitBreakerFailureRatePercentage()
+          * outcomesCount) {
+        open();
+      }
+    }
+  }
+
+  private void onCompletedCall() {
+    if (state == State.HALF_OPEN) {
+      trialSuccesses++;
+      if (trialSuccesses >= kafkaProperties.getCircuitBreakerTrialRecords()) {
+        close();
+      }
+    } else if (state == State.CLOSED) {
+      addOutcome(false);
+    }
+  }
+
+  private boolean isGuarded(ConsumerRecord<?, ?> consumerRecord) {
+    return kafkaProperties.isCircuitBreakerEnabled()
+        && TopicRole.of(consumerRecord.topic(), kafkaProperties) == TopicRole.MAIN;
+  }
+
+  private void addOutcome(boolean isFailure) {
+    if (outcomesCount == outcomesWindow.length) {
+      failuresInWindow -= outcomesWindow[nextOutcomeIndex] ? 1 : 0;
+    } else {
+      outcomesCount++;
+    }
+    outcomesWindow[nextOutcomeIndex] = isFailure;
+    failuresInWindow += isFailure ? 1 : 0;
+    nextOutcomeIndex = (nextOutcomeIndex + 1) % outcomesWindow.length;
+  }
+
+  private void open() {
+    long openDurationMs = kafkaProperties.getCircuitBreakerOpenDurationMs();
+    log.warn(CIRCUIT_BREAKER_OPENED, failuresInWindow, outcomesCount, openDurationMs);
+    state = State.OPEN;
+    setMainTopicContainersPaused(true);
+    scheduler.schedule(this::halfOpen, Instant.now().plusMillis(openDurationMs));
+  }
+
+  private synchronized void halfOpen() {
+    log.info(CIRCUIT_BREAKER_HALF_OPEN, kafkaProperties.getCircuitBreakerTrialRecords());
+    state = State.HALF_OPEN;
+    trialPermits = kafkaProperties.getCircuitBreakerTrialRecords();
+    trialSuccesses = 0;
+    setMainTopicContainersPaused(false);
+  }
+
+  private void close() {
+    log.info(CIRCUIT_BREAKER_CLOSED);
+    state = State.CLOSED;
+    Arrays.fill(outcomesWindow, false);
+    outcomesCount = 0;
+    nextOutcomeIndex = 0;
+    failuresInWindow = 0;
+  }
+
+  /**
+   * Both the record listener container and the batch one (which is a bean, not a registered
+   * listener) are found by the main topic.
+   */
+  private void setMainTopicContainersPaused(boolean paused) {
+    for (MessageListenerContainer container : containerRegistry.getAllListenerContainers()) {
+      String[] topics = container.getContainerProperties().getTopics();
+      if (topics != null && Arrays.asList(topics).contains(kafkaProperties.getMainTopic())) {
+        if (paused) {
+          container.pause();
+        } else {
+          container.resume();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.enbirr.springkafkaretry.configuration;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_BATCH_LISTENER;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_PARALLEL_PROCESSING;
+
+import com.enbirr.springkafkaretry.consumer.KafkaBatchConsumer;
+import com.enbirr.springkafkaretry.consumer.KafkaConsumer;
+import com.enbirr.springkafkaretry.consumer.KafkaParallelBatchConsumer;
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Replaces the record listener of the main topic with a batch one. Non-blocking retries are not
+ * supported by Spring for batch listeners, so the record listener stays registered: the retry
+ * topic configuration is still built for it and its retry topic listener keeps working. Only the
+ * main topic container of the record listener is not started.
+ * <p>
+ * In the transactional mode, the batch listener is always used: a transaction per poll costs much
+ * less than a transaction per record.
+ */
+@Configuration
+@ConditionalOnExpression("${kafka.batch.enabled:false} or ${kafka.transaction.enabled:false}")
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaBatchListenerConfiguration {
+
+  private static final String PARALLEL_PROCESSING_CONDITION =
+      "${kafka.batch.parallel.enabled:false} and !${kafka.transaction.enabled:false}";
+
+  private final KafkaCustomProperties kafkaProperties;
+
+  @Bean
+  public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>>
+      mainRecordListenerContainerCustomizer() {
+    return (ConcurrentMessageListenerContainer<Object, Object> container) -> {
+      if (KafkaConsumer.MAIN_LISTENER_ID.equals(container.getListenerId())) {
+        container.setAutoStartup(false);
+      }
+    };
+  }
+
+  @Bean
+  public ConcurrentMessageListenerContainer<?, ?> mainTopicBatchListenerContainer(
+      @Qualifier(KafkaListenerScalingConfiguration.MAIN_TOPIC_LISTENER_FACTORY)
+      ConcurrentKafkaListenerContainerFactory<?, ?> containerFactory,
+      KafkaBatchConsumer kafkaBatchConsumer,
+      ObjectProvider<KafkaParallelBatchConsumer> kafkaParallelBatchConsumer
+  ) {
+    log.info(SETTING_UP_BATCH_LISTENER, kafkaProperties.getMainTopic());
+    BatchMessageListener<String, byte[]> batchListener = kafkaParallelBatchConsumer.getIfAvailable();
+    if (batchListener == null) {
+      batchListener = kafkaBatchConsumer;
+    }
+    var container = containerFactory.createContainer(kafkaProperties.getMainTopic());
+    container.setupMessageListener(batchListener);
+    // Offsets of the records before the failed one would be committed outside the transaction, so
+    // the whole batch is rolled back and redelivered instead (see KafkaTransactionConfiguration).
+    if (!kafkaProperties.isTransactionEnabled()) {
+      // A record that could not be sent to the retry topic or to the dlq must not be lost: the
+      // batch is redelivered starting from this record until sending succeeds.
+      var backOff = new FixedBackOff(kafkaProperties.getAttemptsIntervalMs(),
+          FixedBackOff.UNLIMITED_ATTEMPTS);
+      container.setCommonErrorHandler(new DefaultErrorHandler(backOff));
+    }
+    return container;
+  }
+
+  @Bean
+  public KafkaBatchConsumer kafkaBatchConsumer(
+      KafkaConsumer kafkaConsumer,
+      DeadLetterPublishingRecoverer mainTopicRecoverer,
+      RetryDlqProducer retryDlqProducer
+  ) {
+    return new KafkaBatchConsumer(kafkaConsumer, mainTopicRecoverer, retryDlqProducer);
+  }
+
+  /**
+   * Sends from the worker threads would not join the transaction of the container thread, so
+   * batches are processed in parallel only without transactions.
+   */
+  @Bean
+  @ConditionalOnExpression(PARALLEL_PROCESSING_CONDITION)
+  public KafkaParallelBatchConsumer kafkaParallelBatchConsumer(
+      KafkaBatchConsumer kafkaBatchConsumer,
+      ExecutorService batchProcessingExecutor
+  ) {
+    return new KafkaParallelBatchConsumer(kafkaBatchConsumer, batchProcessingExecutor);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  @ConditionalOnExpression(PARALLEL_PROCESSING_CONDITION)
+  public ExecutorService batchProcessingExecutor() {
+    try {
+      // Virtual threads are available since Java 21: a thread per key costs almost nothing.
+      var executor = (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+      log.info(SETTING_UP_PARALLEL_PROCESSING, "virtual threads");
+      return executor;
+    } catch (ReflectiveOperationException ex) {
+      int threadsCount = kafkaProperties.getParallelProcessingThreads();
+      log.info(SETTING_UP_PARALLEL_PROCESSING, threadsCount + " threads");
+      return Executors.newFixedThreadPool(threadsCount,
+          new CustomizableThreadFactory("batch-processing-"));
+    }
+  }
+}
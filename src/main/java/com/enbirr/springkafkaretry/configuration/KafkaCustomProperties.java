@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Map;
+
 @Component
 @Data
 public class KafkaCustomProperties {
@@ -18,4 +21,170 @@ public class KafkaCustomProperties {
   private int attemptsIntervalMs;
   @Value("${kafka.retry.attempts-count}")
   private int attemptsMaxCount;
+  // The retry topic is set up for this attempts count, so policies could be raised up to it at
+  // runtime. 0 - max attempts count of the configured policies.
+  @Value("${kafka.retry.attempts-limit:0}")
+  private int attemptsLimit;
+  @Value("${kafka.retry.backoff.multiplier:1.0}")
+  private double backoffMultiplier;
+  @Value("${kafka.retry.backoff.max-interval-ms:300000}")
+  private long backoffMaxIntervalMs;
+  @Value("${kafka.retry.backoff.jitter:0.0}")
+  private double backoffJitter;
+  // Retry policies for specific exceptions: exception class name -> value.
+  @Value("#{${kafka.retry.exception.attempts-count:{:}}}")
+  private Map<String, Integer> exceptionAttemptsMaxCount;
+  @Value("#{${kafka.retry.exception.interval-ms:{:}}}")
+  private Map<String, Integer> exceptionAttemptsIntervalMs;
+  // Delays of the retry tiers, a retry topic is created for each one. Empty - single retry topic.
+  // Split here instead of by a conversion service, which contexts without Spring Boot don't have.
+  @Value("#{T(org.springframework.util.StringUtils)"
+      + ".tokenizeToStringArray('${kafka.retry.tiers-ms:}', ',')}")
+  private List<Long> retryTiersMs;
+  // False - the retry topics and the DLQ are neither created nor checked at startup.
+  @Value("${kafka.startup.topic-checks.enabled:true}")
+  private boolean startupTopicChecksEnabled;
+  @Value("${kafka.retry.scheduler.pool-size:4}")
+  private int retrySchedulerPoolSize;
+  @Value("${kafka.listener.main.concurrency:1}")
+  private int mainListenerConcurrency;
+  // Not set consumer properties are taken from "spring.kafka.consumer".
+  @Value("${kafka.listener.main.max-poll-records:#{null}}")
+  private Integer mainListenerMaxPollRecords;
+  @Value("${kafka.listener.main.fetch-min-bytes:#{null}}")
+  private Integer mainListenerFetchMinBytes;
+  @Value("${kafka.listener.main.fetch-max-wait-ms:#{null}}")
+  private Integer mainListenerFetchMaxWaitMs;
+  @Value("${kafka.listener.main.max-partition-fetch-bytes:#{null}}")
+  private Integer mainListenerMaxPartitionFetchBytes;
+  @Value("${kafka.listener.retry.concurrency:1}")
+  private int retryListenerConcurrency;
+  @Value("${kafka.listener.retry.max-poll-records:#{null}}")
+  private Integer retryListenerMaxPollRecords;
+  @Value("${kafka.listener.retry.fetch-min-bytes:#{null}}")
+  private Integer retryListenerFetchMinBytes;
+  @Value("${kafka.listener.retry.fetch-max-wait-ms:#{null}}")
+  private Integer retryListenerFetchMaxWaitMs;
+  @Value("${kafka.listener.retry.max-partition-fetch-bytes:#{null}}")
+  private Integer retryListenerMaxPartitionFetchBytes;
+  // Partitions and replication factor of the retry topics (all tiers) and of the DLQ.
+  @Value("${kafka.retry.topic.partitions:1}")
+  private int retryTopicPartitions;
+  @Value("${kafka.retry.topic.replication-factor:-1}")
+  private short retryTopicReplicationFactor;
+  @Value("${kafka.dlq.topic.partitions:1}")
+  private int dlqTopicPartitions;
+  @Value("${kafka.dlq.topic.replication-factor:-1}")
+  private short dlqTopicReplicationFactor;
+  @Value("${kafka.retry.producer.linger-ms:20}")
+  private int retryProducerLingerMs;
+  @Value("${kafka.retry.producer.batch-size:65536}")
+  private int retryProducerBatchSize;
+  @Value("${kafka.retry.producer.compression-type:lz4}")
+  private String retryProducerCompressionType;
+  @Value("${kafka.retry.producer.enable-idempotence:true}")
+  private boolean retryProducerIdempotenceEnabled;
+  @Value("${kafka.retry.producer.max-in-flight-sends:1000}")
+  private int retryProducerMaxInFlightSends;
+  // Consuming, sending to the retry topic or to the DLQ and committing offsets in one transaction.
+  // Without the prefix, a unique one is generated at each start.
+  @Value("${kafka.transaction.enabled:false}")
+  private boolean transactionEnabled;
+  @Value("${kafka.transaction.id-prefix:}")
+  private String transactionIdPrefix;
+  @Value("${kafka.retry.compact-headers.enabled:false}")
+  private boolean retryCompactHeadersEnabled;
+  // Values of the retry topic and the DLQ records: compression type (none, gzip, snappy, lz4,
+  // zstd) of the values from min-bytes, values from threshold-bytes (0 - never) are offloaded.
+  @Value("${kafka.retry.value.compression.type:none}")
+  private String retryValueCompressionType;
+  @Value("${kafka.retry.value.compression.min-bytes:1024}")
+  private int retryValueCompressionMinBytes;
+  @Value("${kafka.retry.value.offload.threshold-bytes:0}")
+  private int retryValueOffloadThresholdBytes;
+  // Must be shared by all instances, required if values are offloaded
+  @Value("${kafka.retry.value.offload.directory:}")
+  private String retryValueOffloadDirectory;
+  @Value("${kafka.circuit-breaker.enabled:false}")
+  private boolean circuitBreakerEnabled;
+  @Value("${kafka.circuit-breaker.failure-rate-percentage:50}")
+  private int circuitBreakerFailureRatePercentage;
+  @Value("${kafka.circuit-breaker.window-size:100}")
+  private int circuitBreakerWindowSize;
+  @Value("${kafka.circuit-breaker.minimum-records:20}")
+  private int circuitBreakerMinimumRecords;
+  @Value("${kafka.circuit-breaker.open-duration-ms:30000}")
+  private long circuitBreakerOpenDurationMs;
+  @Value("${kafka.circuit-breaker.trial-records:5}")
+  private int circuitBreakerTrialRecords;
+  @Value("${kafka.circuit-breaker.redelivery-interval-ms:1000}")
+  private long circuitBreakerRedeliveryIntervalMs;
+  @Value("${kafka.reactive.max-in-flight-per-partition:256}")
+  private int reactiveMaxInFlightPerPartition;
+  @Value("${kafka.reactive.commit-interval-ms:1000}")
+  private long reactiveCommitIntervalMs;
+  @Value("${kafka.reactive.restart.max-backoff-ms:60000}")
+  private long reactiveRestartMaxBackoffMs;
+  @Value("${kafka.rate-limit.enabled:false}")
+  private boolean rateLimitEnabled;
+  @Value("${kafka.rate-limit.main.min-per-second:50}")
+  private double rateLimitMainMinPerSecond;
+  @Value("${kafka.rate-limit.main.max-per-second:1000}")
+  private double rateLimitMainMaxPerSecond;
+  @Value("${kafka.rate-limit.retry.min-per-second:5}")
+  private double rateLimitRetryMinPerSecond;
+  @Value("${kafka.rate-limit.retry.max-per-second:200}")
+  private double rateLimitRetryMaxPerSecond;
+  @Value("${kafka.rate-limit.increase-step:1.0}")
+  private double rateLimitIncreaseStep;
+  @Value("${kafka.rate-limit.decrease-factor:0.5}")
+  private double rateLimitDecreaseFactor;
+  @Value("${kafka.rate-limit.adjustment-interval-ms:1000}")
+  private long rateLimitAdjustmentIntervalMs;
+  @Value("${kafka.dedup.enabled:false}")
+  private boolean dedupEnabled;
+  @Value("${kafka.dedup.window-size:100000}")
+  private int dedupWindowSize;
+  @Value("${kafka.dedup.ttl-ms:3600000}")
+  private long dedupTtlMs;
+  @Value("${kafka.dedup.bloom-filter.enabled:false}")
+  private boolean dedupBloomFilterEnabled;
+  @Value("${kafka.dedup.bloom-filter.expected-records:1000000}")
+  private int dedupBloomFilterExpectedRecords;
+  @Value("${kafka.dedup.bloom-filter.false-positive-rate:0.000001}")
+  private double dedupBloomFilterFalsePositiveRate;
+  @Value("${kafka.key-parking.enabled:false}")
+  private boolean keyParkingEnabled;
+  @Value("${kafka.key-parking.max-keys:100000}")
+  private int keyParkingMaxKeys;
+  @Value("${kafka.key-parking.ttl-ms:3600000}")
+  private long keyParkingTtlMs;
+  // Part of the records whose successful processing is logged, 1.0 - all records.
+  @Value("${kafka.logging.success-sample-rate:1.0}")
+  private double loggingSuccessSampleRate;
+  // Payloads in the log are cut to this length: -1 - not cut, 0 - not logged.
+  @Value("${kafka.logging.payload.max-length:256}")
+  private int loggingPayloadMaxLength;
+  // A single regex: alternatives are joined by "|", a comma could be a part of a quantifier.
+  @Value("${kafka.logging.payload.redact-pattern:}")
+  private String loggingPayloadRedactPattern;
+  @Value("${kafka.logging.stack-trace.window-ms:60000}")
+  private long loggingStackTraceWindowMs;
+  @Value("${kafka.backlog.enabled:false}")
+  private boolean backlogEnabled;
+  @Value("${kafka.backlog.interval-ms:10000}")
+  private long backlogIntervalMs;
+  // Scale-out is signaled when the backlog doesn't drain in time or retry records are overdue.
+  @Value("${kafka.backlog.scale-out.max-drain-seconds:300}")
+  private long backlogScaleOutMaxDrainSeconds;
+  @Value("${kafka.backlog.scale-out.max-retry-age-ms:60000}")
+  private long backlogScaleOutMaxRetryAgeMs;
+  @Value("${kafka.redrive.group-id:${kafka.topic}.redrive}")
+  private String redriveGroupId;
+  @Value("${kafka.redrive.rate-per-second:1000}")
+  private int redriveRatePerSecond;
+  @Value("${kafka.redrive.poll-records:2000}")
+  private int redrivePollRecords;
+  @Value("${kafka.batch.parallel.threads:8}")
+  private int parallelProcessingThreads;
 }
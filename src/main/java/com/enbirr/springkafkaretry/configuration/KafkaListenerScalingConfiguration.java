@@ -0,0 +1,145 @@
+package com.enbirr.springkafkaretry.configuration;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_LISTENER_FACTORY;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_TOPIC;
+
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The main topic and the retry topics get separate listener container factories, so each of them
+ * scales on its own: e.g. the busy main topic gets more consumers and bigger fetches than the
+ * low-volume retry topic. Both factories are configured by Spring Boot ("spring.kafka.listener"
+ * and "spring.kafka.consumer" properties), then the "kafka.listener.main" / "kafka.listener.retry"
+ * properties override them.
+ */
+@Configuration
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaListenerScalingConfiguration {
+
+  public static final String MAIN_TOPIC_LISTENER_FACTORY = "mainTopicListenerContainerFactory";
+  public static final String RETRY_TOPIC_LISTENER_FACTORY = "retryTopicListenerContainerFactory";
+
+  private final KafkaCustomProperties kafkaProperties;
+
+  @Bean(MAIN_TOPIC_LISTENER_FACTORY)
+  public ConcurrentKafkaListenerContainerFactory<Object, Object> mainTopicListenerContainerFactory(
+      ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+      ConsumerFactory<Object, Object> consumerFactory,
+      ObjectProvider<ContainerCustomizer<Object, Object,
+          ConcurrentMessageListenerContainer<Object, Object>>> containerCustomizers
+  ) {
+    var factory = createFactory(configurer, consumerFactory, TopicRole.MAIN,
+        kafkaProperties.getMainListenerConcurrency(),
+        kafkaProperties.getMainListenerMaxPollRecords(),
+        kafkaProperties.getMainListenerFetchMinBytes(),
+        kafkaProperties.getMainListenerFetchMaxWaitMs(),
+        kafkaProperties.getMainListenerMaxPartitionFetchBytes());
+    setContainerCustomizers(factory, containerCustomizers);
+    return factory;
+  }
+
+  /**
+   * It's used for all retry tier topics and for the DLQ listener.
+   */
+  @Bean(RETRY_TOPIC_LISTENER_FACTORY)
+  public ConcurrentKafkaListenerContainerFactory<Object, Object> retryTopicListenerContainerFactory(
+      ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+      ConsumerFactory<Object, Object> consumerFactory,
+      ObjectProvider<ContainerCustomizer<Object, Object,
+          ConcurrentMessageListenerContainer<Object, Object>>> containerCustomizers
+  ) {
+    var factory = createFactory(configurer, consumerFactory, TopicRole.RETRY,
+        kafkaProperties.getRetryListenerConcurrency(),
+        kafkaProperties.getRetryListenerMaxPollRecords(),
+        kafkaProperties.getRetryListenerFetchMinBytes(),
+        kafkaProperties.getRetryListenerFetchMaxWaitMs(),
+        kafkaProperties.getRetryListenerMaxPartitionFetchBytes());
+    setContainerCustomizers(factory, containerCustomizers);
+    return factory;
+  }
+
+  /**
+   * Retry topics are created by Spring with the "kafka.retry.topic" settings (see
+   * {@link KafkaRetryDlqConfiguration#setUpRetryTopic}). The DLQ would get the same ones, but a
+   * declared topic takes precedence over the one created by Spring for the retry topic
+   * configuration. Without the topic checks at startup, the DLQ is not declared.
+   */
+  @Bean
+  @ConditionalOnProperty(value = "kafka.startup.topic-checks.enabled", havingValue = "true",
+      matchIfMissing = true)
+  public NewTopic dlqTopic() {
+    String dlqTopic = kafkaProperties.getMainTopic() + kafkaProperties.getDlqTopicSuffix();
+    log.info(SETTING_UP_TOPIC, dlqTopic, kafkaProperties.getDlqTopicPartitions(),
+        kafkaProperties.getDlqTopicReplicationFactor());
+    return new NewTopic(dlqTopic, kafkaProperties.getDlqTopicPartitions(),
+        kafkaProperties.getDlqTopicReplicationFactor());
+  }
+
+  private ConcurrentKafkaListenerContainerFactory<Object, Object> createFactory(
+      ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+      ConsumerFactory<Object, Object> consumerFactory,
+      TopicRole topicRole,
+      int concurrency,
+      Integer maxPollRecords,
+      Integer fetchMinBytes,
+      Integer fetchMaxWaitMs,
+      Integer maxPartitionFetchBytes
+  ) {
+    var factory = new ConcurrentKafkaListenerContainerFactory<Object, Object>();
+    configurer.configure(factory, consumerFactory);
+    factory.setConcurrency(concurrency);
+
+    // Not set properties are taken from the consumer factory
+    var consumerProperties = new Properties();
+    putIfSet(consumerProperties, ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+    putIfSet(consumerProperties, ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
+    putIfSet(consumerProperties, ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs);
+    putIfSet(consumerProperties, ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG,
+        maxPartitionFetchBytes);
+    factory.getContainerProperties().setKafkaConsumerProperties(consumerProperties);
+
+    log.info(SETTING_UP_LISTENER_FACTORY, topicRole.getTagValue(), concurrency, consumerProperties);
+    return factory;
+  }
+
+  /**
+   * Container customizers (e.g. the ones that keep containers replaced by the batch listener or by
+   * the reactive pipeline stopped, or the one that makes them transactional) are not applied by
+   * Spring Boot to the factories it doesn't create, so they are set here.
+   */
+  private static void setContainerCustomizers(
+      ConcurrentKafkaListenerContainerFactory<Object, Object> factory,
+      ObjectProvider<ContainerCustomizer<Object, Object,
+          ConcurrentMessageListenerContainer<Object, Object>>> containerCustomizers
+  ) {
+    List<ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>>>
+        customizers = containerCustomizers.orderedStream().toList();
+    if (!customizers.isEmpty()) {
+      factory.setContainerCustomizer(container ->
+          customizers.forEach(customizer -> customizer.configure(container)));
+    }
+  }
+
+  private static void putIfSet(Properties properties, String key, Integer value) {
+    if (value != null) {
+      properties.put(key, value);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.enbirr.springkafkaretry.configuration;
+
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import com.enbirr.springkafkaretry.metrics.RetryMetrics;
+import com.enbirr.springkafkaretry.pipeline.ProcessingPipeline;
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import com.enbirr.springkafkaretry.reactive.ReactiveKafkaPipeline;
+import com.enbirr.springkafkaretry.retry.RetryPolicies;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.serialization.OffloadedValueStore;
+import com.enbirr.springkafkaretry.serialization.RetryValueDeserializer;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import reactor.kafka.receiver.ReceiverOptions;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces the listener containers of the main topic and of the retry topics with the reactive
+ * pipeline. Like in batch mode, the record listener stays registered: the retry topic
+ * configuration is still built for it, and the recoverer uses it. Only its containers are not
+ * started (the DLQ one keeps working).
+ */
+@Configuration
+@ConditionalOnProperty(value = "kafka.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class KafkaReactiveConfiguration {
+
+  private final KafkaCustomProperties kafkaProperties;
+
+  @Bean
+  public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>>
+      reactiveReplacedContainersCustomizer() {
+    return (ConcurrentMessageListenerContainer<Object, Object> container) -> {
+      String[] topics = container.getContainerProperties().getTopics();
+      if (topics != null && Arrays.stream(topics)
+          .anyMatch(topic -> TopicRole.of(topic, kafkaProperties) != TopicRole.DLQ)) {
+        container.setAutoStartup(false);
+      }
+    };
+  }
+
+  @Bean
+  public ReactiveKafkaPipeline reactiveKafkaPipeline(
+      KafkaProperties springKafkaProperties,
+      ProcessingPipeline<String> processingPipeline,
+      DeadLetterPublishingRecoverer mainTopicRecoverer,
+      RetryDlqProducer retryDlqProducer,
+      RetryMetrics retryMetrics,
+      RecordLogger recordLogger,
+      OffloadedValueStore offloadedValueStore,
+      RetryPolicies retryPolicies
+  ) {
+    Map<String, Object> consumerConfigs = springKafkaProperties.buildConsumerProperties();
+    // Offsets are committed only for the acknowledged records
+    consumerConfigs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    ReceiverOptions<String, byte[]> receiverOptions = ReceiverOptions.<String, byte[]>create(
+            consumerConfigs)
+        .subscription(mainAndRetryTopicsPattern())
+        .commitInterval(Duration.ofMillis(kafkaProperties.getReactiveCommitIntervalMs()))
+        // Values that could not be restored are sent to the DLQ, see the listener containers
+        .withValueDeserializer(
+            new ErrorHandlingDeserializer<>(new RetryValueDeserializer(offloadedValueStore)));
+    return new ReactiveKafkaPipeline(kafkaProperties, receiverOptions, processingPipeline,
+        mainTopicRecoverer, retryDlqProducer, retryMetrics, recordLogger, retryPolicies);
+  }
+
+  /**
+   * The main topic, the single retry topic and the retry tier topics (e.g. ".retry-10000").
+   */
+  private Pattern mainAndRetryTopicsPattern() {
+    return Pattern.compile(Pattern.quote(kafkaProperties.getMainTopic())
+        + "(" + Pattern.quote(kafkaProperties.getRetryTopicSuffix()) + "(-.+)?)?");
+  }
+}
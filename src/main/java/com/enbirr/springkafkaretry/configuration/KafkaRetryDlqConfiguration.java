@@ -1,24 +1,55 @@
 package com.enbirr.springkafkaretry.configuration;
 
 
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_EXCEPTION_RETRY_POLICY;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_RETRY_BACKOFF;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_RETRY_DELAY_TOPICS;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_RETRY_DLQ_PRODUCER;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_RETRY_TIERS;
 import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_RETRY_TOPIC;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_RETRY_VALUE_ENCODING;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_TRANSACTIONS;
 
+import com.enbirr.springkafkaretry.consumer.KafkaConsumer;
+import com.enbirr.springkafkaretry.exception.CircuitOpenException;
 import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import com.enbirr.springkafkaretry.parking.KeyParking;
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import com.enbirr.springkafkaretry.retry.JitteredBackOffHeaders;
+import com.enbirr.springkafkaretry.retry.PolicyAwareDestinationTopicResolver;
+import com.enbirr.springkafkaretry.retry.RetryPolicies;
+import com.enbirr.springkafkaretry.retry.RetryPolicy;
+import com.enbirr.springkafkaretry.retry.TieredBackOffPolicy;
+import com.enbirr.springkafkaretry.serialization.OffloadedValueStore;
+import com.enbirr.springkafkaretry.serialization.RetryValueDeserializer;
+import com.enbirr.springkafkaretry.serialization.RetryValueSerializer;
 import com.enbirr.springkafkaretry.util.KafkaUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer.HeaderNames.HeadersToAdd;
 import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+import org.springframework.kafka.retrytopic.RetryTopicComponentFactory;
 import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
 import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
 import org.springframework.kafka.retrytopic.RetryTopicConfigurationSupport;
+import org.springframework.kafka.support.ProducerListener;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.util.backoff.FixedBackOff;
 
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.function.Consumer;
 
 /**
@@ -37,34 +68,252 @@ public class KafkaRetryDlqConfiguration extends RetryTopicConfigurationSupport {
     return (DeadLetterPublishingRecovererFactory recovererFactory) -> {
       // Remove old retry headers before resending a Kafka record to the retry topic.
       recovererFactory.setRetainAllRetryHeaderValues(false);
-      // Set up more informative exception headers
+      // By default a record goes to the partition with the number of its source partition, which
+      // the retry topics and the DLQ may not have. The producer picks the partition by the key
+      // instead, so the topics could have any count of partitions and a key stays in one of them.
+      recovererFactory.setPartitionResolver((consumerRecord, nextTopic) -> null);
       recovererFactory.setDeadLetterPublishingRecovererCustomizer(
-          (DeadLetterPublishingRecoverer recoverer) ->
-              recoverer.setExceptionHeadersCreator(KafkaUtils::getCustomExceptionHeadersCreator));
+          (DeadLetterPublishingRecoverer recoverer) -> {
+            if (kafkaProperties.isRetryCompactHeadersEnabled()) {
+              // One binary header instead of the exception and the original record headers
+              recoverer.excludeHeader(HeadersToAdd.values());
+              recoverer.setExceptionHeadersCreator(KafkaUtils::removeStringExceptionHeaders);
+              recoverer.addHeadersFunction(KafkaUtils::createRetryMetadataHeaders);
+            } else {
+              // Set up more informative exception headers
+              recoverer.setExceptionHeadersCreator(KafkaUtils::getCustomExceptionHeadersCreator);
+            }
+            if (kafkaProperties.isKeyParkingEnabled()) {
+              recoverer.addHeadersFunction(KeyParking::keepAttemptsOfParkedRecord);
+            }
+          });
     };
   }
 
-  @Bean
-  public RetryTopicConfiguration setUpRetryTopic(KafkaTemplate<String, String> template) {
-    int attemptsMaxCount = kafkaProperties.getAttemptsMaxCount();
-    int attemptsIntervalMs = kafkaProperties.getAttemptsIntervalMs();
-    log.info(SETTING_UP_RETRY_TOPIC, attemptsMaxCount, attemptsIntervalMs);
+  /**
+   * The policy-driven destination resolver sends a record to the DLQ when the retry policy of its
+   * exception is exhausted. Without retry tiers, it sends a record to the retry topic of the delay
+   * its policy sets for the next attempt. The recoverers spread the next attempts within the retry
+   * topic by the jitter of the policy.
+   */
+  @Override
+  protected RetryTopicComponentFactory createComponentFactory() {
+    return new RetryTopicComponentFactory() {
+      @Override
+      public DestinationTopicResolver destinationTopicResolver() {
+        return new PolicyAwareDestinationTopicResolver(internalRetryTopicClock(), retryPolicies(),
+            kafkaProperties.getRetryTiersMs().isEmpty());
+      }
+
+      @Override
+      public DeadLetterPublishingRecovererFactory deadLetterPublishingRecovererFactory(
+          DestinationTopicResolver destinationResolver
+      ) {
+        var recovererFactory = new DeadLetterPublishingRecovererFactory(destinationResolver);
+        recovererFactory.setHeadersFunction(new JitteredBackOffHeaders(destinationResolver,
+            retryPolicies(), KafkaConsumer.MAIN_LISTENER_ID));
+        return recovererFactory;
+      }
+    };
+  }
+
+  /**
+   * While the circuit breaker is open, records of the main topic are not processed. They must stay
+   * in the main topic instead of going to the retry topic: the container seeks back to them and
+   * redelivers them until the circuit breaker lets them through.
+   */
+  @Override
+  protected void configureBlockingRetries(BlockingRetriesConfigurer blockingRetries) {
+    blockingRetries
+        .retryOn(CircuitOpenException.class)
+        .backOff(new FixedBackOff(kafkaProperties.getCircuitBreakerRedeliveryIntervalMs(),
+            FixedBackOff.UNLIMITED_ATTEMPTS));
+  }
 
-    return RetryTopicConfigurationBuilder
+  @Bean
+  public RetryTopicConfiguration setUpRetryTopic(RetryDlqProducer retryDlqProducer) {
+    // Policies could be changed at runtime, up to the attempts limit the topic is set up for
+    int attemptsMaxCount = retryPolicies().getAttemptsLimit();
+    var retryTopicConfigBuilder = RetryTopicConfigurationBuilder
         .newInstance()
-        .maxAttempts(attemptsMaxCount)
-        .fixedBackOff(attemptsIntervalMs)
+        .maxAttempts(attemptsMaxCount);
+
+    List<Long> retryTiersMs = kafkaProperties.getRetryTiersMs();
+    List<Long> retryDelaysMs = retryPolicies().getRetryDelaysMs();
+    if (!retryTiersMs.isEmpty()) {
+      log.info(SETTING_UP_RETRY_TIERS, attemptsMaxCount, retryTiersMs);
+      retryTopicConfigBuilder.customBackoff(new TieredBackOffPolicy(retryTiersMs));
+    } else if (retryDelaysMs.size() > 1) {
+      // A topic for each delay: records of a topic are due in the order they were written, so a
+      // long delay never holds back the records with a short one behind it.
+      log.info(SETTING_UP_RETRY_DELAY_TOPICS, attemptsMaxCount, retryDelaysMs);
+      retryTopicConfigBuilder
+          .maxAttempts(Math.max(attemptsMaxCount, retryDelaysMs.size() + 1))
+          .customBackoff(new TieredBackOffPolicy(retryDelaysMs));
+    } else {
+      long attemptsIntervalMs = retryDelaysMs.isEmpty()
+          ? kafkaProperties.getAttemptsIntervalMs()
+          : retryDelaysMs.get(0);
+      log.info(SETTING_UP_RETRY_TOPIC, attemptsMaxCount, attemptsIntervalMs);
+      retryTopicConfigBuilder.fixedBackOff(attemptsIntervalMs);
+    }
+
+    return retryTopicConfigBuilder
         .notRetryOn(ProcessingFatalException.class)
-        // sets up single topic usage for all retries
+        // sets up single topic usage for all retries with the same interval
         .useSingleTopicForSameIntervals()
         .retryTopicSuffix(kafkaProperties.getRetryTopicSuffix())
         .dltSuffix(kafkaProperties.getDlqTopicSuffix())
-        .create(template);
+        // Without the topic checks, startup doesn't wait for the broker: the topics must exist
+        .autoCreateTopics(kafkaProperties.isStartupTopicChecksEnabled(),
+            kafkaProperties.getRetryTopicPartitions(),
+            kafkaProperties.getRetryTopicReplicationFactor())
+        .listenerFactory(KafkaListenerScalingConfiguration.RETRY_TOPIC_LISTENER_FACTORY)
+        .create(retryDlqProducer.getTemplate());
+  }
+
+  /**
+   * Failed records are sent by the dedicated producer. Its settings are based on the
+   * "spring.kafka.producer" properties and tuned for throughput by the "kafka.retry.producer" ones.
+   */
+  @Bean
+  @SuppressWarnings("unchecked")
+  public RetryDlqProducer retryDlqProducer(
+      KafkaProperties springKafkaProperties,
+      ProducerListener<?, ?> producerListener,
+      OffloadedValueStore offloadedValueStore
+  ) {
+    // Transactions require idempotence
+    boolean isIdempotenceEnabled = kafkaProperties.isRetryProducerIdempotenceEnabled()
+        || kafkaProperties.isTransactionEnabled();
+    log.info(SETTING_UP_RETRY_DLQ_PRODUCER, kafkaProperties.getRetryProducerLingerMs(),
+        kafkaProperties.getRetryProducerBatchSize(),
+        kafkaProperties.getRetryProducerCompressionType(), isIdempotenceEnabled,
+        kafkaProperties.getRetryProducerMaxInFlightSends());
+
+    Map<String, Object> producerConfigs = springKafkaProperties.buildProducerProperties();
+    producerConfigs.put(ProducerConfig.LINGER_MS_CONFIG, kafkaProperties.getRetryProducerLingerMs());
+    producerConfigs.put(ProducerConfig.BATCH_SIZE_CONFIG,
+        kafkaProperties.getRetryProducerBatchSize());
+    producerConfigs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG,
+        kafkaProperties.getRetryProducerCompressionType());
+    producerConfigs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, isIdempotenceEnabled);
+    if (isIdempotenceEnabled) {
+      // Idempotence requires acknowledgement of all in-sync replicas
+      producerConfigs.put(ProducerConfig.ACKS_CONFIG, "all");
+    }
+
+    var retryDlqProducer = new RetryDlqProducer(producerConfigs,
+        createValueSerializer(offloadedValueStore),
+        kafkaProperties.getRetryProducerMaxInFlightSends(),
+        getTransactionIdPrefix());
+    // The same listener as the one of the KafkaTemplate created by Spring Boot (e.g. for metrics)
+    retryDlqProducer.getTemplate()
+        .setProducerListener((ProducerListener<String, byte[]>) producerListener);
+    return retryDlqProducer;
   }
 
-  // KafkaConsumerBackoffManager requires this bean
+  @Bean
+  public OffloadedValueStore offloadedValueStore() {
+    return new OffloadedValueStore(kafkaProperties);
+  }
+
+  /**
+   * All consumers of the application read the values as bytes: the payload deserializer of the
+   * pipeline parses them straight from the bytes. The values of the retry topic and the DLQ
+   * records are restored, even if their encoding is switched off: records written before still
+   * could be consumed.
+   * <p>
+   * A value that could not be restored (e.g. its offloaded file is missing) must not stop the
+   * partition: the error is passed to the listener as a DeserializationException, which is not
+   * retryable, so the record goes to the DLQ with the bytes read from the topic.
+   */
+  @Bean
+  @SuppressWarnings("unchecked")
+  public DefaultKafkaConsumerFactoryCustomizer retryValueDeserializerCustomizer(
+      OffloadedValueStore offloadedValueStore
+  ) {
+    return (DefaultKafkaConsumerFactory<?, ?> consumerFactory) ->
+        ((DefaultKafkaConsumerFactory<?, byte[]>) consumerFactory).setValueDeserializerSupplier(
+            () -> new ErrorHandlingDeserializer<>(new RetryValueDeserializer(offloadedValueStore)));
+  }
+
+  @Bean
+  public RetryPolicies retryPolicies() {
+    RetryPolicies retryPolicies = RetryPolicies.fromProperties(kafkaProperties);
+    RetryPolicy defaultPolicy = retryPolicies.getDefaultPolicy();
+    log.info(SETTING_UP_RETRY_BACKOFF, defaultPolicy.multiplier(), defaultPolicy.maxIntervalMs(),
+        defaultPolicy.jitter() * 100);
+    retryPolicies.getExceptionPolicies().forEach((exceptionClass, policy) ->
+        log.info(SETTING_UP_EXCEPTION_RETRY_POLICY, exceptionClass.getName(), policy.maxAttempts(),
+            policy.intervalMs()));
+    return retryPolicies;
+  }
+
+  /**
+   * Sends a failed record to the retry topic or to the DLQ exactly like the error handler of the
+   * main topic listener does: with the same attempt, backoff and exception headers. It is used by
+   * the listeners that are not managed by the retry topic configuration (e.g. the batch listener).
+   * <p>
+   * Unlike the recoverers of the retry topic configuration, it doesn't wait for acknowledgement of
+   * each send: the caller has to check the sends captured by
+   * {@link RetryDlqProducer#captureSends(Runnable)} before the offsets are committed.
+   */
+  @Bean
+  public DeadLetterPublishingRecoverer mainTopicRecoverer(
+      DestinationTopicResolver destinationTopicResolver
+  ) {
+    var recovererFactory = createComponentFactory()
+        .deadLetterPublishingRecovererFactory(destinationTopicResolver);
+    configureDeadLetterPublishingContainerFactory().accept(recovererFactory);
+    DeadLetterPublishingRecoverer recoverer = recovererFactory.create(
+        KafkaConsumer.MAIN_LISTENER_ID);
+    recoverer.setFailIfSendResultIsError(false);
+    return recoverer;
+  }
+
+  /**
+   * KafkaConsumerBackoffManager requires this bean: it pauses a partition of a retry topic until
+   * its head record is due and resumes the partition by a task of this scheduler. With retry tiers,
+   * each tier topic is paused and resumed on its own, so the scheduler needs several threads.
+   */
   @Bean
   public TaskScheduler scheduler() {
-    return new ThreadPoolTaskScheduler();
+    var scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(kafkaProperties.getRetrySchedulerPoolSize());
+    scheduler.setThreadNamePrefix("retry-backoff-");
+    return scheduler;
+  }
+
+  /**
+   * Values are encoded if compression or offloading is switched on. Even if it's switched off, the
+   * encoding headers of the values written before are removed.
+   */
+  private RetryValueSerializer createValueSerializer(OffloadedValueStore offloadedValueStore) {
+    var valueSerializer = new RetryValueSerializer(kafkaProperties, offloadedValueStore);
+    if (valueSerializer.isEncodingEnabled()) {
+      log.info(SETTING_UP_RETRY_VALUE_ENCODING, kafkaProperties.getRetryValueCompressionType(),
+          kafkaProperties.getRetryValueCompressionMinBytes(),
+          kafkaProperties.getRetryValueOffloadDirectory(),
+          kafkaProperties.getRetryValueOffloadThresholdBytes());
+    }
+    return valueSerializer;
+  }
+
+  /**
+   * Instances of the application must not share transactional ids: a producer of one instance
+   * would fence the producer of another one. Zombie instances are fenced by the consumer group.
+   *
+   * @return null if transactions are disabled.
+   */
+  private String getTransactionIdPrefix() {
+    if (!kafkaProperties.isTransactionEnabled()) {
+      return null;
+    }
+    String transactionIdPrefix = kafkaProperties.getTransactionIdPrefix().isBlank()
+        ? kafkaProperties.getMainTopic() + ".tx-" + UUID.randomUUID() + "-"
+        : kafkaProperties.getTransactionIdPrefix();
+    log.info(SETTING_UP_TRANSACTIONS, transactionIdPrefix);
+    return transactionIdPrefix;
   }
 }
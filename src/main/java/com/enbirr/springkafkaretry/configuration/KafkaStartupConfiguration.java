@@ -0,0 +1,69 @@
+package com.enbirr.springkafkaretry.configuration;
+
+import com.enbirr.springkafkaretry.exception.CircuitOpenException;
+import com.enbirr.springkafkaretry.exception.KeyParkedException;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.util.ReflectionUtils.MethodFilter;
+
+import java.util.List;
+
+/**
+ * Makes the application start faster, so new instances join the consumer group sooner when it's
+ * scaled out under a lag spike:
+ * <ul>
+ *   <li>With "spring.main.lazy-initialization", only the listeners are created at startup, the
+ *   rest beans (endpoints, DLQ redrive, etc.) are created on first use.</li>
+ *   <li>With "kafka.startup.topic-checks.enabled=false", the retry topics and the DLQ are neither
+ *   created nor checked, so startup doesn't wait for the broker.</li>
+ *   <li>Runtime hints let the application run after Spring AOT processing and as a GraalVM native
+ *   image (see the "native" Maven profile).</li>
+ * </ul>
+ */
+@Configuration
+@ImportRuntimeHints(KafkaStartupConfiguration.ApplicationRuntimeHints.class)
+public class KafkaStartupConfiguration {
+
+  /**
+   * Listener methods are registered only when their bean is created: a lazy listener bean would
+   * never consume anything.
+   */
+  @Bean
+  public static LazyInitializationExcludeFilter kafkaListenersLazyInitializationExcludeFilter() {
+    return (beanName, beanDefinition, beanType) -> AnnotatedElementUtils.hasAnnotation(beanType,
+        KafkaListener.class) || !MethodIntrospector.selectMethods(beanType,
+        (MethodFilter) method -> AnnotatedElementUtils.hasAnnotation(method, KafkaListener.class))
+        .isEmpty();
+  }
+
+  /**
+   * Beans, {@code @Value} fields and Kafka clients get their hints from Spring AOT and spring-kafka.
+   * Exception classes of the retry policies are loaded by name (from the properties and from the
+   * "retrypolicies" endpoint), so the ones of the application are registered here. Other exception
+   * classes used in the policies of a native image have to be registered the same way.
+   */
+  static class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> EXCEPTION_CLASSES = List.of(
+        ProcessingException.class,
+        ProcessingFatalException.class,
+        CircuitOpenException.class,
+        KeyParkedException.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+      EXCEPTION_CLASSES.forEach(exceptionClass -> hints.reflection().registerType(exceptionClass,
+          MemberCategory.INTROSPECT_PUBLIC_CONSTRUCTORS));
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.enbirr.springkafkaretry.configuration;
+
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ContainerCustomizer;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+import org.springframework.kafka.listener.KafkaBackoffException;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Map;
+
+/**
+ * Exactly-once mode of the main topic and the retry topics: a record is consumed, its copy is sent
+ * to the retry topic or to the DLQ and its offset is committed in one Kafka transaction. The
+ * listener containers run the transactions by the producer of the retry topic configuration, so
+ * the recoverers send within them.
+ * <p>
+ * The main topic is consumed by the batch listener then (see
+ * {@link KafkaBatchListenerConfiguration}): all records of a poll share one transaction, which
+ * keeps the overhead (a round trip to the transaction coordinator and a commit marker per
+ * partition) low. Records of the retry topics are consumed by the record listeners of Spring, so
+ * each of them gets its own transaction.
+ */
+@Configuration
+@ConditionalOnProperty(value = "kafka.transaction.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class KafkaTransactionConfiguration {
+
+  private static final String READ_COMMITTED = "read_committed";
+  private static final FixedBackOff NO_DELAY_BACK_OFF = new FixedBackOff(0,
+      FixedBackOff.UNLIMITED_ATTEMPTS);
+
+  private final KafkaCustomProperties kafkaProperties;
+
+  @Bean
+  public KafkaTransactionManager<String, byte[]> retryDlqTransactionManager(
+      RetryDlqProducer retryDlqProducer
+  ) {
+    return new KafkaTransactionManager<>(retryDlqProducer.getProducerFactory());
+  }
+
+  /**
+   * Copies of the records from rolled back transactions stay in the retry topic and in the DLQ,
+   * no consumer of the application (including the DLQ redrive) may read them.
+   */
+  @Bean
+  public DefaultKafkaConsumerFactoryCustomizer readCommittedConsumerFactoryCustomizer() {
+    return (DefaultKafkaConsumerFactory<?, ?> consumerFactory) -> consumerFactory.updateConfigs(
+        Map.of(ConsumerConfig.ISOLATION_LEVEL_CONFIG, READ_COMMITTED));
+  }
+
+  /**
+   * A transaction is rolled back when a failed record could not be sent to the retry topic or to
+   * the DLQ, or a batch is interrupted by the circuit breaker. Its records are redelivered until
+   * they are handled: unlike the default after-rollback processor, it never skips them.
+   * <p>
+   * A record of a retry topic that is not due yet rolls back its (empty) transaction too: Spring
+   * signals it by KafkaBackoffException, and the partition is already paused until the record is
+   * due. It must be neither delayed nor skipped, so the record is just sought back at once.
+   */
+  @Bean
+  public ContainerCustomizer<Object, Object, ConcurrentMessageListenerContainer<Object, Object>>
+      transactionalContainerCustomizer(
+      KafkaTransactionManager<String, byte[]> retryDlqTransactionManager
+  ) {
+    var afterRollbackProcessor = new DefaultAfterRollbackProcessor<Object, Object>(
+        new FixedBackOff(kafkaProperties.getAttemptsIntervalMs(), FixedBackOff.UNLIMITED_ATTEMPTS));
+    afterRollbackProcessor.setBackOffFunction((record, exception) ->
+        ExceptionUtils.indexOfType(exception, KafkaBackoffException.class) >= 0
+            ? NO_DELAY_BACK_OFF
+            : null);
+    return (ConcurrentMessageListenerContainer<Object, Object> container) -> {
+      container.getContainerProperties().setTransactionManager(retryDlqTransactionManager);
+      // Commit markers of the retry topics would be left as the lag of 1 record per partition
+      container.getContainerProperties().setFixTxOffsets(true);
+      container.setAfterRollbackProcessor(afterRollbackProcessor);
+    };
+  }
+}
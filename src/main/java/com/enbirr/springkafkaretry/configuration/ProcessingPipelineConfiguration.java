@@ -0,0 +1,42 @@
+package com.enbirr.springkafkaretry.configuration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.enbirr.springkafkaretry.pipeline.PayloadDeserializer;
+import com.enbirr.springkafkaretry.pipeline.ProcessingPipeline;
+import com.enbirr.springkafkaretry.pipeline.ProcessingStage;
+import com.enbirr.springkafkaretry.service.ProcessingService;
+import com.enbirr.springkafkaretry.service.TruncationStage;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Processing pipeline shared by the listeners, the batch listener and the reactive pipeline. To
+ * process another payload type, replace the payload deserializer (e.g. by
+ * {@link com.enbirr.springkafkaretry.pipeline.JsonPayloadDeserializer}) and declare the stages of
+ * this type: they are chained in their {@link Order}.
+ */
+@Configuration
+public class ProcessingPipelineConfiguration {
+
+  @Bean
+  public PayloadDeserializer<String> payloadDeserializer() {
+    return value -> value == null ? null : new String(value, UTF_8);
+  }
+
+  @Bean
+  @Order(0)
+  public ProcessingStage<String> truncationStage(ProcessingService processingService) {
+    return new TruncationStage(processingService);
+  }
+
+  @Bean
+  public ProcessingPipeline<String> processingPipeline(
+      PayloadDeserializer<String> payloadDeserializer,
+      ObjectProvider<ProcessingStage<String>> stages
+  ) {
+    return new ProcessingPipeline<>(payloadDeserializer, stages.orderedStream().toList());
+  }
+}
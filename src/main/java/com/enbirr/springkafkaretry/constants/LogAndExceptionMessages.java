@@ -7,13 +7,118 @@ import lombok.NoArgsConstructor;
 public class LogAndExceptionMessages {
 
   public static final String SETTING_UP_RETRY_TOPIC =
-      "Setting up retry topic: for each message from the main topic there will be {} attempts "
-          + "made with an interval of {} milliseconds between them. After each attempt, the "
-          + "message gets forwarded either to the retry topic or to the dlq.";
+      "Setting up retry topic: for each message from the main topic there will be up to {} "
+          + "attempts made with an interval of {} milliseconds between them. After each "
+          + "attempt, the message gets forwarded either to the retry topic or to the dlq.";
+  public static final String SETTING_UP_RETRY_TIERS = "Setting up retry tiers: for each message "
+      + "from the main topic there will be up to {} attempts made, after each attempt the "
+      + "message gets promoted to the next delay topic (delays in milliseconds: {}) or forwarded "
+      + "to the dlq. Backoff multiplier and intervals of the exception retry policies are not "
+      + "used.";
+  public static final String SETTING_UP_RETRY_DELAY_TOPICS = "Setting up retry topics: for each "
+      + "message from the main topic there will be up to {} attempts made, after each attempt the "
+      + "message gets forwarded either to the topic of the delay its retry policy sets for the "
+      + "next attempt (delays in milliseconds: {}) or to the dlq.";
+  public static final String INTERRUPTED_BACK_OFF = "Interrupted while backing off.";
+  public static final String INVALID_RETRY_TIERS = "Retry tiers could not be set up: %s. At "
+      + "least one tier is required, delays of all tiers must be positive.";
+  public static final String SETTING_UP_RETRY_BACKOFF = "Delays between attempts grow {} times "
+      + "after each attempt up to {} milliseconds and are randomly spread by {}%.";
+  public static final String SETTING_UP_EXCEPTION_RETRY_POLICY = "Retry policy for {}: {} "
+      + "attempts, initial interval of {} milliseconds.";
+  public static final String UNKNOWN_EXCEPTION_CLASS = "Retry policy could not be set up: class %s "
+      + "is not found or is not an exception.";
+  public static final String ATTEMPTS_COUNT_OUT_OF_RANGE = "Retry policy could not be applied: "
+      + "attempts count %d is not within 1 and the attempts limit %d of the retry topic.";
+  public static final String INVALID_RETRY_BACKOFF = "Retry policy could not be applied: %s. "
+      + "Interval must not be negative, multiplier must be at least 1.0, jitter must be within "
+      + "[0, 1).";
+  public static final String RETRY_POLICY_UPDATED = "Retry policy for {} is updated: {}";
+  public static final String RETRY_POLICY_REMOVED = "Retry policy for {} is removed, the policy "
+      + "of its superclass or the default one is used instead.";
+  public static final String RATE_LIMIT_UPDATED = "Rate limit of the {} topic is updated: {} - {} "
+      + "permits per second.";
+  public static final String INVALID_REDACT_PATTERN = "Payload redact pattern could not be "
+      + "compiled: %s";
+  public static final String INVALID_RATE_LIMIT = "Rate limit could not be applied: %s - %s "
+      + "permits per second. Min must be positive and not greater than max.";
+  public static final String SETTING_UP_BATCH_LISTENER = "Setting up batch listener for the main "
+      + "topic \"{}\": all records of a poll are processed in one call, failed records are sent "
+      + "to the retry topic or to the dlq one by one.";
+  public static final String SETTING_UP_PARALLEL_PROCESSING = "Setting up parallel processing of "
+      + "batches: records with different keys are processed by {} concurrently, records with the "
+      + "same key are processed in order.";
+  public static final String BATCH_RECEIVED = "Batch of {} messages received";
+  public static final String COMPLETED_RECORDS_SKIPPED = "{} messages of the redelivered batch "
+      + "are skipped: they were completed before the batch failed";
+  public static final String FAILED_TO_ROUTE_RECORD = "Failed to send the record to the retry "
+      + "topic or to the dlq. The batch will be redelivered starting from this record.";
+  public static final String SETTING_UP_LISTENER_FACTORY = "Setting up listener container factory "
+      + "for the {} topic: concurrency = {}, consumer properties overrides = {}";
+  public static final String SETTING_UP_TOPIC = "Setting up topic \"{}\": partitions = {}, "
+      + "replication factor = {} (-1 - broker default)";
+  public static final String SETTING_UP_REACTIVE_PIPELINE = "Setting up reactive pipeline for "
+      + "topics matching \"{}\": max in-flight records per partition = {}";
+  public static final String REACTIVE_PIPELINE_FAILED = "Reactive pipeline failed, it is "
+      + "restarted from the last committed offsets.";
+  public static final String SETTING_UP_TRANSACTIONS = "Setting up transactions: records are "
+      + "consumed, sent to the retry topic or to the dlq and their offsets are committed in one "
+      + "transaction, transactional id prefix \"{}\".";
+  public static final String SETTING_UP_RETRY_DLQ_PRODUCER = "Setting up producer for the retry "
+      + "topic and the dlq: linger {} ms, batch size {} bytes, compression \"{}\", idempotence "
+      + "{}, up to {} sends waiting for acknowledgement.";
+  public static final String SETTING_UP_RETRY_VALUE_ENCODING = "Values of the retry topic and "
+      + "the dlq records are compressed by \"{}\" from {} bytes and offloaded to \"{}\" from {} "
+      + "bytes (0 - never).";
+  public static final String OFFLOAD_DIRECTORY_NOT_SET = "Values from %d bytes are offloaded, "
+      + "but kafka.retry.value.offload.directory is not set. It has to be a directory shared by "
+      + "all instances, e.g. a network file system mount.";
+  public static final String OFFLOADED_VALUE_NOT_STORED = "Record value could not be offloaded "
+      + "to %s.";
+  public static final String OFFLOADED_VALUE_NOT_FOUND = "Offloaded record value %s is not found "
+      + "in %s. The directory has to be shared by all instances and kept longer than the dlq.";
+  public static final String INTERRUPTED_WAITING_FOR_SEND_PERMIT = "Interrupted while waiting "
+      + "for acknowledgement of the previous sends to the retry topic or to the dlq.";
+  public static final String CIRCUIT_BREAKER_OPENED = "Circuit breaker is OPEN: {} of the last {} "
+      + "messages from the main topic failed. Main topic consumption is paused for {} "
+      + "milliseconds.";
+  public static final String CIRCUIT_BREAKER_HALF_OPEN = "Circuit breaker is HALF-OPEN: main topic "
+      + "consumption is resumed, {} trial messages will be processed.";
+  public static final String CIRCUIT_BREAKER_CLOSED = "Circuit breaker is CLOSED: trial messages "
+      + "were processed successfully.";
+  public static final String CIRCUIT_IS_OPEN = "Circuit breaker is open. The message stays in the "
+      + "main topic and will be redelivered.";
+  public static final String SETTING_UP_BACKLOG_MONITOR = "Setting up backlog monitor: lag of "
+      + "the main, the retry and the DLQ topics is read every {} milliseconds.";
+  public static final String BACKLOG_UPDATE_FAILED = "Failed to read the backlog: {}. It will be "
+      + "read again by the next update.";
+  public static final String REDRIVE_STARTED = "Redrive from \"{}\" to \"{}\" started (consumer "
+      + "group \"{}\", {}).";
+  public static final String REDRIVE_FINISHED = "Redrive finished with state {}: {} messages "
+      + "read, {} sent to the main topic, {} skipped.";
+  public static final String REDRIVE_FAILED = "Redrive (consumer group \"{}\") failed. It could "
+      + "be resumed from the last checkpoint by starting it with the same consumer group.";
+  public static final String INVALID_REDRIVE_RATE = "Redrive could not be started: rate %s per "
+      + "second must be positive.";
+  public static final String REDRIVE_IS_ALREADY_RUNNING = "Redrive is already running, stop it "
+      + "before starting a new one.";
   public static final String MESSAGE_RECEIVED = "Message received ({}). Payload: \"{}\"";
+  public static final String MESSAGE_IS_ALREADY_PROCESSED = "Message is skipped ({}): it was "
+      + "already processed successfully.";
+  public static final String MESSAGE_IS_PARKED = "Message is parked ({}): an earlier message with "
+      + "the same key is being retried.";
+  public static final String KEY_IS_PARKED = "An earlier message with the same key is being "
+      + "retried. The message waits for it in the retry topic.";
   public static final String MESSAGE_PROCESSED = "Message successfully processed ({}). Result: "
       + "\"{}\"";
   public static final String MESSAGE_FAILED_TO_PROCESS = "Message was failed to process ({})";
+  public static final String MESSAGE_FAILED_TO_PROCESS_AGAIN = "Message was failed to process "
+      + "({}). Stack traces of {} failures like this were not logged since the previous one.";
+  public static final String MESSAGE_FAILED_TO_PROCESS_STACK_TRACE_SUPPRESSED = "Message was "
+      + "failed to process ({}): {}: {}. The stack trace of this failure was logged recently.";
+  public static final String PAYLOAD_DESERIALIZATION_FAILED = "Failed to deserialize the payload "
+      + "of the message. It's sent to the DLQ without retries.";
+  public static final String PROCESSING_STAGE_FAILED = "Processing stage \"%s\" failed.";
   public static final String FATAL_PROCESSING_ERROR_NOT_RETRIABLE = "FATAL PROCESSING ERROR! "
       + "Message should be immediately sent to the DLQ without any retries.";
   public static final String PROCESSING_ERROR_COULD_BE_RETRIED = "Failed to process the message. "
@@ -0,0 +1,115 @@
+package com.enbirr.springkafkaretry.consumer;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.BATCH_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.CIRCUIT_IS_OPEN;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.FAILED_TO_ROUTE_RECORD;
+
+import com.enbirr.springkafkaretry.exception.CircuitOpenException;
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Processes all records of a poll from the main topic in one call. Every record is handled by
+ * {@link KafkaConsumer#consumeMessage(ConsumerRecord)}. A failed record is sent to the retry topic
+ * (or to the DLQ) on its own, so one bad record does not make the whole batch to be replayed.
+ * <p>
+ * Failed records are sent without waiting for acknowledgement, the call returns (and the offsets
+ * get committed) only when all sends of the batch are acknowledged.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaBatchConsumer implements BatchMessageListener<String, byte[]> {
+
+  private static final CompletableFuture<?> NOTHING_SENT = CompletableFuture.completedFuture(null);
+
+  private final KafkaConsumer kafkaConsumer;
+  private final ConsumerRecordRecoverer retryDlqRecoverer;
+  private final RetryDlqProducer retryDlqProducer;
+
+  @Override
+  public void onMessage(List<ConsumerRecord<String, byte[]>> consumerRecords) {
+    log.debug(BATCH_RECEIVED, consumerRecords.size());
+    List<CompletableFuture<?>> sends = new ArrayList<>(consumerRecords.size());
+    for (ConsumerRecord<String, byte[]> consumerRecord : consumerRecords) {
+      sends.add(consumeOrSendToRetryOrDlq(consumerRecord));
+    }
+    awaitSends(consumerRecords, sends, consumerRecords.size());
+  }
+
+  /**
+   * Processes one record of a batch.
+   *
+   * @param consumerRecord record to process.
+   * @return result of sending the record to the retry topic or to the DLQ if processing failed.
+   * @throws BatchListenerFailedException if the failed record could not be sent to the retry topic
+   *                                      or to the DLQ, or the circuit breaker doesn't let the
+   *                                      record through.
+   */
+  CompletableFuture<?> consumeOrSendToRetryOrDlq(ConsumerRecord<String, byte[]> consumerRecord) {
+    try {
+      kafkaConsumer.consumeMessage(consumerRecord);
+      return NOTHING_SENT;
+    } catch (CircuitOpenException ex) {
+      // The record stays in the main topic and is redelivered starting from this record.
+      throw new BatchListenerFailedException(CIRCUIT_IS_OPEN, ex, consumerRecord);
+    } catch (RuntimeException ex) {
+      return sendToRetryOrDlq(consumerRecord, ex);
+    }
+  }
+
+  /**
+   * Waits for acknowledgement of the sends made for the first records of the batch.
+   *
+   * @param consumerRecords records of the batch.
+   * @param sends           results of {@link #consumeOrSendToRetryOrDlq(ConsumerRecord)} by index
+   *                        of the record, null for the records that were not handled.
+   * @param toIndex         index of the first record, which sends are not checked.
+   * @throws BatchListenerFailedException for the first record that could not be sent.
+   */
+  void awaitSends(
+      List<ConsumerRecord<String, byte[]>> consumerRecords,
+      List<CompletableFuture<?>> sends,
+      int toIndex
+  ) {
+    for (int i = 0; i < toIndex; i++) {
+      CompletableFuture<?> send = sends.get(i);
+      if (send == null) {
+        continue;
+      }
+      try {
+        send.join();
+      } catch (CompletionException ex) {
+        // Offsets of the previous records get committed, the rest of the batch is redelivered.
+        throw new BatchListenerFailedException(FAILED_TO_ROUTE_RECORD, ex.getCause(),
+            consumerRecords.get(i));
+      }
+    }
+  }
+
+  private CompletableFuture<?> sendToRetryOrDlq(
+      ConsumerRecord<String, byte[]> consumerRecord,
+      Exception ex
+  ) {
+    try {
+      List<CompletableFuture<?>> sends = retryDlqProducer.captureSends(
+          () -> retryDlqRecoverer.accept(consumerRecord, ex));
+      if (sends.isEmpty()) {
+        // The recoverer has only logged an error of the send, the record must not be lost.
+        throw new IllegalStateException(FAILED_TO_ROUTE_RECORD);
+      }
+      return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+    } catch (RuntimeException recoveryEx) {
+      throw new BatchListenerFailedException(FAILED_TO_ROUTE_RECORD, recoveryEx, consumerRecord);
+    }
+  }
+}
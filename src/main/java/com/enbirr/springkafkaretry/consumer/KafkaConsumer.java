@@ -1,40 +1,106 @@
 package com.enbirr.springkafkaretry.consumer;
 
-import static com.enbirr.springkafkaretry.util.KafkaUtils.getRecordDetails;
-
-import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.circuitbreaker.ProcessingCircuitBreaker;
+import com.enbirr.springkafkaretry.configuration.KafkaListenerScalingConfiguration;
 import com.enbirr.springkafkaretry.constants.LogAndExceptionMessages;
+import com.enbirr.springkafkaretry.dedup.RecordDeduplicator;
+import com.enbirr.springkafkaretry.exception.KeyParkedException;
 import com.enbirr.springkafkaretry.exception.ProcessingException;
-import com.enbirr.springkafkaretry.service.ProcessingService;
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import com.enbirr.springkafkaretry.metrics.RetryMetrics;
+import com.enbirr.springkafkaretry.parking.KeyParking;
+import com.enbirr.springkafkaretry.pipeline.ProcessingPipeline;
+import com.enbirr.springkafkaretry.ratelimit.ProcessingRateLimiter;
+import com.enbirr.springkafkaretry.retry.RetryPolicies;
+import com.enbirr.springkafkaretry.util.RecordDetails;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Component;
 
+import java.util.function.ToIntFunction;
+
 @Component
 @RequiredArgsConstructor
-@Slf4j
 public class KafkaConsumer {
 
-  private final ProcessingService processingService;
-  private final KafkaCustomProperties kafkaProperties;
+  /**
+   * The retry topic configuration is bound to the main topic listener by this id. Listeners that
+   * are not managed by that configuration use it to route failed records in the same way.
+   */
+  public static final String MAIN_LISTENER_ID = "mainTopicListener";
 
-  @KafkaListener(topics = "#{'${kafka.topic}'}")
-  public void consumeMessage(ConsumerRecord<String, String> consumerRecord) {
-    String recordDetails = getRecordDetails(consumerRecord, kafkaProperties.getAttemptsMaxCount());
-    log.info(LogAndExceptionMessages.MESSAGE_RECEIVED, recordDetails, consumerRecord.value());
+  private final ProcessingPipeline<?> processingPipeline;
+  private final RetryPolicies retryPolicies;
+  private final RetryMetrics retryMetrics;
+  private final ProcessingCircuitBreaker circuitBreaker;
+  private final ProcessingRateLimiter rateLimiter;
+  private final RecordDeduplicator deduplicator;
+  private final KeyParking keyParking;
+  private final RecordLogger recordLogger;
+  // Created once: the policy of the record is resolved only if its details are logged
+  private final ToIntFunction<ConsumerRecord<?, ?>> maxAttemptsResolver = this::getMaxAttempts;
+
+  @KafkaListener(id = MAIN_LISTENER_ID, idIsGroup = false, topics = "#{'${kafka.topic}'}",
+      containerFactory = KafkaListenerScalingConfiguration.MAIN_TOPIC_LISTENER_FACTORY)
+  public void consumeMessage(ConsumerRecord<String, byte[]> consumerRecord) {
+    var recordDetails = RecordDetails.of(consumerRecord, maxAttemptsResolver);
+    recordDetails.putToMdc();
+    try {
+      recordLogger.logReceived(recordDetails, consumerRecord.value());
+      if (deduplicator.isAlreadyProcessed(recordDetails)) {
+        recordLogger.logAlreadyProcessed(recordDetails);
+        return;
+      }
+      if (keyParking.shouldPark(consumerRecord, recordDetails)) {
+        recordLogger.logParked(recordDetails);
+        throw new KeyParkedException(LogAndExceptionMessages.KEY_IS_PARKED);
+      }
+
+      String processedMsg = tryToProcess(consumerRecord, recordDetails);
+      deduplicator.markProcessed(recordDetails);
+      keyParking.onProcessed(consumerRecord, recordDetails);
+      recordLogger.logProcessed(recordDetails, processedMsg);
+    } finally {
+      RecordDetails.removeFromMdc();
+    }
+  }
 
-    String processedMsg = tryToProcess(consumerRecord.value(), recordDetails);
-    log.info(LogAndExceptionMessages.MESSAGE_PROCESSED, recordDetails, processedMsg);
+  private int getMaxAttempts(ConsumerRecord<?, ?> consumerRecord) {
+    return retryPolicies.getMaxAttempts(consumerRecord);
   }
 
-  private String tryToProcess(String message, String recordDetails) {
+  private String tryToProcess(
+      ConsumerRecord<String, byte[]> consumerRecord,
+      RecordDetails recordDetails
+  ) {
+    circuitBreaker.acquirePermission(consumerRecord);
+    boolean isPermissionSettled = false;
     try {
-      return processingService.truncateMessageInRiskyWay(message);
-    } catch (ProcessingException ex) {
-      log.error(LogAndExceptionMessages.MESSAGE_FAILED_TO_PROCESS, recordDetails, ex);
-      throw ex;
+      rateLimiter.acquire(consumerRecord);
+      long processingStart = System.nanoTime();
+      try {
+        String processedMsg = String.valueOf(processingPipeline.process(consumerRecord));
+        retryMetrics.recordProcessing(consumerRecord, System.nanoTime() - processingStart, null);
+        isPermissionSettled = true;
+        circuitBreaker.onSuccess(consumerRecord);
+        rateLimiter.onSuccess(consumerRecord);
+        return processedMsg;
+      } catch (ProcessingException ex) {
+        retryMetrics.recordProcessing(consumerRecord, System.nanoTime() - processingStart, ex);
+        isPermissionSettled = true;
+        circuitBreaker.onFailure(consumerRecord, ex);
+        rateLimiter.onFailure(consumerRecord, ex);
+        keyParking.onFailure(consumerRecord, recordDetails, ex);
+        recordLogger.logFailure(recordDetails, ex);
+        throw ex;
+      }
+    } finally {
+      // Neither outcome was counted: the pipeline has thrown something other than a processing
+      // exception (e.g. an Error of a stage), or recording the metrics has failed
+      if (!isPermissionSettled) {
+        circuitBreaker.releasePermission(consumerRecord);
+      }
     }
   }
 }
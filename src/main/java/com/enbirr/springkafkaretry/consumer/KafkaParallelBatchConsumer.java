@@ -0,0 +1,181 @@
+package com.enbirr.springkafkaretry.consumer;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.BATCH_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.COMPLETED_RECORDS_SKIPPED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.FAILED_TO_ROUTE_RECORD;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.BatchMessageListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Processes records of a batch from the main topic concurrently. Records with the same key are
+ * processed one after another in the order of the batch, records with different keys are
+ * processed in parallel. Records without key have no order to keep, so each of them is processed
+ * on its own.
+ * <p>
+ * The call returns only when the whole batch is handled and the sends of failed records are
+ * acknowledged, so the container commits offsets of completed records only. A record is completed
+ * when it's processed, or when it's sent to the retry topic or to the DLQ and the send is
+ * acknowledged. If a failed record could not be sent, the next records with the same key are not
+ * processed, and offsets are committed up to the lowest record of the batch that is not completed.
+ * <p>
+ * Records of other keys after that record are redelivered with the rest of the batch, even if they
+ * were already completed. Their offsets are remembered, and they are skipped when they come again,
+ * so they are neither processed nor published to the retry topic or to the DLQ twice.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaParallelBatchConsumer implements BatchMessageListener<String, byte[]> {
+
+  private static final CompletableFuture<?> SKIPPED = CompletableFuture.completedFuture(null);
+
+  private final KafkaBatchConsumer batchConsumer;
+  private final ExecutorService executor;
+  // Offsets of the completed records that are redelivered after a failed record. The listener is
+  // shared by the consumers of the container, each partition is consumed by one of them at a time.
+  private final Map<TopicPartition, NavigableSet<Long>> completedOffsets =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public void onMessage(List<ConsumerRecord<String, byte[]>> consumerRecords) {
+    log.debug(BATCH_RECEIVED, consumerRecords.size());
+    // Each task sets the results of its own records only
+    var sends = new AtomicReferenceArray<CompletableFuture<?>>(consumerRecords.size());
+    var failures = new AtomicReferenceArray<BatchListenerFailedException>(consumerRecords.size());
+    List<CompletableFuture<Void>> keyTasks = groupIndexesByKey(consumerRecords, sends).stream()
+        .map((List<Integer> keyIndexes) -> CompletableFuture.runAsync(
+            () -> consumeInOrder(consumerRecords, keyIndexes, sends, failures), executor))
+        .toList();
+    CompletableFuture.allOf(keyTasks.toArray(CompletableFuture[]::new)).join();
+
+    BatchListenerFailedException lowestFailure = null;
+    for (int i = 0; i < consumerRecords.size(); i++) {
+      BatchListenerFailedException failure = getFailure(consumerRecords, sends, failures, i);
+      if (failure == null && lowestFailure != null) {
+        rememberCompleted(consumerRecords.get(i));
+      } else if (failure != null && lowestFailure == null) {
+        lowestFailure = failure;
+      }
+    }
+    if (lowestFailure != null) {
+      // Offsets of the previous records get committed, the rest of the batch is redelivered.
+      throw lowestFailure;
+    }
+  }
+
+  private void consumeInOrder(
+      List<ConsumerRecord<String, byte[]>> consumerRecords,
+      List<Integer> keyIndexes,
+      AtomicReferenceArray<CompletableFuture<?>> sends,
+      AtomicReferenceArray<BatchListenerFailedException> failures
+  ) {
+    for (int index : keyIndexes) {
+      try {
+        sends.set(index, batchConsumer.consumeOrSendToRetryOrDlq(consumerRecords.get(index)));
+      } catch (BatchListenerFailedException ex) {
+        failures.set(index, ex);
+        // the next records with the same key must not overtake the failed one
+        return;
+      }
+    }
+  }
+
+  /**
+   * Waits for the send of the record if it was sent to the retry topic or to the DLQ.
+   *
+   * @return null if the record is completed, otherwise the failure the batch is redelivered by. A
+   * record that was not handled is behind a failed record of its key, so it's never the lowest.
+   */
+  private static BatchListenerFailedException getFailure(
+      List<ConsumerRecord<String, byte[]>> consumerRecords,
+      AtomicReferenceArray<CompletableFuture<?>> sends,
+      AtomicReferenceArray<BatchListenerFailedException> failures,
+      int index
+  ) {
+    CompletableFuture<?> send = sends.get(index);
+    if (send == null) {
+      return failures.get(index) != null
+          ? failures.get(index)
+          : new BatchListenerFailedException(FAILED_TO_ROUTE_RECORD, consumerRecords.get(index));
+    }
+    try {
+      send.join();
+      return null;
+    } catch (CompletionException ex) {
+      return new BatchListenerFailedException(FAILED_TO_ROUTE_RECORD, ex.getCause(),
+          consumerRecords.get(index));
+    }
+  }
+
+  /**
+   * Groups the records to process by key. The completed records of the previous batch are skipped,
+   * their offsets are forgotten: records below the batch are never redelivered again.
+   */
+  private List<List<Integer>> groupIndexesByKey(
+      List<ConsumerRecord<String, byte[]>> consumerRecords,
+      AtomicReferenceArray<CompletableFuture<?>> sends
+  ) {
+    Map<String, List<Integer>> indexesByKey = new LinkedHashMap<>();
+    List<List<Integer>> groups = new ArrayList<>();
+    int skippedCount = 0;
+    for (int i = 0; i < consumerRecords.size(); i++) {
+      ConsumerRecord<String, byte[]> consumerRecord = consumerRecords.get(i);
+      if (isCompleted(consumerRecord)) {
+        sends.set(i, SKIPPED);
+        skippedCount++;
+        continue;
+      }
+      String key = consumerRecord.key();
+      if (key == null) {
+        groups.add(List.of(i));
+      } else {
+        indexesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+      }
+    }
+    if (skippedCount > 0) {
+      log.debug(COMPLETED_RECORDS_SKIPPED, skippedCount);
+    }
+    groups.addAll(indexesByKey.values());
+    return groups;
+  }
+
+  private boolean isCompleted(ConsumerRecord<?, ?> consumerRecord) {
+    if (completedOffsets.isEmpty()) {
+      return false;
+    }
+    var partition = new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+    NavigableSet<Long> offsets = completedOffsets.get(partition);
+    if (offsets == null) {
+      return false;
+    }
+    offsets.headSet(consumerRecord.offset()).clear();
+    boolean isCompleted = offsets.remove(consumerRecord.offset());
+    if (offsets.isEmpty()) {
+      completedOffsets.remove(partition);
+    }
+    return isCompleted;
+  }
+
+  private void rememberCompleted(ConsumerRecord<?, ?> consumerRecord) {
+    completedOffsets.computeIfAbsent(
+            new TopicPartition(consumerRecord.topic(), consumerRecord.partition()),
+            partition -> new ConcurrentSkipListSet<>())
+        .add(consumerRecord.offset());
+  }
+}
@@ -0,0 +1,110 @@
+package com.enbirr.springkafkaretry.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Keys added during the last TTL, but no more than the capacity (the oldest keys are evicted
+ * first). Keys are kept in primitive arrays: a ring in the order of adding and an open addressing
+ * hash table of the ring indexes, so there are no allocations per key, and an entry takes 24 bytes.
+ * Not thread-safe.
+ */
+final class ProcessedKeysWindow {
+
+  private static final int EMPTY = -1;
+
+  // Ring of the keys in the order of adding: from the oldest to the newest one.
+  private final long[] keys;
+  private final long[] addedAtNanos;
+  private int oldest;
+  private int size;
+  // Linear probing hash table of the ring indexes. It's at most half full.
+  private final int[] slots;
+  private final int slotsMask;
+  private final long ttlNanos;
+
+  ProcessedKeysWindow(int capacity, long ttlNanos) {
+    this.keys = new long[capacity];
+    this.addedAtNanos = new long[capacity];
+    this.slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    this.slotsMask = slots.length - 1;
+    this.ttlNanos = ttlNanos;
+    Arrays.fill(slots, EMPTY);
+  }
+
+  boolean contains(long key, long nowNanos) {
+    int ringIndex = slots[findSlot(key)];
+    return ringIndex != EMPTY && nowNanos - addedAtNanos[ringIndex] < ttlNanos;
+  }
+
+  void add(long key, long nowNanos) {
+    evictExpired(nowNanos);
+    int slot = findSlot(key);
+    if (slots[slot] != EMPTY) {
+      return;
+    }
+    if (size == keys.length) {
+      evictOldest();
+      slot = findSlot(key);
+    }
+    int ringIndex = (oldest + size) % keys.length;
+    keys[ringIndex] = key;
+    addedAtNanos[ringIndex] = nowNanos;
+    slots[slot] = ringIndex;
+    size++;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return slot of the key or the empty slot where it would be placed.
+   */
+  private int findSlot(long key) {
+    int slot = hash(key) & slotsMask;
+    while (slots[slot] != EMPTY && keys[slots[slot]] != key) {
+      slot = (slot + 1) & slotsMask;
+    }
+    return slot;
+  }
+
+  private void evictExpired(long nowNanos) {
+    while (size > 0 && nowNanos - addedAtNanos[oldest] >= ttlNanos) {
+      evictOldest();
+    }
+  }
+
+  private void evictOldest() {
+    clearSlot(findSlot(keys[oldest]));
+    oldest = (oldest + 1) % keys.length;
+    size--;
+  }
+
+  /**
+   * Backward shift deletion: the next entries of the probe sequence are moved into the hole if
+   * they could be placed there, so lookups don't stop at it and no tombstones are needed.
+   */
+  private void clearSlot(int slot) {
+    int hole = slot;
+    int next = (hole + 1) & slotsMask;
+    while (slots[next] != EMPTY) {
+      int home = hash(keys[slots[next]]) & slotsMask;
+      if (((next - home) & slotsMask) >= ((next - hole) & slotsMask)) {
+        slots[hole] = slots[next];
+        hole = next;
+      }
+      next = (next + 1) & slotsMask;
+    }
+    slots[hole] = EMPTY;
+  }
+
+  static int hash(long key) {
+    // Finalizer of MurmurHash3: keys that differ only in the low bits get distant slots
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+}
@@ -0,0 +1,79 @@
+package com.enbirr.springkafkaretry.dedup;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.util.RecordDetails;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the records that were processed successfully, so their copies are skipped: records
+ * redelivered after a rebalance, or retry records that were published again because the commit
+ * failed after the publishing. The key of a record is its partition and offset in the main topic:
+ * retry records carry them in the original partition and offset headers.
+ * <p>
+ * The last records are kept exactly (see {@link ProcessedKeysWindow}). For larger windows, the
+ * Bloom filter could be enabled: it takes much less memory, but a false positive makes a record
+ * that was not processed to be skipped, so its false positive rate must be tiny.
+ */
+@Component
+public class RecordDeduplicator {
+
+  private final boolean enabled;
+  private final ProcessedKeysWindow processedKeys;
+  private final RotatingBloomFilter bloomFilter;
+  @Getter
+  private final AtomicLong hitsCount = new AtomicLong();
+  @Getter
+  private final AtomicLong missesCount = new AtomicLong();
+
+  public RecordDeduplicator(KafkaCustomProperties kafkaProperties) {
+    this.enabled = kafkaProperties.isDedupEnabled();
+    this.processedKeys = enabled
+        ? new ProcessedKeysWindow(kafkaProperties.getDedupWindowSize(),
+            TimeUnit.MILLISECONDS.toNanos(kafkaProperties.getDedupTtlMs()))
+        : null;
+    this.bloomFilter = enabled && kafkaProperties.isDedupBloomFilterEnabled()
+        ? new RotatingBloomFilter(kafkaProperties.getDedupBloomFilterExpectedRecords(),
+            kafkaProperties.getDedupBloomFilterFalsePositiveRate())
+        : null;
+  }
+
+  public boolean isAlreadyProcessed(RecordDetails recordDetails) {
+    if (!enabled) {
+      return false;
+    }
+    long key = recordDetails.getOriginalRecordId();
+    boolean processed;
+    synchronized (this) {
+      processed = processedKeys.contains(key, System.nanoTime())
+          || (bloomFilter != null && bloomFilter.mightContain(key));
+    }
+    (processed ? hitsCount : missesCount).incrementAndGet();
+    return processed;
+  }
+
+  public void markProcessed(RecordDetails recordDetails) {
+    if (!enabled) {
+      return;
+    }
+    long key = recordDetails.getOriginalRecordId();
+    synchronized (this) {
+      processedKeys.add(key, System.nanoTime());
+      if (bloomFilter != null) {
+        bloomFilter.put(key);
+      }
+    }
+  }
+
+  /**
+   * @return part of the checked records that were skipped as already processed.
+   */
+  public double getHitRate() {
+    long hits = hitsCount.get();
+    long lookups = hits + missesCount.get();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+}
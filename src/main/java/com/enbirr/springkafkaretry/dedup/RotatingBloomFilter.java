@@ -0,0 +1,70 @@
+package com.enbirr.springkafkaretry.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter of the last keys: when the current filter gets the expected count of keys, it
+ * becomes the previous one, and the older keys are dropped. So it remembers from 1 to 2 expected
+ * counts of the last keys. It takes about 3.6 bytes per key for the 1e-6 false positive rate (two
+ * filters - twice more). Not thread-safe.
+ */
+final class RotatingBloomFilter {
+
+  private static final double LN_2 = Math.log(2);
+
+  private final int expectedKeys;
+  private final int bitsCount;
+  private final int hashesCount;
+  private long[] currentBits;
+  private long[] previousBits;
+  private int currentKeys;
+
+  RotatingBloomFilter(int expectedKeys, double falsePositiveRate) {
+    this.expectedKeys = expectedKeys;
+    this.bitsCount = (int) Math.min(Integer.MAX_VALUE - Long.SIZE,
+        Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (LN_2 * LN_2)));
+    this.hashesCount = Math.max(1, (int) Math.round((double) bitsCount / expectedKeys * LN_2));
+    this.currentBits = new long[(bitsCount + Long.SIZE - 1) / Long.SIZE];
+    this.previousBits = new long[currentBits.length];
+  }
+
+  void put(long key) {
+    if (currentKeys == expectedKeys) {
+      long[] cleared = previousBits;
+      Arrays.fill(cleared, 0);
+      previousBits = currentBits;
+      currentBits = cleared;
+      currentKeys = 0;
+    }
+    long hash1 = ProcessedKeysWindow.hash(key);
+    long hash2 = ProcessedKeysWindow.hash(~key);
+    for (int i = 0; i < hashesCount; i++) {
+      int bit = bitIndex(hash1, hash2, i);
+      currentBits[bit >>> 6] |= 1L << bit;
+    }
+    currentKeys++;
+  }
+
+  boolean mightContain(long key) {
+    return mightContain(currentBits, key) || mightContain(previousBits, key);
+  }
+
+  private boolean mightContain(long[] bits, long key) {
+    long hash1 = ProcessedKeysWindow.hash(key);
+    long hash2 = ProcessedKeysWindow.hash(~key);
+    for (int i = 0; i < hashesCount; i++) {
+      int bit = bitIndex(hash1, hash2, i);
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Double hashing: k indexes are derived from two hashes.
+   */
+  private int bitIndex(long hash1, long hash2, int i) {
+    return (int) Math.floorMod(hash1 + i * hash2, (long) bitsCount);
+  }
+}
@@ -0,0 +1,13 @@
+package com.enbirr.springkafkaretry.exception;
+
+/**
+ * The record was not processed because the circuit breaker is open. It must not be sent to the
+ * retry topic: the record stays in the main topic and gets redelivered later.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+  public CircuitOpenException(String message) {
+    // Thrown for every record while the circuit is open, the stack trace says nothing new
+    super(message, null, true, false);
+  }
+}
@@ -0,0 +1,13 @@
+package com.enbirr.springkafkaretry.exception;
+
+/**
+ * The record was not processed because an earlier record with the same key is being retried. It's
+ * sent to the retry topic after that record without spending an attempt.
+ */
+public class KeyParkedException extends ProcessingException {
+
+  public KeyParkedException(String message) {
+    // Thrown for every later record of a failing key, the stack trace says nothing new
+    super(message, false);
+  }
+}
@@ -0,0 +1,12 @@
+package com.enbirr.springkafkaretry.exception;
+
+/**
+ * Value of the record could not be deserialized into the payload. The record goes straight to the
+ * DLQ: the same value would fail on every attempt.
+ */
+public class PayloadDeserializationException extends ProcessingFatalException {
+
+  public PayloadDeserializationException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -9,4 +9,14 @@ public class ProcessingException extends RuntimeException {
   public ProcessingException(String message, Throwable cause) {
     super(message, cause);
   }
+
+  /**
+   * @param writableStackTrace false to skip filling of the stack trace. It makes creating of the
+   *                           exception much cheaper, which matters when a lot of records fail in
+   *                           an expected way. Exception headers of the retry and DLQ records
+   *                           don't depend on the stack trace.
+   */
+  public ProcessingException(String message, boolean writableStackTrace) {
+    super(message, null, true, writableStackTrace);
+  }
 }
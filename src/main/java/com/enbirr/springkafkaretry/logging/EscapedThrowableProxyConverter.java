@@ -0,0 +1,66 @@
+package com.enbirr.springkafkaretry.logging;
+
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.StackTraceElementProxy;
+import org.springframework.boot.logging.logback.ExtendedWhitespaceThrowableProxyConverter;
+
+/**
+ * The %wEx converter of Spring Boot, which escapes the messages of the exception, its causes and
+ * suppressed exceptions the same way as the payloads (see {@link RecordLogger#escape(String)}).
+ * Messages often carry a part of the record (e.g. a JSON parsing error quotes the payload), so a
+ * record can't forge a log line through the stack trace either. Registered in logback-spring.xml.
+ */
+public class EscapedThrowableProxyConverter extends ExtendedWhitespaceThrowableProxyConverter {
+
+  @Override
+  protected String throwableProxyToString(IThrowableProxy throwableProxy) {
+    return super.throwableProxyToString(new EscapedThrowableProxy(throwableProxy));
+  }
+
+  private record EscapedThrowableProxy(IThrowableProxy throwableProxy) implements IThrowableProxy {
+
+    @Override
+    public String getMessage() {
+      return RecordLogger.escape(throwableProxy.getMessage());
+    }
+
+    @Override
+    public String getClassName() {
+      return throwableProxy.getClassName();
+    }
+
+    @Override
+    public StackTraceElementProxy[] getStackTraceElementProxyArray() {
+      return throwableProxy.getStackTraceElementProxyArray();
+    }
+
+    @Override
+    public int getCommonFrames() {
+      return throwableProxy.getCommonFrames();
+    }
+
+    @Override
+    public IThrowableProxy getCause() {
+      IThrowableProxy cause = throwableProxy.getCause();
+      return cause == null ? null : new EscapedThrowableProxy(cause);
+    }
+
+    @Override
+    public IThrowableProxy[] getSuppressed() {
+      IThrowableProxy[] suppressed = throwableProxy.getSuppressed();
+      if (suppressed == null) {
+        return null;
+      }
+      IThrowableProxy[] escaped = new IThrowableProxy[suppressed.length];
+      for (int i = 0; i < suppressed.length; i++) {
+        escaped[i] = new EscapedThrowableProxy(suppressed[i]);
+      }
+      return escaped;
+    }
+
+    @Override
+    public boolean isCyclic() {
+      return throwableProxy.isCyclic();
+    }
+  }
+}
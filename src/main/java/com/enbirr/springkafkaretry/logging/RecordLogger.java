@@ -0,0 +1,189 @@
+package com.enbirr.springkafkaretry.logging;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.INVALID_REDACT_PATTERN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.constants.LogAndExceptionMessages;
+import com.enbirr.springkafkaretry.util.RecordDetails;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Log lines of the record processing, written for each record and each attempt, so their volume
+ * is kept under control:
+ * <ul>
+ *   <li>Lines of the successful path are written only for a sample of the records. The decision is
+ *   made by the original record id, so all lines and all attempts of a sampled record are
+ *   logged.</li>
+ *   <li>Payloads are redacted and truncated, and only for the lines that are written.</li>
+ *   <li>Payloads are escaped, so a record can't close the quoted message of its line or forge
+ *   the next line (see logback-spring.xml). Messages of logged stack traces are escaped by
+ *   {@link EscapedThrowableProxyConverter}.</li>
+ *   <li>A failure is always logged, but its stack trace only once per window for the same
+ *   exception signature (see {@link StackTraceDeduplicator}). The next stack trace tells how many
+ *   were skipped.</li>
+ * </ul>
+ * Record coordinates are taken from the MDC (see {@link RecordDetails#putToMdc()}).
+ */
+@Component
+@Slf4j
+public class RecordLogger {
+
+  private static final String REDACTED = "***";
+  private static final String TRUNCATED = "...(%d more characters)";
+  private static final int MAX_SIGNATURES = 1024;
+
+  private final double successSampleRate;
+  private final int payloadMaxLength;
+  private final Pattern redactPattern;
+  private final StackTraceDeduplicator stackTraceDeduplicator;
+  @Getter
+  private final AtomicLong sampledOutCount = new AtomicLong();
+  @Getter
+  private final AtomicLong suppressedStackTracesCount = new AtomicLong();
+
+  public RecordLogger(KafkaCustomProperties kafkaProperties) {
+    this.successSampleRate = kafkaProperties.getLoggingSuccessSampleRate();
+    this.payloadMaxLength = kafkaProperties.getLoggingPayloadMaxLength();
+    this.redactPattern = compileRedactPattern(kafkaProperties.getLoggingPayloadRedactPattern());
+    this.stackTraceDeduplicator = new StackTraceDeduplicator(
+        TimeUnit.MILLISECONDS.toNanos(kafkaProperties.getLoggingStackTraceWindowMs()),
+        MAX_SIGNATURES);
+  }
+
+  /**
+   * @param payload value of the record, it's decoded only if the line is written.
+   */
+  public void logReceived(RecordDetails recordDetails, byte[] payload) {
+    if (log.isInfoEnabled() && isSampled(recordDetails)) {
+      log.info(LogAndExceptionMessages.MESSAGE_RECEIVED, recordDetails,
+          formatPayload(payload == null ? null : new String(payload, UTF_8)));
+    }
+  }
+
+  public void logProcessed(RecordDetails recordDetails, String result) {
+    if (log.isInfoEnabled() && isSampled(recordDetails)) {
+      log.info(LogAndExceptionMessages.MESSAGE_PROCESSED, recordDetails, formatPayload(result));
+    }
+  }
+
+  public void logAlreadyProcessed(RecordDetails recordDetails) {
+    if (log.isInfoEnabled() && isSampled(recordDetails)) {
+      log.info(LogAndExceptionMessages.MESSAGE_IS_ALREADY_PROCESSED, recordDetails);
+    }
+  }
+
+  public void logParked(RecordDetails recordDetails) {
+    if (log.isInfoEnabled() && isSampled(recordDetails)) {
+      log.info(LogAndExceptionMessages.MESSAGE_IS_PARKED, recordDetails);
+    }
+  }
+
+  public void logFailure(RecordDetails recordDetails, Exception exception) {
+    long signature = StackTraceDeduplicator.signatureOf(exception);
+    long suppressedCount;
+    synchronized (stackTraceDeduplicator) {
+      suppressedCount = stackTraceDeduplicator.tryLog(signature, System.nanoTime());
+    }
+    if (suppressedCount == StackTraceDeduplicator.SUPPRESSED) {
+      suppressedStackTracesCount.incrementAndGet();
+      log.error(LogAndExceptionMessages.MESSAGE_FAILED_TO_PROCESS_STACK_TRACE_SUPPRESSED,
+          recordDetails, exception.getClass().getName(), escape(exception.getMessage()));
+    } else if (suppressedCount > 0) {
+      log.error(LogAndExceptionMessages.MESSAGE_FAILED_TO_PROCESS_AGAIN, recordDetails,
+          suppressedCount, exception);
+    } else {
+      log.error(LogAndExceptionMessages.MESSAGE_FAILED_TO_PROCESS, recordDetails, exception);
+    }
+  }
+
+  boolean isSampled(RecordDetails recordDetails) {
+    if (successSampleRate >= 1) {
+      return true;
+    }
+    // Uniform value in [0, 1) mixed from the record id (the finalizer of SplittableRandom)
+    long mixed = recordDetails.getOriginalRecordId();
+    mixed = (mixed ^ (mixed >>> 30)) * 0xbf58476d1ce4e5b9L;
+    mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+    mixed ^= mixed >>> 31;
+    boolean sampled = (mixed >>> 11) * 0x1.0p-53 < successSampleRate;
+    if (!sampled) {
+      sampledOutCount.incrementAndGet();
+    }
+    return sampled;
+  }
+
+  String formatPayload(String payload) {
+    if (payload == null) {
+      return null;
+    }
+    if (payloadMaxLength == 0) {
+      return REDACTED;
+    }
+    // Redaction goes first, so truncation can't cut a secret into a part the patterns don't match
+    String formatted = redactPattern == null
+        ? payload
+        : redactPattern.matcher(payload).replaceAll(REDACTED);
+    if (payloadMaxLength > 0 && formatted.length() > payloadMaxLength) {
+      formatted = formatted.substring(0, payloadMaxLength)
+          + TRUNCATED.formatted(formatted.length() - payloadMaxLength);
+    }
+    // Escaping goes last, so truncation can't leave a backslash that would escape the quote
+    return escape(formatted);
+  }
+
+  /**
+   * @return null if nothing is redacted.
+   * @throws IllegalArgumentException if the regex is invalid, so the application doesn't start
+   *                                  and log the payloads unredacted.
+   */
+  private static Pattern compileRedactPattern(String regex) {
+    if (regex == null || regex.isBlank()) {
+      return null;
+    }
+    try {
+      return Pattern.compile(regex);
+    } catch (PatternSyntaxException ex) {
+      throw new IllegalArgumentException(String.format(INVALID_REDACT_PATTERN, regex), ex);
+    }
+  }
+
+  /**
+   * @return the text with escaped quotes, backslashes and line breaks, or the same instance if
+   * there is nothing to escape.
+   */
+  static String escape(String text) {
+    if (text == null) {
+      return null;
+    }
+    StringBuilder escaped = null;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      String replacement = switch (c) {
+        case '"' -> "\\\"";
+        case '\\' -> "\\\\";
+        case '\r' -> "\\r";
+        case '\n' -> "\\n";
+        default -> null;
+      };
+      if (replacement != null && escaped == null) {
+        escaped = new StringBuilder(text.length() + 16).append(text, 0, i);
+      }
+      if (escaped != null) {
+        if (replacement != null) {
+          escaped.append(replacement);
+        } else {
+          escaped.append(c);
+        }
+      }
+    }
+    return escaped == null ? text : escaped.toString();
+  }
+}
@@ -0,0 +1,77 @@
+package com.enbirr.springkafkaretry.logging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lets a stack trace of an exception signature be logged once per window. The signature is made of
+ * the exception classes of the cause chain and their top frames, so the same failure thrown for
+ * different records has the same signature, while messages (that usually contain record data)
+ * don't matter. Only the most recently seen signatures are kept. Not thread-safe.
+ */
+final class StackTraceDeduplicator {
+
+  static final long SUPPRESSED = -1;
+
+  private static final int SIGNATURE_FRAMES = 5;
+  private static final int SIGNATURE_CAUSES = 8;
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final long windowNanos;
+  // Signature -> {start of the window, count of stack traces suppressed in it}
+  private final Map<Long, long[]> windows;
+
+  StackTraceDeduplicator(long windowNanos, int maxSignatures) {
+    this.windowNanos = windowNanos;
+    this.windows = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+        return size() > maxSignatures;
+      }
+    };
+  }
+
+  /**
+   * @return {@link #SUPPRESSED} if a stack trace with this signature was already logged in the
+   * current window, otherwise the count of stack traces suppressed in the previous window.
+   */
+  long tryLog(long signature, long nowNanos) {
+    long[] window = windows.get(signature);
+    if (window == null) {
+      windows.put(signature, new long[]{nowNanos, 0});
+      return 0;
+    }
+    if (nowNanos - window[0] < windowNanos) {
+      window[1]++;
+      return SUPPRESSED;
+    }
+    long suppressedCount = window[1];
+    window[0] = nowNanos;
+    window[1] = 0;
+    return suppressedCount;
+  }
+
+  static long signatureOf(Throwable exception) {
+    long hash = FNV_OFFSET_BASIS;
+    Throwable current = exception;
+    for (int depth = 0; current != null && depth < SIGNATURE_CAUSES; depth++) {
+      hash = hash(hash, current.getClass().getName());
+      StackTraceElement[] stackTrace = current.getStackTrace();
+      for (int i = 0; i < Math.min(SIGNATURE_FRAMES, stackTrace.length); i++) {
+        hash = hash(hash, stackTrace[i].getClassName());
+        hash = hash(hash, stackTrace[i].getMethodName());
+        hash = (hash ^ stackTrace[i].getLineNumber()) * FNV_PRIME;
+      }
+      current = current.getCause() == current ? null : current.getCause();
+    }
+    return hash;
+  }
+
+  private static long hash(long hash, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,47 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.backlog.BacklogMonitor;
+import com.enbirr.springkafkaretry.backlog.RoleBacklog;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lag, drain time and retry backlog age computed by {@link BacklogMonitor}: signals for scaling
+ * the consumers.
+ */
+@Component
+@RequiredArgsConstructor
+public class BacklogMetrics implements MeterBinder {
+
+  public static final String LAG_GAUGE = "kafka.backlog.lag";
+  public static final String DRAIN_TIME_GAUGE = "kafka.backlog.drain-time";
+  public static final String RETRY_AGE_GAUGE = "kafka.backlog.retry-age";
+
+  private final BacklogMonitor backlogMonitor;
+
+  @Override
+  public void bindTo(MeterRegistry meterRegistry) {
+    for (TopicRole topicRole : TopicRole.values()) {
+      Gauge.builder(LAG_GAUGE, backlogMonitor,
+              monitor -> monitor.getSnapshot().get(topicRole).lag())
+          .description("Records not consumed yet by the consumer groups of the application")
+          .tag(RetryMetrics.TOPIC_ROLE_TAG, topicRole.getTagValue())
+          .register(meterRegistry);
+      Gauge.builder(DRAIN_TIME_GAUGE, backlogMonitor,
+              monitor -> monitor.getSnapshot().get(topicRole).drainSeconds())
+          .description("Estimated time until the lag is consumed, "
+              + RoleBacklog.NOT_DRAINING + " if it doesn't go down")
+          .tag(RetryMetrics.TOPIC_ROLE_TAG, topicRole.getTagValue())
+          .baseUnit("seconds")
+          .register(meterRegistry);
+    }
+    Gauge.builder(RETRY_AGE_GAUGE, backlogMonitor, monitor -> monitor.getSnapshot().retryAgeMs())
+        .description("How long the head records of the retry topics wait after their due time")
+        .baseUnit("milliseconds")
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,41 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.circuitbreaker.ProcessingCircuitBreaker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * State of the circuit breaker (0 - closed, 1 - open, 2 - half-open) and counts of the failures
+ * of the main topic records by type.
+ */
+@Component
+@RequiredArgsConstructor
+public class CircuitBreakerMetrics implements MeterBinder {
+
+  public static final String STATE_GAUGE = "kafka.circuit-breaker.state";
+  public static final String FAILURES_COUNTER = "kafka.circuit-breaker.failures";
+  public static final String FAILURE_TYPE_TAG = "type";
+
+  private final ProcessingCircuitBreaker circuitBreaker;
+
+  @Override
+  public void bindTo(MeterRegistry meterRegistry) {
+    Gauge.builder(STATE_GAUGE, circuitBreaker, breaker -> breaker.getState().ordinal())
+        .description("State of the circuit breaker: 0 - closed, 1 - open, 2 - half-open")
+        .register(meterRegistry);
+    FunctionCounter.builder(FAILURES_COUNTER, circuitBreaker.getRetryableFailuresCount(),
+            AtomicLong::get)
+        .tag(FAILURE_TYPE_TAG, "retryable")
+        .register(meterRegistry);
+    FunctionCounter.builder(FAILURES_COUNTER, circuitBreaker.getFatalFailuresCount(),
+            AtomicLong::get)
+        .tag(FAILURE_TYPE_TAG, "fatal")
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,39 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.dedup.RecordDeduplicator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts of the dedup lookups by result (hit - the record was skipped as already processed) and
+ * their hit rate.
+ */
+@Component
+@RequiredArgsConstructor
+public class DeduplicationMetrics implements MeterBinder {
+
+  public static final String LOOKUPS_COUNTER = "kafka.dedup.lookups";
+  public static final String HIT_RATE_GAUGE = "kafka.dedup.hit-rate";
+  public static final String RESULT_TAG = "result";
+
+  private final RecordDeduplicator deduplicator;
+
+  @Override
+  public void bindTo(MeterRegistry meterRegistry) {
+    FunctionCounter.builder(LOOKUPS_COUNTER, deduplicator.getHitsCount(), AtomicLong::get)
+        .tag(RESULT_TAG, "hit")
+        .register(meterRegistry);
+    FunctionCounter.builder(LOOKUPS_COUNTER, deduplicator.getMissesCount(), AtomicLong::get)
+        .tag(RESULT_TAG, "miss")
+        .register(meterRegistry);
+    Gauge.builder(HIT_RATE_GAUGE, deduplicator, RecordDeduplicator::getHitRate)
+        .description("Part of the records skipped as already processed")
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,36 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.parking.KeyParking;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count of the keys that have records in the retry topic and count of the records that were parked
+ * behind them instead of being processed.
+ */
+@Component
+@RequiredArgsConstructor
+public class KeyParkingMetrics implements MeterBinder {
+
+  public static final String PARKED_KEYS_GAUGE = "kafka.key-parking.parked-keys";
+  public static final String PARKED_RECORDS_COUNTER = "kafka.key-parking.parked-records";
+
+  private final KeyParking keyParking;
+
+  @Override
+  public void bindTo(MeterRegistry meterRegistry) {
+    Gauge.builder(PARKED_KEYS_GAUGE, keyParking, KeyParking::getParkedKeysCount)
+        .description("Keys with records waiting in the retry topic")
+        .register(meterRegistry);
+    FunctionCounter.builder(PARKED_RECORDS_COUNTER, keyParking.getParkedRecordsCount(),
+            AtomicLong::get)
+        .description("Records sent to the retry topic behind an earlier record of their key")
+        .register(meterRegistry);
+  }
+}
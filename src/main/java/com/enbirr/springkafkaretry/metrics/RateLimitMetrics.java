@@ -0,0 +1,32 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.ratelimit.ProcessingRateLimiter;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Current processing rate limits of the main and the retry topics.
+ */
+@Component
+@RequiredArgsConstructor
+public class RateLimitMetrics implements MeterBinder {
+
+  public static final String RATE_LIMIT_GAUGE = "kafka.rate-limit.permits-per-second";
+
+  private final ProcessingRateLimiter rateLimiter;
+
+  @Override
+  public void bindTo(MeterRegistry meterRegistry) {
+    for (TopicRole topicRole : new TopicRole[] {TopicRole.MAIN, TopicRole.RETRY}) {
+      Gauge.builder(RATE_LIMIT_GAUGE, rateLimiter,
+              limiter -> limiter.getPermitsPerSecond(topicRole))
+          .description("Max count of records processed per second")
+          .tag(RetryMetrics.TOPIC_ROLE_TAG, topicRole.getTagValue())
+          .register(meterRegistry);
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Log lines that were not written by {@link RecordLogger}: successful records left out of the
+ * sample and failures logged without a stack trace. Failures themselves are counted by
+ * {@link RetryMetrics#PROCESSING_TIMER}.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecordLoggingMetrics implements MeterBinder {
+
+  public static final String SAMPLED_OUT_COUNTER = "kafka.log.sampled-out";
+  public static final String SUPPRESSED_STACK_TRACES_COUNTER = "kafka.log.suppressed-stack-traces";
+
+  private final RecordLogger recordLogger;
+
+  @Override
+  public void bindTo(MeterRegistry meterRegistry) {
+    FunctionCounter.builder(SAMPLED_OUT_COUNTER, recordLogger.getSampledOutCount(), AtomicLong::get)
+        .description("Log lines of successfully processed records left out of the sample")
+        .register(meterRegistry);
+    FunctionCounter.builder(SUPPRESSED_STACK_TRACES_COUNTER,
+            recordLogger.getSuppressedStackTracesCount(), AtomicLong::get)
+        .description("Processing failures logged without a stack trace: the same one was logged "
+            + "recently")
+        .register(meterRegistry);
+  }
+}
@@ -0,0 +1,91 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.EXCEPTION_TAG;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.PROCESSING_TIMER;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.PUBLISHED_COUNTER;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.TOPIC_ROLE_TAG;
+
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shows how much extra work failed records cause. Amplification is the count of all processing
+ * attempts divided by the count of attempts from the main topic: 1.0 means no retries at all.
+ * <p>
+ * The endpoint id is "retries", it's exposed over JMX by default (see application.properties).
+ */
+@Component
+@Endpoint(id = "retries")
+@RequiredArgsConstructor
+public class RetryAmplificationEndpoint {
+
+  private final MeterRegistry meterRegistry;
+
+  @ReadOperation
+  public RetryAmplification retryAmplification() {
+    long mainTopicAttempts = countAttempts(TopicRole.MAIN);
+    long retryTopicAttempts = countAttempts(TopicRole.RETRY);
+    long sentToRetry = countPublished(TopicRole.RETRY);
+    long sentToDlq = countPublished(TopicRole.DLQ);
+
+    Map<String, Long> sentByException = new TreeMap<>();
+    for (Counter counter : meterRegistry.find(PUBLISHED_COUNTER).counters()) {
+      sentByException.merge(counter.getId().getTag(EXCEPTION_TAG), (long) counter.count(),
+          Long::sum);
+    }
+
+    return new RetryAmplification(
+        mainTopicAttempts,
+        retryTopicAttempts,
+        sentToRetry,
+        sentToDlq,
+        divide(mainTopicAttempts + retryTopicAttempts, mainTopicAttempts),
+        divide(sentToDlq, mainTopicAttempts),
+        sentByException);
+  }
+
+  private long countAttempts(TopicRole topicRole) {
+    return meterRegistry.find(PROCESSING_TIMER)
+        .tag(TOPIC_ROLE_TAG, topicRole.getTagValue())
+        .timers().stream()
+        .mapToLong(Timer::count)
+        .sum();
+  }
+
+  private long countPublished(TopicRole topicRole) {
+    return (long) meterRegistry.find(PUBLISHED_COUNTER)
+        .tag(TOPIC_ROLE_TAG, topicRole.getTagValue())
+        .counters().stream()
+        .mapToDouble(Counter::count)
+        .sum();
+  }
+
+  private static double divide(long dividend, long divisor) {
+    return divisor == 0 ? 0 : (double) dividend / divisor;
+  }
+
+  /**
+   * @param amplification all attempts count per a record from the main topic.
+   * @param dlqRate       part of the main topic records that ended up in the DLQ.
+   */
+  public record RetryAmplification(
+      long mainTopicAttempts,
+      long retryTopicAttempts,
+      long sentToRetry,
+      long sentToDlq,
+      double amplification,
+      double dlqRate,
+      Map<String, Long> sentByException
+  ) {
+
+  }
+}
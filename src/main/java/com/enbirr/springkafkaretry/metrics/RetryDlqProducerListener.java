@@ -0,0 +1,32 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.support.LoggingProducerListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts records that were successfully sent to the retry topic or to the DLQ. Spring Boot sets
+ * this listener into the auto-configured KafkaTemplate instead of the default
+ * {@link LoggingProducerListener}, so send errors are still logged.
+ */
+@Component
+@RequiredArgsConstructor
+public class RetryDlqProducerListener extends LoggingProducerListener<Object, Object> {
+
+  private final RetryMetrics retryMetrics;
+  private final KafkaCustomProperties kafkaProperties;
+
+  @Override
+  public void onSuccess(ProducerRecord<Object, Object> producerRecord, RecordMetadata metadata) {
+    super.onSuccess(producerRecord, metadata);
+    if (TopicRole.of(producerRecord.topic(), kafkaProperties) != TopicRole.MAIN) {
+      retryMetrics.recordPublished(producerRecord.topic(),
+          KafkaUtils.getExceptionFqcn(producerRecord.headers()));
+    }
+  }
+}
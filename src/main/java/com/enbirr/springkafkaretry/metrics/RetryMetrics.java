@@ -0,0 +1,128 @@
+package com.enbirr.springkafkaretry.metrics;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the retry pipeline:
+ * <ul>
+ *   <li>processing time of a record per topic role, attempt number and outcome;</li>
+ *   <li>delay between producing of the original record and its successful processing;</li>
+ *   <li>count of records sent to the retry topic and to the DLQ per exception class.</li>
+ * </ul>
+ */
+@Component
+@RequiredArgsConstructor
+public class RetryMetrics {
+
+  public static final String PROCESSING_TIMER = "kafka.record.processing";
+  public static final String END_TO_END_DELAY_TIMER = "kafka.record.end-to-end.delay";
+  public static final String PUBLISHED_COUNTER = "kafka.record.published";
+  public static final String TOPIC_ROLE_TAG = "topic.role";
+  public static final String ATTEMPT_TAG = "attempt";
+  public static final String OUTCOME_TAG = "outcome";
+  public static final String EXCEPTION_TAG = "exception";
+  public static final String SUCCESS_OUTCOME = "success";
+  public static final String FAILURE_OUTCOME = "failure";
+  public static final String NO_EXCEPTION = "none";
+
+  private final MeterRegistry meterRegistry;
+  private final KafkaCustomProperties kafkaProperties;
+  // Meters are looked up by their tags once, the registry builds the ids of them on each lookup.
+  // Tag values are bounded: attempts by the retry policies, exceptions by the processing code.
+  private final Map<ProcessingTags, Timer> processingTimers = new ConcurrentHashMap<>();
+  private final Map<ProcessingTags, Timer> endToEndDelayTimers = new ConcurrentHashMap<>();
+  private final Map<PublishedTags, Counter> publishedCounters = new ConcurrentHashMap<>();
+
+  /**
+   * @param consumerRecord   processed record.
+   * @param durationNanos    processing time.
+   * @param failureException exception thrown while processing, or null if processing succeeded.
+   */
+  public void recordProcessing(
+      ConsumerRecord<?, ?> consumerRecord,
+      long durationNanos,
+      Exception failureException
+  ) {
+    String topicRole = TopicRole.of(consumerRecord.topic(), kafkaProperties).getTagValue();
+    int attempt = KafkaUtils.getAttemptNumber(consumerRecord);
+    processingTimers.computeIfAbsent(
+            new ProcessingTags(topicRole, attempt, getExceptionTagValue(failureException)),
+            this::registerProcessingTimer)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+
+    if (failureException == null) {
+      long endToEndDelayMs = System.currentTimeMillis()
+          - KafkaUtils.getOriginalTimestamp(consumerRecord);
+      endToEndDelayTimers.computeIfAbsent(new ProcessingTags(topicRole, attempt, NO_EXCEPTION),
+              this::registerEndToEndDelayTimer)
+          .record(Math.max(endToEndDelayMs, 0), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * @param topic              the retry topic or the DLQ the record was sent to.
+   * @param exceptionClassName class name from the exception header of the record.
+   */
+  public void recordPublished(String topic, String exceptionClassName) {
+    publishedCounters.computeIfAbsent(
+            new PublishedTags(TopicRole.of(topic, kafkaProperties).getTagValue(),
+                exceptionClassName == null ? NO_EXCEPTION : exceptionClassName),
+            this::registerPublishedCounter)
+        .increment();
+  }
+
+  private Timer registerProcessingTimer(ProcessingTags tags) {
+    return Timer.builder(PROCESSING_TIMER)
+        .description("Time of processing a record by the listener")
+        .tag(TOPIC_ROLE_TAG, tags.topicRole())
+        .tag(ATTEMPT_TAG, String.valueOf(tags.attempt()))
+        .tag(OUTCOME_TAG, NO_EXCEPTION.equals(tags.exception()) ? SUCCESS_OUTCOME : FAILURE_OUTCOME)
+        .tag(EXCEPTION_TAG, tags.exception())
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private Timer registerEndToEndDelayTimer(ProcessingTags tags) {
+    return Timer.builder(END_TO_END_DELAY_TIMER)
+        .description("Time from producing of the original record to its successful processing")
+        .tag(TOPIC_ROLE_TAG, tags.topicRole())
+        .tag(ATTEMPT_TAG, String.valueOf(tags.attempt()))
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private Counter registerPublishedCounter(PublishedTags tags) {
+    return Counter.builder(PUBLISHED_COUNTER)
+        .description("Count of failed records sent to the retry topic or to the DLQ")
+        .tag(TOPIC_ROLE_TAG, tags.topicRole())
+        .tag(EXCEPTION_TAG, tags.exception())
+        .register(meterRegistry);
+  }
+
+  private static String getExceptionTagValue(Exception exception) {
+    return exception == null
+        ? NO_EXCEPTION
+        : KafkaUtils.findInformativeExceptionInCauseChain(exception).getClass().getName();
+  }
+
+  /**
+   * The outcome tag follows from the exception: the processing failed if there is one.
+   */
+  private record ProcessingTags(String topicRole, int attempt, String exception) {
+  }
+
+  private record PublishedTags(String topicRole, String exception) {
+  }
+}
@@ -0,0 +1,254 @@
+package com.enbirr.springkafkaretry.parking;
+
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.consumer.KafkaConsumer;
+import com.enbirr.springkafkaretry.exception.KeyParkedException;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import com.enbirr.springkafkaretry.util.RecordDetails;
+import lombok.Getter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer.SingleRecordHeader;
+import org.springframework.kafka.retrytopic.DestinationTopic;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps records with the same key in order while one of them is being retried. When a record of
+ * the main topic is sent to the retry topic, its key gets parked: later records of the key are not
+ * processed, they go to the retry topic right after it (see {@link KeyParkedException}). In the
+ * retry topic, only the head record of a parked key is processed, the others are sent to the retry
+ * topic again behind it. Records that wait in this way don't spend their attempts. The key is
+ * released when all its records have left the retry topic: processed or sent to the DLQ.
+ * <p>
+ * The index is kept in memory of the instance, so the order is kept while the main topic partition
+ * and the retry topic partition of the key are consumed by the same instance. Keys are parked by
+ * the record listeners and by the batch listener (including its parallel and exactly-once modes),
+ * not by the reactive pipeline.
+ * <p>
+ * In exactly-once mode, copies of a rolled back transaction never reach the retry topic, and its
+ * records are redelivered. So changes of the index made in the transaction are undone on rollback,
+ * otherwise the key would stay parked behind records that don't exist until the TTL.
+ */
+@Component
+public class KeyParking {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final boolean enabled;
+  private final KafkaCustomProperties kafkaProperties;
+  private final DestinationTopicResolver destinationTopicResolver;
+  private final ParkedKeysIndex parkedKeys;
+  @Getter
+  private final AtomicLong parkedRecordsCount = new AtomicLong();
+
+  public KeyParking(
+      KafkaCustomProperties kafkaProperties,
+      DestinationTopicResolver destinationTopicResolver
+  ) {
+    this.enabled = kafkaProperties.isKeyParkingEnabled();
+    this.kafkaProperties = kafkaProperties;
+    this.destinationTopicResolver = destinationTopicResolver;
+    this.parkedKeys = enabled
+        ? new ParkedKeysIndex(kafkaProperties.getKeyParkingMaxKeys(),
+            TimeUnit.MILLISECONDS.toNanos(kafkaProperties.getKeyParkingTtlMs()))
+        : null;
+  }
+
+  /**
+   * @return true if the record has to wait for an earlier record of its key instead of being
+   * processed.
+   */
+  public boolean shouldPark(ConsumerRecord<?, ?> consumerRecord, RecordDetails recordDetails) {
+    if (!enabled || consumerRecord.key() == null) {
+      return false;
+    }
+    long keyHash = hash(consumerRecord.key());
+    boolean parked;
+    synchronized (this) {
+      long now = System.nanoTime();
+      int slot = parkedKeys.find(keyHash, now);
+      if (slot == ParkedKeysIndex.NOT_FOUND) {
+        parked = false;
+      } else if (isMainTopic(consumerRecord)) {
+        parkedKeys.addInFlight(slot, now);
+        parked = true;
+        undoOnRollback(() -> removeInFlight(keyHash));
+      } else {
+        long recordId = recordDetails.getOriginalRecordId();
+        long head = parkedKeys.getHead(slot);
+        if (head == ParkedKeysIndex.NO_HEAD) {
+          // The previous head has left, records of the key come from the retry topic in order
+          parkedKeys.setHead(slot, recordId, now);
+        }
+        parked = head != ParkedKeysIndex.NO_HEAD && head != recordId;
+      }
+    }
+    if (parked) {
+      parkedRecordsCount.incrementAndGet();
+    }
+    return parked;
+  }
+
+  public void onProcessed(ConsumerRecord<?, ?> consumerRecord, RecordDetails recordDetails) {
+    if (enabled && consumerRecord.key() != null && !isMainTopic(consumerRecord)) {
+      releaseHead(consumerRecord, recordDetails);
+    }
+  }
+
+  /**
+   * Parks the key of a main topic record that goes to the retry topic, releases the head of a
+   * retry topic record that goes to the DLQ. The destination is resolved in the same way as the
+   * recoverer does it.
+   */
+  public void onFailure(
+      ConsumerRecord<?, ?> consumerRecord,
+      RecordDetails recordDetails,
+      Exception exception
+  ) {
+    if (!enabled || consumerRecord.key() == null) {
+      return;
+    }
+    DestinationTopic destination = destinationTopicResolver.resolveDestinationTopic(
+        KafkaConsumer.MAIN_LISTENER_ID, consumerRecord.topic(), recordDetails.getAttemptNumber(),
+        exception, KafkaUtils.getOriginalTimestamp(consumerRecord));
+    boolean goesToRetryTopic = !destination.isDltTopic() && !destination.isNoOpsTopic();
+
+    if (!isMainTopic(consumerRecord)) {
+      if (!goesToRetryTopic) {
+        releaseHead(consumerRecord, recordDetails);
+      }
+      return;
+    }
+    if (goesToRetryTopic) {
+      long keyHash = hash(consumerRecord.key());
+      synchronized (this) {
+        long now = System.nanoTime();
+        int slot = parkedKeys.find(keyHash, now);
+        if (slot == ParkedKeysIndex.NOT_FOUND) {
+          // If the index is full, the key isn't parked and its order isn't kept
+          if (!parkedKeys.add(keyHash, recordDetails.getOriginalRecordId(), now)) {
+            return;
+          }
+        } else {
+          parkedKeys.addInFlight(slot, now);
+        }
+      }
+      undoOnRollback(() -> removeInFlight(keyHash));
+    }
+  }
+
+  public synchronized int getParkedKeysCount() {
+    return enabled ? parkedKeys.size() : 0;
+  }
+
+  /**
+   * Headers function of the recoverer: a parked record keeps its attempts header, so waiting for
+   * the earlier record of its key doesn't bring it closer to the DLQ.
+   *
+   * @see org.springframework.kafka.listener.DeadLetterPublishingRecoverer#addHeadersFunction
+   */
+  public static Headers keepAttemptsOfParkedRecord(
+      ConsumerRecord<?, ?> parkedRecord,
+      Exception exception
+  ) {
+    var headers = new RecordHeaders();
+    if (KafkaUtils.findInformativeExceptionInCauseChain(exception) instanceof KeyParkedException) {
+      byte[] attempt = ByteBuffer.allocate(Integer.BYTES)
+          .putInt(KafkaUtils.getAttemptNumber(parkedRecord))
+          .array();
+      headers.add(new SingleRecordHeader(DEFAULT_HEADER_ATTEMPTS, attempt));
+    }
+    return headers;
+  }
+
+  private void releaseHead(ConsumerRecord<?, ?> consumerRecord, RecordDetails recordDetails) {
+    long keyHash = hash(consumerRecord.key());
+    long recordId = recordDetails.getOriginalRecordId();
+    synchronized (this) {
+      long now = System.nanoTime();
+      int slot = parkedKeys.find(keyHash, now);
+      if (slot == ParkedKeysIndex.NOT_FOUND || parkedKeys.getHead(slot) != recordId) {
+        return;
+      }
+      parkedKeys.removeHead(slot, now);
+    }
+    // The record is redelivered from the retry topic and goes first again
+    undoOnRollback(() -> restoreHead(keyHash, recordId));
+  }
+
+  private synchronized void removeInFlight(long keyHash) {
+    long now = System.nanoTime();
+    int slot = parkedKeys.find(keyHash, now);
+    if (slot != ParkedKeysIndex.NOT_FOUND) {
+      parkedKeys.removeInFlight(slot, now);
+    }
+  }
+
+  private synchronized void restoreHead(long keyHash, long recordId) {
+    long now = System.nanoTime();
+    int slot = parkedKeys.find(keyHash, now);
+    if (slot == ParkedKeysIndex.NOT_FOUND) {
+      parkedKeys.add(keyHash, recordId, now);
+      return;
+    }
+    parkedKeys.addInFlight(slot, now);
+    if (parkedKeys.getHead(slot) == ParkedKeysIndex.NO_HEAD) {
+      parkedKeys.setHead(slot, recordId, now);
+    }
+  }
+
+  /**
+   * Runs the action if the transaction of the listener container is rolled back. Without a
+   * transaction, the change of the index is kept.
+   */
+  private static void undoOnRollback(Runnable undo) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        if (status != STATUS_COMMITTED) {
+          undo.run();
+        }
+      }
+    });
+  }
+
+  private boolean isMainTopic(ConsumerRecord<?, ?> consumerRecord) {
+    return TopicRole.of(consumerRecord.topic(), kafkaProperties) == TopicRole.MAIN;
+  }
+
+  /**
+   * 64-bit FNV-1a hash of the key, without allocations for String keys. Keys with the same hash
+   * share the entry: a collision only makes a record wait without a need.
+   */
+  static long hash(Object key) {
+    long hash = FNV_OFFSET_BASIS;
+    if (key instanceof String stringKey) {
+      for (int i = 0; i < stringKey.length(); i++) {
+        hash = (hash ^ stringKey.charAt(i)) * FNV_PRIME;
+      }
+    } else if (key instanceof byte[] bytesKey) {
+      for (byte b : bytesKey) {
+        hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+      }
+    } else {
+      hash = (hash ^ key.hashCode()) * FNV_PRIME;
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,160 @@
+package com.enbirr.springkafkaretry.parking;
+
+/**
+ * Keys with records in the retry topic: count of such records and the record that goes first
+ * (the head). Entries are kept in primitive arrays of an open addressing hash table, so there are
+ * no allocations per key, and an entry takes 28 bytes. An entry that wasn't touched during the TTL
+ * is dropped, e.g. when the retry records of the key are consumed by another instance after a
+ * rebalance. Not thread-safe.
+ */
+final class ParkedKeysIndex {
+
+  static final int NOT_FOUND = -1;
+  static final long NO_HEAD = -1;
+
+  private final long[] keyHashes;
+  // 0 marks an empty slot: a key is tracked while it has at least one record in flight.
+  private final int[] inFlightCounts;
+  private final long[] heads;
+  private final long[] touchedAtNanos;
+  private final int slotsMask;
+  private final int maxKeys;
+  private final long ttlNanos;
+  private int size;
+
+  ParkedKeysIndex(int maxKeys, long ttlNanos) {
+    // The table is at most half full
+    int slotsCount = Integer.highestOneBit(maxKeys * 2 - 1) << 1;
+    this.keyHashes = new long[slotsCount];
+    this.inFlightCounts = new int[slotsCount];
+    this.heads = new long[slotsCount];
+    this.touchedAtNanos = new long[slotsCount];
+    this.slotsMask = slotsCount - 1;
+    this.maxKeys = maxKeys;
+    this.ttlNanos = ttlNanos;
+  }
+
+  /**
+   * @return slot of the key, or {@link #NOT_FOUND} if the key isn't tracked or its entry expired.
+   */
+  int find(long keyHash, long nowNanos) {
+    int slot = findSlot(keyHash);
+    if (inFlightCounts[slot] == 0) {
+      return NOT_FOUND;
+    }
+    if (nowNanos - touchedAtNanos[slot] >= ttlNanos) {
+      remove(slot);
+      return NOT_FOUND;
+    }
+    return slot;
+  }
+
+  /**
+   * Starts tracking the key with a single record in flight.
+   *
+   * @return false if there is no room for one more key.
+   */
+  boolean add(long keyHash, long headRecordId, long nowNanos) {
+    if (size == maxKeys) {
+      removeExpired(nowNanos);
+      if (size == maxKeys) {
+        return false;
+      }
+    }
+    int slot = findSlot(keyHash);
+    keyHashes[slot] = keyHash;
+    inFlightCounts[slot] = 1;
+    heads[slot] = headRecordId;
+    touchedAtNanos[slot] = nowNanos;
+    size++;
+    return true;
+  }
+
+  void addInFlight(int slot, long nowNanos) {
+    inFlightCounts[slot]++;
+    touchedAtNanos[slot] = nowNanos;
+  }
+
+  /**
+   * A record counted in flight has not reached the retry topic. The key is released when it has no
+   * more records in flight.
+   */
+  void removeInFlight(int slot, long nowNanos) {
+    if (--inFlightCounts[slot] == 0) {
+      remove(slot);
+      return;
+    }
+    touchedAtNanos[slot] = nowNanos;
+  }
+
+  /**
+   * The head record has left the retry topic: the next record of the key that comes from the
+   * retry topic becomes the head. The key is released when it has no more records in flight.
+   */
+  void removeHead(int slot, long nowNanos) {
+    if (--inFlightCounts[slot] == 0) {
+      remove(slot);
+      return;
+    }
+    heads[slot] = NO_HEAD;
+    touchedAtNanos[slot] = nowNanos;
+  }
+
+  long getHead(int slot) {
+    return heads[slot];
+  }
+
+  void setHead(int slot, long headRecordId, long nowNanos) {
+    heads[slot] = headRecordId;
+    touchedAtNanos[slot] = nowNanos;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return slot of the key or the empty slot where it would be placed.
+   */
+  private int findSlot(long keyHash) {
+    int slot = slotOf(keyHash);
+    while (inFlightCounts[slot] != 0 && keyHashes[slot] != keyHash) {
+      slot = (slot + 1) & slotsMask;
+    }
+    return slot;
+  }
+
+  private void removeExpired(long nowNanos) {
+    for (int slot = 0; slot <= slotsMask; slot++) {
+      // Removal shifts the next entries back, so the same slot is checked again
+      while (inFlightCounts[slot] != 0 && nowNanos - touchedAtNanos[slot] >= ttlNanos) {
+        remove(slot);
+      }
+    }
+  }
+
+  /**
+   * Backward shift deletion: entries after the removed one are moved closer to their home slots,
+   * so lookups never stop at a hole too early.
+   */
+  private void remove(int slot) {
+    int hole = slot;
+    for (int next = (hole + 1) & slotsMask; inFlightCounts[next] != 0;
+        next = (next + 1) & slotsMask) {
+      int home = slotOf(keyHashes[next]);
+      if (((next - home) & slotsMask) >= ((next - hole) & slotsMask)) {
+        keyHashes[hole] = keyHashes[next];
+        inFlightCounts[hole] = inFlightCounts[next];
+        heads[hole] = heads[next];
+        touchedAtNanos[hole] = touchedAtNanos[next];
+        hole = next;
+      }
+    }
+    inFlightCounts[hole] = 0;
+    size--;
+  }
+
+  private int slotOf(long keyHash) {
+    return (int) (keyHash ^ (keyHash >>> 32)) & slotsMask;
+  }
+}
@@ -0,0 +1,25 @@
+package com.enbirr.springkafkaretry.pipeline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Deserializes JSON payloads, e.g. for the pipeline of the records with JSON values:
+ * {@code new JsonPayloadDeserializer<>(objectMapper, Order.class)}.
+ *
+ * @param <T> type of the payload.
+ */
+public class JsonPayloadDeserializer<T> implements PayloadDeserializer<T> {
+
+  private final ObjectMapper objectMapper;
+  private final Class<T> payloadType;
+
+  public JsonPayloadDeserializer(ObjectMapper objectMapper, Class<T> payloadType) {
+    this.objectMapper = objectMapper;
+    this.payloadType = payloadType;
+  }
+
+  @Override
+  public T deserialize(byte[] value) throws Exception {
+    return objectMapper.readValue(value, payloadType);
+  }
+}
@@ -0,0 +1,16 @@
+package com.enbirr.springkafkaretry.pipeline;
+
+/**
+ * Converts the value of a record into the typed payload the processing stages work with. It's
+ * called once per record, before the first stage, with the bytes read by the consumer (restored if
+ * the value was compressed or offloaded), so a payload is not decoded into a string just to be
+ * parsed again. A payload that could not be deserialized is
+ * sent straight to the DLQ: retrying it would fail in the same way.
+ *
+ * @param <T> type of the payload.
+ */
+@FunctionalInterface
+public interface PayloadDeserializer<T> {
+
+  T deserialize(byte[] value) throws Exception;
+}
@@ -0,0 +1,83 @@
+package com.enbirr.springkafkaretry.pipeline;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PAYLOAD_DESERIALIZATION_FAILED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_STAGE_FAILED;
+
+import com.enbirr.springkafkaretry.exception.PayloadDeserializationException;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Deserializes the value of a record once, straight from the bytes read by the consumer, and
+ * passes the typed payload through the ordered processing stages.
+ * <p>
+ * Failures are turned into the exceptions the retry topic configuration routes by: a payload that
+ * could not be deserialized - {@link PayloadDeserializationException} (straight to the DLQ), a
+ * failure of a stage - {@link ProcessingException} or {@link ProcessingFatalException} by the
+ * classification of the stage. Processing exceptions thrown by a stage itself are kept as they
+ * are, so retry policies of their classes still apply.
+ *
+ * @param <T> type of the payload.
+ */
+public class ProcessingPipeline<T> {
+
+  private final PayloadDeserializer<T> payloadDeserializer;
+  private final List<ProcessingStage<T>> stages;
+
+  public ProcessingPipeline(PayloadDeserializer<T> payloadDeserializer,
+      List<ProcessingStage<T>> stages) {
+    this.payloadDeserializer = payloadDeserializer;
+    this.stages = List.copyOf(stages);
+  }
+
+  /**
+   * @return payload returned by the last stage.
+   * @throws ProcessingException if the record could not be processed.
+   */
+  public T process(ConsumerRecord<?, byte[]> consumerRecord) {
+    T payload = deserialize(consumerRecord);
+    for (ProcessingStage<T> stage : stages) {
+      try {
+        payload = stage.process(payload, consumerRecord);
+      } catch (Exception ex) {
+        throw classify(stage, ex);
+      }
+    }
+    return payload;
+  }
+
+  /**
+   * Non-blocking variant of {@link #process(ConsumerRecord)}, with the same failures.
+   */
+  public Mono<T> processReactively(ConsumerRecord<?, byte[]> consumerRecord) {
+    Mono<T> processing = Mono.fromCallable(() -> deserialize(consumerRecord));
+    for (ProcessingStage<T> stage : stages) {
+      processing = processing.flatMap(payload -> Mono.defer(
+              () -> stage.processReactively(payload, consumerRecord))
+          .onErrorMap(Exception.class, ex -> classify(stage, ex)));
+    }
+    return processing;
+  }
+
+  private T deserialize(ConsumerRecord<?, byte[]> consumerRecord) {
+    try {
+      return payloadDeserializer.deserialize(consumerRecord.value());
+    } catch (Exception ex) {
+      throw new PayloadDeserializationException(PAYLOAD_DESERIALIZATION_FAILED, ex);
+    }
+  }
+
+  private static ProcessingException classify(ProcessingStage<?> stage, Exception exception) {
+    if (exception instanceof ProcessingException processingException) {
+      return processingException;
+    }
+    String message = String.format(PROCESSING_STAGE_FAILED, stage.getName());
+    return stage.isRetryable(exception)
+        ? new ProcessingException(message, exception)
+        : new ProcessingFatalException(message, exception);
+  }
+}
@@ -0,0 +1,47 @@
+package com.enbirr.springkafkaretry.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import reactor.core.publisher.Mono;
+
+/**
+ * One step of the record processing in {@link ProcessingPipeline}. Stages are called in their
+ * order ({@link org.springframework.core.annotation.Order}) with the payload returned by the
+ * previous one, so the payload is deserialized only once.
+ * <p>
+ * A stage classifies its own failures: {@link #isRetryable(Exception)} tells whether the record
+ * goes to the retry topic or straight to the DLQ.
+ *
+ * @param <T> type of the payload.
+ */
+public interface ProcessingStage<T> {
+
+  /**
+   * @param payload        payload returned by the previous stage (or deserialized from the record).
+   * @param consumerRecord the record, e.g. for its key and headers. Its value is not deserialized
+   *                       again.
+   * @return payload for the next stage.
+   */
+  T process(T payload, ConsumerRecord<?, ?> consumerRecord) throws Exception;
+
+  /**
+   * Variant for the reactive pipeline: a stage that calls a slow dependency should override it to
+   * wait without holding a thread.
+   */
+  default Mono<T> processReactively(T payload, ConsumerRecord<?, ?> consumerRecord) {
+    return Mono.fromCallable(() -> process(payload, consumerRecord));
+  }
+
+  /**
+   * @return false if the record could not be processed however many times it's retried.
+   */
+  default boolean isRetryable(Exception exception) {
+    return true;
+  }
+
+  /**
+   * @return name of the stage in the exception messages.
+   */
+  default String getName() {
+    return getClass().getSimpleName();
+  }
+}
@@ -0,0 +1,124 @@
+package com.enbirr.springkafkaretry.producer;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.INTERRUPTED_WAITING_FOR_SEND_PERMIT;
+
+import lombok.Getter;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Producer of the records sent to the retry topic and to the DLQ. It has its own producer settings
+ * (batching, compression, idempotence), so a burst of failures doesn't compete with the other
+ * sends of the application.
+ * <p>
+ * The template is not a bean by purpose: Spring Boot doesn't create its own KafkaTemplate if there
+ * is any bean of this type.
+ * <p>
+ * With a transactional id prefix, the sends made by the listener containers join their
+ * transactions. The other sends (e.g. DLQ redrive, reactive pipeline) are not transactional.
+ */
+public class RetryDlqProducer implements DisposableBean {
+
+  @Getter
+  private final DefaultKafkaProducerFactory<String, byte[]> producerFactory;
+  @Getter
+  private final KafkaTemplate<String, byte[]> template;
+  // Bounds count of the sends that are not acknowledged yet
+  private final Semaphore inFlightSendPermits;
+  private final ThreadLocal<List<CompletableFuture<?>>> capturedSends = new ThreadLocal<>();
+
+  /**
+   * @param valueSerializer     serializer of the record values: the values as they were read (and
+   *                            restored) by the consumers.
+   * @param transactionIdPrefix prefix of the transactional ids, null - the producer is not
+   *                            transactional.
+   */
+  public RetryDlqProducer(
+      Map<String, Object> producerConfigs,
+      Serializer<byte[]> valueSerializer,
+      int maxInFlightSends,
+      @Nullable String transactionIdPrefix
+  ) {
+    this.producerFactory = new DefaultKafkaProducerFactory<>(producerConfigs, null,
+        valueSerializer);
+    // The template checks whether the factory is transactional when it's created
+    if (transactionIdPrefix != null) {
+      producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+    }
+    this.template = new InFlightLimitingKafkaTemplate();
+    template.setAllowNonTransactional(true);
+    this.inFlightSendPermits = new Semaphore(maxInFlightSends);
+  }
+
+  /**
+   * Runs the action and collects the results of all sends made by it in the current thread. It
+   * allows not to wait for acknowledgement of each send, but to check all of them at once later.
+   *
+   * @param sendingAction action that sends records by the template (e.g. the recoverer call).
+   * @return results of the sends.
+   */
+  public List<CompletableFuture<?>> captureSends(Runnable sendingAction) {
+    List<CompletableFuture<?>> sends = new ArrayList<>(1);
+    capturedSends.set(sends);
+    try {
+      sendingAction.run();
+    } finally {
+      capturedSends.remove();
+    }
+    return sends;
+  }
+
+  @Override
+  public void destroy() {
+    producerFactory.destroy();
+  }
+
+  private class InFlightLimitingKafkaTemplate extends KafkaTemplate<String, byte[]> {
+
+    InFlightLimitingKafkaTemplate() {
+      super(producerFactory);
+    }
+
+    @Override
+    public CompletableFuture<SendResult<String, byte[]>> send(
+        ProducerRecord<String, byte[]> producerRecord
+    ) {
+      acquireSendPermit();
+      CompletableFuture<SendResult<String, byte[]>> sendResult;
+      try {
+        sendResult = super.send(producerRecord)
+            .whenComplete((result, ex) -> inFlightSendPermits.release());
+      } catch (RuntimeException ex) {
+        inFlightSendPermits.release();
+        sendResult = CompletableFuture.failedFuture(ex);
+      }
+
+      List<CompletableFuture<?>> sends = capturedSends.get();
+      if (sends != null) {
+        sends.add(sendResult);
+      }
+      return sendResult;
+    }
+
+    private void acquireSendPermit() {
+      try {
+        inFlightSendPermits.acquire();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new KafkaException(INTERRUPTED_WAITING_FOR_SEND_PERMIT, ex);
+      }
+    }
+  }
+}
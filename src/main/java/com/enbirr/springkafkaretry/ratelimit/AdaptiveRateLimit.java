@@ -0,0 +1,89 @@
+package com.enbirr.springkafkaretry.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket whose rate follows the outcomes of the calls it guards (AIMD): successes add the
+ * step to the rate, a failure multiplies it by the decrease factor. The rate stays within the min
+ * and max bounds. Each of them changes the rate at most once per adjustment interval: the rate
+ * grows linearly over time instead of with the count of the calls (which would grow it
+ * exponentially, since more calls are let through at a higher rate), and failures that come
+ * together (e.g. all calls failed during an outage) don't drop it to the min at once.
+ * The bounds could be changed while the rate limit is used.
+ */
+public class AdaptiveRateLimit {
+
+  private final TokenBucket tokenBucket;
+  private double minPermitsPerSecond;
+  private double maxPermitsPerSecond;
+  private final double increaseStep;
+  private final double decreaseFactor;
+  private final long adjustmentIntervalNanos;
+  private long lastIncreaseNanos;
+  private long lastDecreaseNanos;
+
+  public AdaptiveRateLimit(
+      double minPermitsPerSecond,
+      double maxPermitsPerSecond,
+      double increaseStep,
+      double decreaseFactor,
+      long adjustmentIntervalMs
+  ) {
+    // Bursts are limited by the min rate: after a pause there is no spike above it
+    this.tokenBucket = new TokenBucket(maxPermitsPerSecond, Math.max(1, minPermitsPerSecond));
+    this.minPermitsPerSecond = minPermitsPerSecond;
+    this.maxPermitsPerSecond = maxPermitsPerSecond;
+    this.increaseStep = increaseStep;
+    this.decreaseFactor = decreaseFactor;
+    this.adjustmentIntervalNanos = TimeUnit.MILLISECONDS.toNanos(adjustmentIntervalMs);
+    this.lastIncreaseNanos = System.nanoTime() - adjustmentIntervalNanos;
+    this.lastDecreaseNanos = lastIncreaseNanos;
+  }
+
+  public void acquire() throws InterruptedException {
+    tokenBucket.acquire();
+  }
+
+  public double getPermitsPerSecond() {
+    return tokenBucket.getPermitsPerSecond();
+  }
+
+  public synchronized double getMinPermitsPerSecond() {
+    return minPermitsPerSecond;
+  }
+
+  public synchronized double getMaxPermitsPerSecond() {
+    return maxPermitsPerSecond;
+  }
+
+  /**
+   * The current rate is moved within the new bounds if it's out of them.
+   */
+  public synchronized void setBounds(double minPermitsPerSecond, double maxPermitsPerSecond) {
+    this.minPermitsPerSecond = minPermitsPerSecond;
+    this.maxPermitsPerSecond = maxPermitsPerSecond;
+    tokenBucket.setPermitsPerSecond(Math.max(minPermitsPerSecond,
+        Math.min(maxPermitsPerSecond, tokenBucket.getPermitsPerSecond())));
+  }
+
+  public synchronized void onSuccess() {
+    double permitsPerSecond = tokenBucket.getPermitsPerSecond();
+    long now = System.nanoTime();
+    if (permitsPerSecond >= maxPermitsPerSecond
+        || now - lastIncreaseNanos < adjustmentIntervalNanos) {
+      return;
+    }
+    lastIncreaseNanos = now;
+    tokenBucket.setPermitsPerSecond(Math.min(maxPermitsPerSecond, permitsPerSecond + increaseStep));
+  }
+
+  public synchronized void onFailure() {
+    long now = System.nanoTime();
+    if (now - lastDecreaseNanos < adjustmentIntervalNanos) {
+      return;
+    }
+    lastDecreaseNanos = now;
+    tokenBucket.setPermitsPerSecond(
+        Math.max(minPermitsPerSecond, tokenBucket.getPermitsPerSecond() * decreaseFactor));
+  }
+}
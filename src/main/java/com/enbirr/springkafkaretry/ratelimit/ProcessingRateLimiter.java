@@ -0,0 +1,121 @@
+package com.enbirr.springkafkaretry.ratelimit;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.INVALID_RATE_LIMIT;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Limits the rate of processing, separately for the main topic and for the retry topics. When a
+ * dependency of the processing comes back after an outage, the retry backlog would hit it all at
+ * once: the retry rate is cut by the failures during the outage and grows back while the
+ * processing succeeds. Fatal failures are caused by the record itself, so they don't change the
+ * rate. The listener thread waits for a permit, so records are not moved anywhere while waiting.
+ * <p>
+ * The rate limit could be switched on and off and its bounds could be changed at runtime (see
+ * {@link RateLimitsEndpoint}).
+ */
+@Component
+public class ProcessingRateLimiter {
+
+  private final KafkaCustomProperties kafkaProperties;
+  private final Map<TopicRole, AdaptiveRateLimit> rateLimits = new EnumMap<>(TopicRole.class);
+  private volatile boolean enabled;
+
+  public ProcessingRateLimiter(KafkaCustomProperties kafkaProperties) {
+    this.kafkaProperties = kafkaProperties;
+    this.enabled = kafkaProperties.isRateLimitEnabled();
+    rateLimits.put(TopicRole.MAIN, new AdaptiveRateLimit(
+        kafkaProperties.getRateLimitMainMinPerSecond(),
+        kafkaProperties.getRateLimitMainMaxPerSecond(),
+        kafkaProperties.getRateLimitIncreaseStep(),
+        kafkaProperties.getRateLimitDecreaseFactor(),
+        kafkaProperties.getRateLimitAdjustmentIntervalMs()));
+    rateLimits.put(TopicRole.RETRY, new AdaptiveRateLimit(
+        kafkaProperties.getRateLimitRetryMinPerSecond(),
+        kafkaProperties.getRateLimitRetryMaxPerSecond(),
+        kafkaProperties.getRateLimitIncreaseStep(),
+        kafkaProperties.getRateLimitDecreaseFactor(),
+        kafkaProperties.getRateLimitAdjustmentIntervalMs()));
+  }
+
+  /**
+   * Waits until the record could be processed.
+   */
+  public void acquire(ConsumerRecord<?, ?> consumerRecord) {
+    AdaptiveRateLimit rateLimit = getRateLimit(consumerRecord);
+    if (rateLimit == null) {
+      return;
+    }
+    try {
+      rateLimit.acquire();
+    } catch (InterruptedException ex) {
+      // The container is stopping: the record is processed without waiting
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public void onSuccess(ConsumerRecord<?, ?> consumerRecord) {
+    AdaptiveRateLimit rateLimit = getRateLimit(consumerRecord);
+    if (rateLimit != null) {
+      rateLimit.onSuccess();
+    }
+  }
+
+  public void onFailure(ConsumerRecord<?, ?> consumerRecord, Exception exception) {
+    AdaptiveRateLimit rateLimit = getRateLimit(consumerRecord);
+    if (rateLimit != null && !(KafkaUtils.findInformativeExceptionInCauseChain(exception)
+        instanceof ProcessingFatalException)) {
+      rateLimit.onFailure();
+    }
+  }
+
+  /**
+   * @return current permits per second of the topic role, 0 if its records are not limited.
+   */
+  public double getPermitsPerSecond(TopicRole topicRole) {
+    AdaptiveRateLimit rateLimit = rateLimits.get(topicRole);
+    return rateLimit == null ? 0 : rateLimit.getPermitsPerSecond();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return rate limit of the main or the retry topics.
+   */
+  public AdaptiveRateLimit getRateLimit(TopicRole topicRole) {
+    return rateLimits.get(topicRole);
+  }
+
+  public void setBounds(
+      TopicRole topicRole,
+      double minPermitsPerSecond,
+      double maxPermitsPerSecond
+  ) {
+    if (minPermitsPerSecond <= 0 || minPermitsPerSecond > maxPermitsPerSecond) {
+      throw new IllegalArgumentException(String.format(INVALID_RATE_LIMIT, minPermitsPerSecond,
+          maxPermitsPerSecond));
+    }
+    rateLimits.get(topicRole).setBounds(minPermitsPerSecond, maxPermitsPerSecond);
+  }
+
+  private AdaptiveRateLimit getRateLimit(ConsumerRecord<?, ?> consumerRecord) {
+    if (!enabled) {
+      return null;
+    }
+    return rateLimits.get(TopicRole.of(consumerRecord.topic(), kafkaProperties));
+  }
+}
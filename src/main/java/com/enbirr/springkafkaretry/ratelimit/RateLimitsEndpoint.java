@@ -0,0 +1,91 @@
+package com.enbirr.springkafkaretry.ratelimit;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.RATE_LIMIT_UPDATED;
+
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shows (read) and changes (write) the processing rate limits of the main and the retry topics
+ * without a restart. Parameters of the write are optional: the ones that are not given keep their
+ * current values. The current rate keeps adapting within the new bounds.
+ */
+@Component
+@Endpoint(id = "ratelimits")
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitsEndpoint {
+
+  private final ProcessingRateLimiter rateLimiter;
+
+  @ReadOperation
+  public RateLimitsView rateLimits() {
+    return new RateLimitsView(rateLimiter.isEnabled(), viewOf(TopicRole.MAIN),
+        viewOf(TopicRole.RETRY));
+  }
+
+  @WriteOperation
+  public RateLimitsView update(
+      @Nullable Boolean enabled,
+      @Nullable Double mainMinPerSecond,
+      @Nullable Double mainMaxPerSecond,
+      @Nullable Double retryMinPerSecond,
+      @Nullable Double retryMaxPerSecond
+  ) {
+    updateBounds(TopicRole.MAIN, mainMinPerSecond, mainMaxPerSecond);
+    updateBounds(TopicRole.RETRY, retryMinPerSecond, retryMaxPerSecond);
+    if (enabled != null) {
+      rateLimiter.setEnabled(enabled);
+    }
+    return rateLimits();
+  }
+
+  private void updateBounds(
+      TopicRole topicRole,
+      @Nullable Double minPerSecond,
+      @Nullable Double maxPerSecond
+  ) {
+    if (minPerSecond == null && maxPerSecond == null) {
+      return;
+    }
+    AdaptiveRateLimit rateLimit = rateLimiter.getRateLimit(topicRole);
+    double min = minPerSecond == null ? rateLimit.getMinPermitsPerSecond() : minPerSecond;
+    double max = maxPerSecond == null ? rateLimit.getMaxPermitsPerSecond() : maxPerSecond;
+    rateLimiter.setBounds(topicRole, min, max);
+    log.info(RATE_LIMIT_UPDATED, topicRole.getTagValue(), min, max);
+  }
+
+  private RateLimitView viewOf(TopicRole topicRole) {
+    AdaptiveRateLimit rateLimit = rateLimiter.getRateLimit(topicRole);
+    return new RateLimitView(rateLimit.getMinPermitsPerSecond(),
+        rateLimit.getMaxPermitsPerSecond(), rateLimit.getPermitsPerSecond());
+  }
+
+  /**
+   * @param enabled if false, records are processed without waiting for permits.
+   */
+  public record RateLimitsView(
+      boolean enabled,
+      RateLimitView main,
+      RateLimitView retry
+  ) {
+
+  }
+
+  /**
+   * @param currentPerSecond the rate that has adapted to the recent outcomes of the processing.
+   */
+  public record RateLimitView(
+      double minPerSecond,
+      double maxPerSecond,
+      double currentPerSecond
+  ) {
+
+  }
+}
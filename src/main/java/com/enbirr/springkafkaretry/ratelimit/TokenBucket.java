@@ -0,0 +1,62 @@
+package com.enbirr.springkafkaretry.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets through no more than the given count of permits per second on average. Unused permits are
+ * accumulated up to the capacity, which allows short bursts.
+ */
+public class TokenBucket {
+
+  private static final double NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final double capacity;
+  private double permitsPerSecond;
+  private double availableTokens;
+  private long lastRefillNanos;
+
+  public TokenBucket(double permitsPerSecond, double capacity) {
+    this.capacity = capacity;
+    this.permitsPerSecond = permitsPerSecond;
+    this.availableTokens = capacity;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  /**
+   * Waits until a permit is available.
+   */
+  public void acquire() throws InterruptedException {
+    long waitNanos;
+    while ((waitNanos = tryAcquire()) > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  public synchronized double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  public synchronized void setPermitsPerSecond(double permitsPerSecond) {
+    refill();
+    this.permitsPerSecond = permitsPerSecond;
+  }
+
+  /**
+   * @return 0 if a permit is taken, otherwise time to wait for it in nanoseconds.
+   */
+  private synchronized long tryAcquire() {
+    refill();
+    if (availableTokens >= 1) {
+      availableTokens -= 1;
+      return 0;
+    }
+    return Math.max(1, (long) ((1 - availableTokens) / permitsPerSecond * NANOS_IN_SECOND));
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    availableTokens = Math.min(capacity,
+        availableTokens + (now - lastRefillNanos) / NANOS_IN_SECOND * permitsPerSecond);
+    lastRefillNanos = now;
+  }
+}
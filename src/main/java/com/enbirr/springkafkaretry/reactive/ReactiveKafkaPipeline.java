@@ -0,0 +1,223 @@
+package com.enbirr.springkafkaretry.reactive;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.FAILED_TO_ROUTE_RECORD;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.REACTIVE_PIPELINE_FAILED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.SETTING_UP_REACTIVE_PIPELINE;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import com.enbirr.springkafkaretry.metrics.RetryMetrics;
+import com.enbirr.springkafkaretry.pipeline.ProcessingPipeline;
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import com.enbirr.springkafkaretry.retry.RetryPolicies;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import com.enbirr.springkafkaretry.util.RecordDetails;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.ListenerUtils;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverPartition;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Consumes the main topic and the retry topics without holding a thread per record: processing is
+ * a non-blocking call, so thousands of slow calls could wait at the same time on a few threads.
+ * <ul>
+ *   <li>Records of a partition are processed concurrently, up to the in-flight limit, but their
+ *   offsets are acknowledged in order. When all partitions reach the limit, demand stops and the
+ *   receiver pauses fetching (backpressure), so the consumer doesn't buffer an unbounded backlog.
+ *   </li>
+ *   <li>A failed record is sent to the retry topic or to the DLQ by the same recoverer as the one
+ *   of the batch listener: destinations, attempts and headers are the same as for the listener
+ *   containers, and {@code ProcessingFatalException} goes straight to the DLQ.</li>
+ *   <li>A record of a retry topic waits (without a thread) until its backoff timestamp.</li>
+ *   <li>If a failed record could not be sent, the pipeline is resubscribed: records after the last
+ *   committed offset are redelivered, so the record is not lost. Resubscriptions back off up to the
+ *   max delay, the back-off starts over once the pipeline has made progress.</li>
+ *   <li>Records of a revoked partition are dropped: its new owner gets them from the committed
+ *   offset. Otherwise, they would be processed by both instances.</li>
+ * </ul>
+ */
+@Slf4j
+public class ReactiveKafkaPipeline implements SmartLifecycle {
+
+  private static final LogAccessor LOG_ACCESSOR = new LogAccessor(ReactiveKafkaPipeline.class);
+
+  private final KafkaCustomProperties kafkaProperties;
+  private final ReceiverOptions<String, byte[]> receiverOptions;
+  private final ProcessingPipeline<?> processingPipeline;
+  private final DeadLetterPublishingRecoverer retryDlqRecoverer;
+  private final RetryDlqProducer retryDlqProducer;
+  private final RetryMetrics retryMetrics;
+  private final RecordLogger recordLogger;
+  // The policy of the record is resolved only if its details are logged
+  private final ToIntFunction<ConsumerRecord<?, ?>> maxAttemptsResolver;
+  private volatile Disposable subscription;
+
+  public ReactiveKafkaPipeline(
+      KafkaCustomProperties kafkaProperties,
+      ReceiverOptions<String, byte[]> receiverOptions,
+      ProcessingPipeline<?> processingPipeline,
+      DeadLetterPublishingRecoverer retryDlqRecoverer,
+      RetryDlqProducer retryDlqProducer,
+      RetryMetrics retryMetrics,
+      RecordLogger recordLogger,
+      RetryPolicies retryPolicies
+  ) {
+    this.kafkaProperties = kafkaProperties;
+    this.receiverOptions = receiverOptions;
+    this.processingPipeline = processingPipeline;
+    this.retryDlqRecoverer = retryDlqRecoverer;
+    this.retryDlqProducer = retryDlqProducer;
+    this.retryMetrics = retryMetrics;
+    this.recordLogger = recordLogger;
+    this.maxAttemptsResolver = retryPolicies::getMaxAttempts;
+  }
+
+  @Override
+  public void start() {
+    int maxInFlightPerPartition = kafkaProperties.getReactiveMaxInFlightPerPartition();
+    log.info(SETTING_UP_REACTIVE_PIPELINE, receiverOptions.subscriptionPattern(),
+        maxInFlightPerPartition);
+    // Called on the polling thread only, so the emissions are never concurrent
+    Sinks.Many<TopicPartition> revokedPartitions = Sinks.many().multicast().directBestEffort();
+    Flux<ReceiverRecord<String, byte[]>> records = KafkaReceiver.create(
+            receiverOptions.addRevokeListener((Collection<ReceiverPartition> partitions) ->
+                partitions.forEach(partition ->
+                    revokedPartitions.tryEmitNext(partition.topicPartition()))))
+        .receive();
+    subscription = handleByPartition(records, revokedPartitions.asFlux(), this::handle,
+            maxInFlightPerPartition)
+        .retryWhen(restartBackOff(Duration.ofMillis(kafkaProperties.getAttemptsIntervalMs()),
+                Duration.ofMillis(kafkaProperties.getReactiveRestartMaxBackoffMs()))
+            .doBeforeRetry(signal -> log.error(REACTIVE_PIPELINE_FAILED, signal.failure())))
+        .subscribe();
+  }
+
+  /**
+   * Records of each partition are handled concurrently, up to the in-flight limit, and
+   * acknowledged in order. A partition is dropped on revocation: its records that are not being
+   * handled yet are never handled by this instance.
+   *
+   * @return handled records.
+   */
+  static <R extends ReceiverRecord<?, ?>> Flux<R> handleByPartition(
+      Flux<R> records,
+      Flux<TopicPartition> revokedPartitions,
+      Function<R, Mono<R>> handler,
+      int maxInFlightPerPartition
+  ) {
+    return records
+        .groupBy(receiverRecord -> receiverRecord.receiverOffset().topicPartition())
+        // All assigned partitions are handled at the same time, each one has its own limit
+        .flatMap(partitionRecords -> partitionRecords
+                // The group is completed on revocation, a new one is created on reassignment
+                .takeUntilOther(revokedPartitions
+                    .filter(revokedPartition -> revokedPartition.equals(partitionRecords.key())))
+                .flatMapSequential(handler, maxInFlightPerPartition)
+                .doOnNext(receiverRecord -> receiverRecord.receiverOffset().acknowledge()),
+            Integer.MAX_VALUE);
+  }
+
+  /**
+   * Restarts back off exponentially up to the max delay. Errors separated by handled records are
+   * counted from the first attempt again, so the back-off starts over after the pipeline has made
+   * progress.
+   */
+  static RetryBackoffSpec restartBackOff(Duration minBackOff, Duration maxBackOff) {
+    return Retry.backoff(Long.MAX_VALUE, minBackOff)
+        .maxBackoff(maxBackOff)
+        .transientErrors(true);
+  }
+
+  @Override
+  public void stop() {
+    Disposable currentSubscription = subscription;
+    if (currentSubscription != null) {
+      currentSubscription.dispose();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    Disposable currentSubscription = subscription;
+    return currentSubscription != null && !currentSubscription.isDisposed();
+  }
+
+  /**
+   * @return the record when it's handled: processed or sent to the retry topic or to the DLQ.
+   */
+  private Mono<ReceiverRecord<String, byte[]>> handle(ReceiverRecord<String, byte[]> record) {
+    long delayMs = KafkaUtils.getNumberFromHeader(record, DEFAULT_HEADER_BACKOFF_TIMESTAMP, 0)
+        - System.currentTimeMillis();
+    Mono<Void> processing = Mono.defer(() -> process(record));
+    if (delayMs > 0) {
+      processing = Mono.delay(Duration.ofMillis(delayMs)).then(processing);
+    }
+    return processing.thenReturn(record);
+  }
+
+  private Mono<Void> process(ReceiverRecord<String, byte[]> record) {
+    DeserializationException deserializationException = ListenerUtils.getExceptionFromHeader(
+        record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG_ACCESSOR);
+    if (deserializationException != null) {
+      // The value could not be restored, it will never be: the record goes straight to the DLQ
+      recordLogger.logFailure(details(record), deserializationException);
+      return sendToRetryOrDlq(record, deserializationException);
+    }
+    long processingStart = System.nanoTime();
+    return processingPipeline.processReactively(record)
+        .doOnNext(processedPayload -> {
+          retryMetrics.recordProcessing(record, System.nanoTime() - processingStart, null);
+          recordLogger.logProcessed(details(record), String.valueOf(processedPayload));
+        })
+        .then()
+        .onErrorResume(ProcessingException.class, ex -> {
+          retryMetrics.recordProcessing(record, System.nanoTime() - processingStart, ex);
+          recordLogger.logFailure(details(record), ex);
+          return sendToRetryOrDlq(record, ex);
+        });
+  }
+
+  /**
+   * The recoverer may wait for a permit of the producer (see
+   * {@link RetryDlqProducer#captureSends(Runnable)}), so it's not called on the event loop.
+   */
+  private Mono<Void> sendToRetryOrDlq(ReceiverRecord<String, byte[]> record, Exception ex) {
+    return Mono.fromCallable(() -> retryDlqProducer.captureSends(
+            () -> retryDlqRecoverer.accept(record, ex)))
+        .subscribeOn(Schedulers.boundedElastic())
+        .flatMap((List<CompletableFuture<?>> sends) -> sends.isEmpty()
+            // The recoverer has only logged an error of the send, the record must not be lost.
+            ? Mono.error(new IllegalStateException(FAILED_TO_ROUTE_RECORD))
+            : Mono.fromFuture(CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))));
+  }
+
+  private RecordDetails details(ReceiverRecord<String, byte[]> record) {
+    // Details are bound to the current thread, they are created right before the log call
+    return RecordDetails.of(record, maxAttemptsResolver);
+  }
+}
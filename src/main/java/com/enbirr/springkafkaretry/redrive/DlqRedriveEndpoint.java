@@ -0,0 +1,44 @@
+package com.enbirr.springkafkaretry.redrive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts (write), stops (delete) and shows the progress (read) of the DLQ redrive. Timestamps are
+ * in epoch milliseconds, all parameters of the start are optional.
+ */
+@Component
+@Endpoint(id = "redrive")
+@RequiredArgsConstructor
+public class DlqRedriveEndpoint {
+
+  private final DlqRedriveService redriveService;
+
+  @ReadOperation
+  public RedriveStatus status() {
+    return redriveService.getStatus();
+  }
+
+  @WriteOperation
+  public RedriveStatus start(
+      @Nullable String exceptionFqcn,
+      @Nullable String exceptionCauseFqcn,
+      @Nullable Long fromTimestamp,
+      @Nullable Long toTimestamp,
+      @Nullable Integer ratePerSecond,
+      @Nullable String groupId
+  ) {
+    var filter = new RedriveFilter(exceptionFqcn, exceptionCauseFqcn, fromTimestamp, toTimestamp);
+    return redriveService.start(filter, groupId, ratePerSecond);
+  }
+
+  @DeleteOperation
+  public RedriveStatus stop() {
+    return redriveService.stop();
+  }
+}
@@ -0,0 +1,96 @@
+package com.enbirr.springkafkaretry.redrive;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.INVALID_REDRIVE_RATE;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.REDRIVE_IS_ALREADY_RUNNING;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends records from the DLQ back to the main topic, e.g. after a bug that made them fail is
+ * fixed. Records are sent by the retry and DLQ producer with the rate limit, so the redrive of a
+ * large DLQ doesn't hurt live traffic. Only one redrive runs at a time.
+ * <p>
+ * A stop wakes up the consumer of the job and interrupts its thread, so a job waiting for the rate
+ * limit stops at once too. A job that is still finishing (e.g. waits for its sends) doesn't block
+ * the next start: the next job begins right after it.
+ */
+@Service
+@RequiredArgsConstructor
+public class DlqRedriveService implements DisposableBean {
+
+  private final KafkaCustomProperties kafkaProperties;
+  private final ConsumerFactory<String, byte[]> consumerFactory;
+  private final RetryDlqProducer retryDlqProducer;
+  private final ExecutorService redriveExecutor = Executors.newSingleThreadExecutor(
+      new CustomizableThreadFactory("dlq-redrive-"));
+  private RedriveJob lastJob;
+  private Future<?> lastJobFuture;
+
+  /**
+   * @param groupId       consumer group of the redrive. Its committed offsets are the
+   *                      checkpoints: the redrive with the same group continues from the place
+   *                      the previous one has stopped. Null - the default redrive group.
+   * @param ratePerSecond max count of records sent per second, must be positive. Null - the
+   *                      default rate.
+   */
+  public synchronized RedriveStatus start(RedriveFilter filter, String groupId,
+      Integer ratePerSecond) {
+    int redriveRate = ratePerSecond != null
+        ? ratePerSecond
+        : kafkaProperties.getRedriveRatePerSecond();
+    if (redriveRate <= 0) {
+      throw new IllegalArgumentException(String.format(INVALID_REDRIVE_RATE, redriveRate));
+    }
+    if (lastJobFuture != null && !lastJobFuture.isDone()) {
+      throw new IllegalStateException(REDRIVE_IS_ALREADY_RUNNING);
+    }
+    String redriveGroupId = groupId != null ? groupId : kafkaProperties.getRedriveGroupId();
+    var consumerProperties = new Properties();
+    consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+    consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    consumerProperties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG,
+        kafkaProperties.getRedrivePollRecords());
+
+    lastJob = new RedriveJob(
+        consumerFactory.createConsumer(redriveGroupId, null, "-redrive", consumerProperties),
+        retryDlqProducer.getTemplate(),
+        kafkaProperties.getMainTopic() + kafkaProperties.getDlqTopicSuffix(),
+        kafkaProperties.getMainTopic(),
+        redriveGroupId,
+        filter,
+        redriveRate);
+    lastJobFuture = redriveExecutor.submit(lastJob);
+    return lastJob.getStatus();
+  }
+
+  public synchronized RedriveStatus stop() {
+    if (lastJob == null) {
+      return RedriveStatus.NONE;
+    }
+    lastJob.stop();
+    lastJobFuture.cancel(true);
+    return lastJob.getStatus();
+  }
+
+  public synchronized RedriveStatus getStatus() {
+    return lastJob == null ? RedriveStatus.NONE : lastJob.getStatus();
+  }
+
+  @Override
+  public void destroy() {
+    stop();
+    redriveExecutor.shutdown();
+  }
+}
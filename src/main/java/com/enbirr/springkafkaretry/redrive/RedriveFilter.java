@@ -0,0 +1,34 @@
+package com.enbirr.springkafkaretry.redrive;
+
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * Selects the DLQ records to redrive. Every criterion is optional (null means any value).
+ *
+ * @param exceptionFqcn      class name from the exception headers of the record.
+ * @param exceptionCauseFqcn class name of the exception cause from the headers of the record.
+ * @param fromTimestamp      the record was produced into the main topic at this moment or later.
+ * @param toTimestamp        the record was produced into the main topic before this moment.
+ */
+public record RedriveFilter(
+    String exceptionFqcn,
+    String exceptionCauseFqcn,
+    Long fromTimestamp,
+    Long toTimestamp
+) {
+
+  public boolean matches(ConsumerRecord<?, ?> dlqRecord) {
+    if (!matches(exceptionFqcn, KafkaUtils.getExceptionFqcn(dlqRecord.headers()))
+        || !matches(exceptionCauseFqcn, KafkaUtils.getExceptionCauseFqcn(dlqRecord.headers()))) {
+      return false;
+    }
+    long originalTimestamp = KafkaUtils.getOriginalTimestamp(dlqRecord);
+    return (fromTimestamp == null || originalTimestamp >= fromTimestamp)
+        && (toTimestamp == null || originalTimestamp < toTimestamp);
+  }
+
+  private static boolean matches(String expectedValue, String actualValue) {
+    return expectedValue == null || expectedValue.equals(actualValue);
+  }
+}
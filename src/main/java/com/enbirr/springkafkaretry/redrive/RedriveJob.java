@@ -0,0 +1,197 @@
+package com.enbirr.springkafkaretry.redrive;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.REDRIVE_FAILED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.REDRIVE_FINISHED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.REDRIVE_STARTED;
+
+import com.enbirr.springkafkaretry.ratelimit.TokenBucket;
+import com.enbirr.springkafkaretry.serialization.RetryValueSerializer;
+import com.enbirr.springkafkaretry.util.RetryMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.InterruptException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads the DLQ from the last checkpoint up to the end offsets it had when the job started, and
+ * sends the records matching the filter back to the main topic. Offsets of the read records are
+ * committed (the checkpoint) only after all records sent from them are acknowledged, so a stopped
+ * or failed job could be resumed by starting it with the same consumer group.
+ */
+@Slf4j
+class RedriveJob implements Runnable {
+
+  enum State {
+    RUNNING,
+    COMPLETED,
+    STOPPED,
+    FAILED
+  }
+
+  // Headers written by Spring when the record was sent to the retry topic and to the DLQ.
+  private static final String RETRY_TOPIC_HEADERS_PREFIX = "retry_topic-";
+  private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+  private final Consumer<String, byte[]> dlqConsumer;
+  private final KafkaTemplate<String, byte[]> template;
+  private final String dlqTopic;
+  private final String mainTopic;
+  private final String groupId;
+  private final RedriveFilter filter;
+  private final TokenBucket rateLimiter;
+
+  private final AtomicLong readCount = new AtomicLong();
+  private final AtomicLong redrivenCount = new AtomicLong();
+  private final AtomicLong skippedCount = new AtomicLong();
+  private volatile State state = State.RUNNING;
+  private volatile boolean stopRequested;
+  private volatile String error;
+
+  RedriveJob(
+      Consumer<String, byte[]> dlqConsumer,
+      KafkaTemplate<String, byte[]> template,
+      String dlqTopic,
+      String mainTopic,
+      String groupId,
+      RedriveFilter filter,
+      int ratePerSecond
+  ) {
+    this.dlqConsumer = dlqConsumer;
+    this.template = template;
+    this.dlqTopic = dlqTopic;
+    this.mainTopic = mainTopic;
+    this.groupId = groupId;
+    this.filter = filter;
+    this.rateLimiter = new TokenBucket(ratePerSecond, ratePerSecond);
+  }
+
+  @Override
+  public void run() {
+    log.info(REDRIVE_STARTED, dlqTopic, mainTopic, groupId, filter);
+    try (dlqConsumer) {
+      List<TopicPartition> partitions = dlqConsumer.partitionsFor(dlqTopic).stream()
+          .map(partitionInfo -> new TopicPartition(dlqTopic, partitionInfo.partition()))
+          .toList();
+      dlqConsumer.assign(partitions);
+      // Records written into the DLQ after the start are left for the next redrive
+      Map<TopicPartition, Long> endOffsets = dlqConsumer.endOffsets(partitions);
+
+      while (!stopRequested && !isEndReached(endOffsets)) {
+        redriveBatch(dlqConsumer.poll(POLL_TIMEOUT), endOffsets);
+      }
+      state = stopRequested ? State.STOPPED : State.COMPLETED;
+    } catch (WakeupException | InterruptException ex) {
+      // InterruptException - the consumer or the producer was interrupted by the stop
+      state = State.STOPPED;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      state = State.STOPPED;
+    } catch (RuntimeException ex) {
+      log.error(REDRIVE_FAILED, groupId, ex);
+      error = ex.getMessage();
+      state = State.FAILED;
+    }
+    log.info(REDRIVE_FINISHED, state, readCount, redrivenCount, skippedCount);
+  }
+
+  void stop() {
+    stopRequested = true;
+    dlqConsumer.wakeup();
+  }
+
+  RedriveStatus getStatus() {
+    return new RedriveStatus(state.name(), groupId, readCount.get(), redrivenCount.get(),
+        skippedCount.get(), error);
+  }
+
+  private void redriveBatch(
+      ConsumerRecords<String, byte[]> dlqRecords,
+      Map<TopicPartition, Long> endOffsets
+  ) throws InterruptedException {
+    List<CompletableFuture<?>> sends = new ArrayList<>(dlqRecords.count());
+    for (ConsumerRecord<String, byte[]> dlqRecord : dlqRecords) {
+      if (dlqRecord.offset() >= endOffsets.get(partitionOf(dlqRecord))) {
+        continue;
+      }
+      readCount.incrementAndGet();
+      if (isValueRestored(dlqRecord) && filter.matches(dlqRecord)) {
+        rateLimiter.acquire();
+        sends.add(template.send(toMainTopicRecord(dlqRecord)));
+      } else {
+        skippedCount.incrementAndGet();
+      }
+    }
+    CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+    redrivenCount.addAndGet(sends.size());
+    dlqConsumer.commitSync(getCheckpoint(endOffsets));
+  }
+
+  /**
+   * Records after the end offsets were not handled, so the checkpoint must not go beyond them.
+   */
+  private Map<TopicPartition, OffsetAndMetadata> getCheckpoint(
+      Map<TopicPartition, Long> endOffsets
+  ) {
+    Map<TopicPartition, OffsetAndMetadata> checkpoint = new HashMap<>();
+    for (TopicPartition partition : dlqConsumer.assignment()) {
+      long offset = Math.min(dlqConsumer.position(partition), endOffsets.get(partition));
+      checkpoint.put(partition, new OffsetAndMetadata(offset));
+    }
+    return checkpoint;
+  }
+
+  private boolean isEndReached(Map<TopicPartition, Long> endOffsets) {
+    return endOffsets.entrySet().stream()
+        .allMatch(endOffset -> dlqConsumer.position(endOffset.getKey()) >= endOffset.getValue());
+  }
+
+  /**
+   * The record goes to the main topic as a new one: without the retry and exception headers, so
+   * it gets all attempts again.
+   */
+  private ProducerRecord<String, byte[]> toMainTopicRecord(
+      ConsumerRecord<String, byte[]> dlqRecord
+  ) {
+    var headers = new RecordHeaders();
+    for (Header header : dlqRecord.headers()) {
+      if (!header.key().startsWith(KafkaHeaders.PREFIX)
+          && !header.key().startsWith(RETRY_TOPIC_HEADERS_PREFIX)
+          && !header.key().equals(RetryMetadata.HEADER)
+          && !header.key().startsWith(RetryValueSerializer.HEADERS_PREFIX)) {
+        headers.add(header);
+      }
+    }
+    return new ProducerRecord<>(mainTopic, null, dlqRecord.key(), dlqRecord.value(), headers);
+  }
+
+  /**
+   * A value that could not be restored (e.g. its offloaded file is missing) is left in the DLQ:
+   * the main topic would get a null instead of it.
+   */
+  private static boolean isValueRestored(ConsumerRecord<String, byte[]> dlqRecord) {
+    return dlqRecord.headers().lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER)
+        == null;
+  }
+
+  private static TopicPartition partitionOf(ConsumerRecord<?, ?> consumerRecord) {
+    return new TopicPartition(consumerRecord.topic(), consumerRecord.partition());
+  }
+}
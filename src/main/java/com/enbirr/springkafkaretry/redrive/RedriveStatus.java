@@ -0,0 +1,21 @@
+package com.enbirr.springkafkaretry.redrive;
+
+/**
+ * @param state         NONE if no redrive was started, otherwise state of the last one.
+ * @param groupId       consumer group, which committed offsets are the redrive checkpoints.
+ * @param readCount     count of the DLQ records read by the redrive.
+ * @param redrivenCount count of the records sent back to the main topic.
+ * @param skippedCount  count of the records that don't match the filter.
+ * @param error         message of the error that stopped the redrive.
+ */
+public record RedriveStatus(
+    String state,
+    String groupId,
+    long readCount,
+    long redrivenCount,
+    long skippedCount,
+    String error
+) {
+
+  public static final RedriveStatus NONE = new RedriveStatus("NONE", null, 0, 0, 0, null);
+}
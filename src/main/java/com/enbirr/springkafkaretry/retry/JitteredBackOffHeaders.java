@@ -0,0 +1,63 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP;
+
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer.SingleRecordHeader;
+import org.springframework.kafka.retrytopic.DestinationTopic;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+
+import java.math.BigInteger;
+import java.util.function.BiFunction;
+
+/**
+ * Spring sets the moment of the next attempt to the failure time plus the delay of the retry topic,
+ * so the records that failed together (e.g. during an outage) are retried together. This headers
+ * function spreads the moment by the jitter of the retry policy of the exception.
+ * <p>
+ * The delay of the topic stays the base of the jittered one: records of a topic are due within the
+ * jitter spread of each other, so a record waits behind the head of its partition for no longer
+ * than that spread. {@link SingleRecordHeader} replaces the header written by Spring.
+ */
+public class JitteredBackOffHeaders
+    implements BiFunction<ConsumerRecord<?, ?>, Exception, Headers> {
+
+  private static final Header[] NO_HEADERS = new Header[0];
+
+  private final DestinationTopicResolver destinationTopicResolver;
+  private final RetryPolicies retryPolicies;
+  private final String mainListenerId;
+
+  public JitteredBackOffHeaders(
+      DestinationTopicResolver destinationTopicResolver,
+      RetryPolicies retryPolicies,
+      String mainListenerId
+  ) {
+    this.destinationTopicResolver = destinationTopicResolver;
+    this.retryPolicies = retryPolicies;
+    this.mainListenerId = mainListenerId;
+  }
+
+  @Override
+  public Headers apply(ConsumerRecord<?, ?> failedRecord, Exception exception) {
+    RetryPolicy policy = retryPolicies.getPolicy(exception);
+    if (policy.jitter() <= 0) {
+      return new RecordHeaders(NO_HEADERS);
+    }
+    // Resolved the same way as the destination of the record by the recoverer
+    DestinationTopic destination = destinationTopicResolver.resolveDestinationTopic(mainListenerId,
+        failedRecord.topic(), KafkaUtils.getAttemptNumber(failedRecord), exception,
+        KafkaUtils.getOriginalTimestamp(failedRecord));
+    if (destination.isDltTopic() || destination.isNoOpsTopic()) {
+      return new RecordHeaders(NO_HEADERS);
+    }
+    long nextAttemptTimestamp = System.currentTimeMillis()
+        + policy.applyJitter(destination.getDestinationDelay());
+    return new RecordHeaders(new Header[]{new SingleRecordHeader(DEFAULT_HEADER_BACKOFF_TIMESTAMP,
+        BigInteger.valueOf(nextAttemptTimestamp).toByteArray())});
+  }
+}
@@ -0,0 +1,92 @@
+package com.enbirr.springkafkaretry.retry;
+
+import org.springframework.kafka.retrytopic.DefaultDestinationTopicResolver;
+import org.springframework.kafka.retrytopic.DestinationTopic;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Spring decides whether a failed record should be retried by the attempts count of the whole
+ * retry topic configuration. This resolver sends the record to the DLQ earlier if the retry policy
+ * of the occurred exception allows fewer attempts.
+ * <p>
+ * Spring also sends a record to the next retry topic of the chain. If the retry topics are created
+ * for the delays of the retry policies, this resolver sends the record to the topic of the delay
+ * its policy sets for the next attempt instead. The backoff header is calculated by Spring from
+ * the resolved topic, so all records of a topic wait for the same delay. A delay without its own
+ * topic (e.g. of a policy changed at runtime) is rounded up to the next topic delay, or down to the
+ * longest one.
+ */
+public class PolicyAwareDestinationTopicResolver extends DefaultDestinationTopicResolver {
+
+  private final RetryPolicies retryPolicies;
+  private final boolean isRoutedByPolicyDelay;
+  // Main listener id -> retry topics by their delays
+  private final Map<String, NavigableMap<Long, DestinationTopic>> retryTopicsByDelay =
+      new ConcurrentHashMap<>();
+
+  /**
+   * @param isRoutedByPolicyDelay true if the retry topics are created for the delays of the
+   *                              policies, false if records follow the chain of the retry topics
+   *                              (e.g. the retry tiers).
+   */
+  public PolicyAwareDestinationTopicResolver(
+      Clock clock,
+      RetryPolicies retryPolicies,
+      boolean isRoutedByPolicyDelay
+  ) {
+    super(clock);
+    this.retryPolicies = retryPolicies;
+    this.isRoutedByPolicyDelay = isRoutedByPolicyDelay;
+  }
+
+  @Override
+  public DestinationTopic resolveDestinationTopic(
+      String mainListenerId,
+      String topic,
+      Integer attempt,
+      Exception exception,
+      long originalTimestamp
+  ) {
+    DestinationTopic destination = super.resolveDestinationTopic(mainListenerId, topic, attempt,
+        exception, originalTimestamp);
+    if (destination.isDltTopic() || destination.isNoOpsTopic()) {
+      return destination;
+    }
+    RetryPolicy policy = retryPolicies.getPolicy(exception);
+    if (attempt >= policy.maxAttempts()) {
+      return getDltFor(mainListenerId, topic);
+    }
+    if (!isRoutedByPolicyDelay) {
+      return destination;
+    }
+    NavigableMap<Long, DestinationTopic> retryTopics = retryTopicsByDelay.get(mainListenerId);
+    if (retryTopics == null) {
+      return destination;
+    }
+    Map.Entry<Long, DestinationTopic> retryTopic = retryTopics.ceilingEntry(
+        policy.getDelayAfterAttempt(attempt));
+    return retryTopic == null ? retryTopics.lastEntry().getValue() : retryTopic.getValue();
+  }
+
+  @Override
+  public void addDestinationTopics(String mainListenerId, List<DestinationTopic> destinations) {
+    super.addDestinationTopics(mainListenerId, destinations);
+    // Called at startup only, the map of a listener is replaced and never changed afterwards
+    NavigableMap<Long, DestinationTopic> retryTopics = new TreeMap<>(
+        retryTopicsByDelay.getOrDefault(mainListenerId, new TreeMap<>()));
+    destinations.stream()
+        .filter(destination -> !destination.isMainTopic() && !destination.isDltTopic()
+            && !destination.isNoOpsTopic())
+        .forEach(destination -> retryTopics.putIfAbsent(destination.getDestinationDelay(),
+            destination));
+    if (!retryTopics.isEmpty()) {
+      retryTopicsByDelay.put(mainListenerId, retryTopics);
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.ATTEMPTS_COUNT_OUT_OF_RANGE;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.INVALID_RETRY_BACKOFF;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.UNKNOWN_EXCEPTION_CLASS;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.util.KafkaUtils;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Retry policies for the exceptions thrown while processing a record. The policy of the exception
+ * class (or of its closest superclass) is used if it was set up, otherwise the default one.
+ * <p>
+ * Policies could be changed at runtime (see {@link RetryPoliciesEndpoint}): a change applies to
+ * the next failed record, consumers are not stopped. The retry topics are set up at startup for the
+ * attempts limit and the delays of the initial policies, so no policy could allow more attempts
+ * than that, and a new delay is rounded up to the delay of a retry topic.
+ */
+public class RetryPolicies {
+
+  private static final int MAX_CACHED_CLASS_NAMES = 1024;
+  // Marks the class names that couldn't be loaded: they get the default policy
+  private static final Class<?> UNKNOWN_CLASS = Object.class;
+
+  private final int attemptsLimit;
+  private volatile Policies policies;
+  // Exception headers hold class names: each of them is loaded once, not for every record
+  private final Map<String, Class<?>> exceptionClassByName = new ConcurrentHashMap<>();
+
+  public RetryPolicies(RetryPolicy defaultPolicy, Map<Class<?>, RetryPolicy> exceptionPolicies) {
+    this(defaultPolicy, exceptionPolicies, 0);
+  }
+
+  /**
+   * @param attemptsLimit attempts count the retry topic is set up for. It's raised to the max
+   *                      attempts count of the given policies if it's lower.
+   */
+  public RetryPolicies(
+      RetryPolicy defaultPolicy,
+      Map<Class<?>, RetryPolicy> exceptionPolicies,
+      int attemptsLimit
+  ) {
+    this.policies = new Policies(defaultPolicy, Map.copyOf(exceptionPolicies));
+    this.attemptsLimit = Math.max(attemptsLimit, policies.getMaxAttemptsCount());
+  }
+
+  public static RetryPolicies fromProperties(KafkaCustomProperties kafkaProperties) {
+    var defaultPolicy = new RetryPolicy(
+        kafkaProperties.getAttemptsMaxCount(),
+        kafkaProperties.getAttemptsIntervalMs(),
+        kafkaProperties.getBackoffMultiplier(),
+        kafkaProperties.getBackoffMaxIntervalMs(),
+        kafkaProperties.getBackoffJitter());
+
+    Map<String, Integer> attemptsByException = kafkaProperties.getExceptionAttemptsMaxCount();
+    Map<String, Integer> intervalsByException = kafkaProperties.getExceptionAttemptsIntervalMs();
+    Set<String> exceptionClassNames = new HashSet<>(attemptsByException.keySet());
+    exceptionClassNames.addAll(intervalsByException.keySet());
+
+    Map<Class<?>, RetryPolicy> exceptionPolicies = new HashMap<>();
+    for (String exceptionClassName : exceptionClassNames) {
+      RetryPolicy policy = defaultPolicy.withAttemptsAndInterval(
+          attemptsByException.getOrDefault(exceptionClassName, defaultPolicy.maxAttempts()),
+          intervalsByException.getOrDefault(exceptionClassName,
+              (int) defaultPolicy.intervalMs()));
+      exceptionPolicies.put(toExceptionClass(exceptionClassName), policy);
+    }
+    return new RetryPolicies(defaultPolicy, exceptionPolicies,
+        kafkaProperties.getAttemptsLimit());
+  }
+
+  /**
+   * @param exception the exception that occurred while processing a record. It could be wrapped
+   *                  by Spring, the informative exception is taken from its cause chain.
+   * @return retry policy for this exception.
+   */
+  public RetryPolicy getPolicy(Throwable exception) {
+    Throwable informativeException = KafkaUtils.findInformativeExceptionInCauseChain(exception);
+    return policies.policyByExceptionClass.get(informativeException.getClass());
+  }
+
+  /**
+   * @return policy of the exception the record has failed with last time (taken from its exception
+   * headers), or the default one if the record hasn't failed yet.
+   */
+  public RetryPolicy getPolicy(ConsumerRecord<?, ?> consumerRecord) {
+    String exceptionFqcn = KafkaUtils.getExceptionFqcn(consumerRecord.headers());
+    Policies currentPolicies = policies;
+    if (exceptionFqcn == null) {
+      return currentPolicies.defaultPolicy;
+    }
+    Class<?> exceptionClass = findExceptionClass(exceptionFqcn);
+    return exceptionClass == UNKNOWN_CLASS
+        ? currentPolicies.defaultPolicy
+        : currentPolicies.policyByExceptionClass.get(exceptionClass);
+  }
+
+  /**
+   * @return max attempts count of the policy of the record.
+   * @see #getPolicy(ConsumerRecord)
+   */
+  public int getMaxAttempts(ConsumerRecord<?, ?> consumerRecord) {
+    return getPolicy(consumerRecord).maxAttempts();
+  }
+
+  public RetryPolicy getDefaultPolicy() {
+    return policies.defaultPolicy;
+  }
+
+  public Map<Class<?>, RetryPolicy> getExceptionPolicies() {
+    return policies.exceptionPolicies;
+  }
+
+  /**
+   * Max attempts count among all policies.
+   */
+  public int getMaxAttemptsCount() {
+    return policies.getMaxAttemptsCount();
+  }
+
+  /**
+   * The retry topic has to be set up for the longest chain of attempts that could be allowed.
+   */
+  public int getAttemptsLimit() {
+    return attemptsLimit;
+  }
+
+  /**
+   * A retry topic is created for each of these delays, so records of a topic are due in the order
+   * they were written. The delays are calculated up to the attempts limit, since attempts counts
+   * could be raised up to it at runtime.
+   *
+   * @return distinct delays of all policies in ascending order.
+   */
+  public List<Long> getRetryDelaysMs() {
+    Policies currentPolicies = policies;
+    Set<Long> delays = new TreeSet<>();
+    addRetryDelays(currentPolicies.defaultPolicy, delays);
+    currentPolicies.exceptionPolicies.values().forEach(policy -> addRetryDelays(policy, delays));
+    return List.copyOf(delays);
+  }
+
+  public synchronized void setDefaultPolicy(RetryPolicy defaultPolicy) {
+    validate(defaultPolicy);
+    policies = new Policies(defaultPolicy, policies.exceptionPolicies);
+  }
+
+  /**
+   * The policy is used for the exception class and its subclasses. A policy with a single attempt
+   * sends records that failed with such an exception straight to the DLQ.
+   */
+  public synchronized void setExceptionPolicy(String exceptionClassName, RetryPolicy policy) {
+    validate(policy);
+    Map<Class<?>, RetryPolicy> exceptionPolicies = new HashMap<>(policies.exceptionPolicies);
+    exceptionPolicies.put(toExceptionClass(exceptionClassName), policy);
+    policies = new Policies(policies.defaultPolicy, Map.copyOf(exceptionPolicies));
+  }
+
+  /**
+   * Records that fail with the exception get the policy of its superclass or the default one.
+   */
+  public synchronized void removeExceptionPolicy(String exceptionClassName) {
+    Map<Class<?>, RetryPolicy> exceptionPolicies = new HashMap<>(policies.exceptionPolicies);
+    exceptionPolicies.remove(toExceptionClass(exceptionClassName));
+    policies = new Policies(policies.defaultPolicy, Map.copyOf(exceptionPolicies));
+  }
+
+  private void validate(RetryPolicy policy) {
+    if (policy.maxAttempts() < 1 || policy.maxAttempts() > attemptsLimit) {
+      throw new IllegalArgumentException(String.format(ATTEMPTS_COUNT_OUT_OF_RANGE,
+          policy.maxAttempts(), attemptsLimit));
+    }
+    if (policy.intervalMs() < 0 || policy.multiplier() < 1
+        || policy.jitter() < 0 || policy.jitter() >= 1) {
+      throw new IllegalArgumentException(String.format(INVALID_RETRY_BACKOFF, policy));
+    }
+  }
+
+  private void addRetryDelays(RetryPolicy policy, Set<Long> delays) {
+    for (int failedAttempt = 1; failedAttempt < attemptsLimit; failedAttempt++) {
+      delays.add(policy.getDelayAfterAttempt(failedAttempt));
+    }
+  }
+
+  /**
+   * The cache is bounded by the count of names, since the names come from the records: once it's
+   * full, other names are loaded for each record.
+   */
+  private Class<?> findExceptionClass(String exceptionClassName) {
+    Class<?> exceptionClass = exceptionClassByName.get(exceptionClassName);
+    if (exceptionClass == null) {
+      exceptionClass = loadExceptionClass(exceptionClassName);
+      if (exceptionClassByName.size() < MAX_CACHED_CLASS_NAMES) {
+        exceptionClassByName.putIfAbsent(exceptionClassName, exceptionClass);
+      }
+    }
+    return exceptionClass;
+  }
+
+  private static Class<?> loadExceptionClass(String exceptionClassName) {
+    try {
+      return Class.forName(exceptionClassName, false, RetryPolicies.class.getClassLoader());
+    } catch (ClassNotFoundException ex) {
+      return UNKNOWN_CLASS;
+    }
+  }
+
+  private static Class<?> toExceptionClass(String exceptionClassName) {
+    try {
+      Class<?> exceptionClass = Class.forName(exceptionClassName);
+      if (Throwable.class.isAssignableFrom(exceptionClass)) {
+        return exceptionClass;
+      }
+    } catch (ClassNotFoundException ex) {
+      throw new IllegalArgumentException(String.format(UNKNOWN_EXCEPTION_CLASS, exceptionClassName),
+          ex);
+    }
+    throw new IllegalArgumentException(String.format(UNKNOWN_EXCEPTION_CLASS, exceptionClassName));
+  }
+
+  /**
+   * Immutable set of the policies: a change replaces the whole set, so readers never see a half
+   * applied one and don't need locks.
+   */
+  private static final class Policies {
+
+    private final RetryPolicy defaultPolicy;
+    private final Map<Class<?>, RetryPolicy> exceptionPolicies;
+    // Resolved once per exception class instead of walking its superclasses for every record
+    private final ClassValue<RetryPolicy> policyByExceptionClass = new ClassValue<>() {
+      @Override
+      protected RetryPolicy computeValue(Class<?> exceptionClass) {
+        return findPolicy(exceptionClass);
+      }
+    };
+
+    private Policies(RetryPolicy defaultPolicy, Map<Class<?>, RetryPolicy> exceptionPolicies) {
+      this.defaultPolicy = defaultPolicy;
+      this.exceptionPolicies = exceptionPolicies;
+    }
+
+    private RetryPolicy findPolicy(Class<?> exceptionClass) {
+      for (Class<?> exClass = exceptionClass; exClass != null;
+          exClass = exClass.getSuperclass()) {
+        RetryPolicy policy = exceptionPolicies.get(exClass);
+        if (policy != null) {
+          return policy;
+        }
+      }
+      return defaultPolicy;
+    }
+
+    private int getMaxAttemptsCount() {
+      return exceptionPolicies.values().stream()
+          .mapToInt(RetryPolicy::maxAttempts)
+          .reduce(defaultPolicy.maxAttempts(), Math::max);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.RETRY_POLICY_REMOVED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.RETRY_POLICY_UPDATED;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Shows (read) and changes (write, delete) the retry policies without a restart: a change applies
+ * to the next failed record, the listener containers keep running. Attempts count of a policy
+ * could be set from 1 (records go straight to the DLQ) up to the attempts limit the retry topic
+ * was set up for. Retry topics are created at startup for the delays of the initial policies, so
+ * a new delay is rounded up to the delay of a retry topic. With retry tiers, delays are fixed by
+ * the tier topics, so only attempts counts matter.
+ * <p>
+ * Parameters of the write are optional: the ones that are not given keep their current values.
+ * Without the exception class, the default policy is changed.
+ */
+@Component
+@Endpoint(id = "retrypolicies")
+@RequiredArgsConstructor
+@Slf4j
+public class RetryPoliciesEndpoint {
+
+  private static final String DEFAULT_POLICY_NAME = "default";
+
+  private final RetryPolicies retryPolicies;
+
+  @ReadOperation
+  public RetryPoliciesView policies() {
+    Map<String, RetryPolicy> exceptionPolicies = new TreeMap<>();
+    retryPolicies.getExceptionPolicies().forEach((exceptionClass, policy) ->
+        exceptionPolicies.put(exceptionClass.getName(), policy));
+    return new RetryPoliciesView(retryPolicies.getAttemptsLimit(),
+        retryPolicies.getDefaultPolicy(), exceptionPolicies);
+  }
+
+  @WriteOperation
+  public RetryPoliciesView update(
+      @Nullable String exceptionFqcn,
+      @Nullable Integer attemptsCount,
+      @Nullable Long intervalMs,
+      @Nullable Double backoffMultiplier,
+      @Nullable Long backoffMaxIntervalMs,
+      @Nullable Double backoffJitter
+  ) {
+    RetryPolicy currentPolicy = exceptionFqcn == null
+        ? retryPolicies.getDefaultPolicy()
+        : findExceptionPolicy(exceptionFqcn);
+    var policy = new RetryPolicy(
+        attemptsCount == null ? currentPolicy.maxAttempts() : attemptsCount,
+        intervalMs == null ? currentPolicy.intervalMs() : intervalMs,
+        backoffMultiplier == null ? currentPolicy.multiplier() : backoffMultiplier,
+        backoffMaxIntervalMs == null ? currentPolicy.maxIntervalMs() : backoffMaxIntervalMs,
+        backoffJitter == null ? currentPolicy.jitter() : backoffJitter);
+    if (exceptionFqcn == null) {
+      retryPolicies.setDefaultPolicy(policy);
+    } else {
+      retryPolicies.setExceptionPolicy(exceptionFqcn, policy);
+    }
+    log.info(RETRY_POLICY_UPDATED, exceptionFqcn == null ? DEFAULT_POLICY_NAME : exceptionFqcn,
+        policy);
+    return policies();
+  }
+
+  @DeleteOperation
+  public RetryPoliciesView remove(String exceptionFqcn) {
+    retryPolicies.removeExceptionPolicy(exceptionFqcn);
+    log.info(RETRY_POLICY_REMOVED, exceptionFqcn);
+    return policies();
+  }
+
+  /**
+   * A new exception policy starts from the default one.
+   */
+  private RetryPolicy findExceptionPolicy(String exceptionFqcn) {
+    return retryPolicies.getExceptionPolicies().entrySet().stream()
+        .filter(entry -> entry.getKey().getName().equals(exceptionFqcn))
+        .map(Map.Entry::getValue)
+        .findFirst()
+        .orElse(retryPolicies.getDefaultPolicy());
+  }
+
+  /**
+   * @param attemptsLimit     max attempts count of any policy: the retry topic was set up for it.
+   * @param defaultPolicy     policy of the exceptions without their own one.
+   * @param exceptionPolicies policies by exception class name, used for their subclasses too.
+   */
+  public record RetryPoliciesView(
+      int attemptsLimit,
+      RetryPolicy defaultPolicy,
+      Map<String, RetryPolicy> exceptionPolicies
+  ) {
+
+  }
+}
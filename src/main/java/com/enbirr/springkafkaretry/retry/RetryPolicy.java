@@ -0,0 +1,51 @@
+package com.enbirr.springkafkaretry.retry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How many times a failed record is processed and how long it waits in the retry topic before
+ * each next attempt. A retry topic is created for each delay (see
+ * {@link RetryPolicies#getRetryDelaysMs()}), the jitter spreads the records within the topic.
+ *
+ * @param maxAttempts   count of attempts to process the record (including the first one).
+ * @param intervalMs    delay before the second attempt in milliseconds.
+ * @param multiplier    each next delay is longer than the previous one in this number of times
+ *                      (1.0 for the fixed backoff).
+ * @param maxIntervalMs delays never exceed this value.
+ * @param jitter        delays are randomly spread by this fraction (e.g. 0.2 is ±20%), so the
+ *                      records that failed at the same moment are not retried at the same moment.
+ */
+public record RetryPolicy(
+    int maxAttempts,
+    long intervalMs,
+    double multiplier,
+    long maxIntervalMs,
+    double jitter
+) {
+
+  /**
+   * @param failedAttempt number of the attempt that has failed (starting from 1).
+   * @return delay in milliseconds before the next attempt without the jitter: the retry topic of
+   * the record is chosen by it.
+   */
+  public long getDelayAfterAttempt(int failedAttempt) {
+    double delay = intervalMs * Math.pow(multiplier, Math.max(failedAttempt - 1, 0));
+    return Math.round(Math.min(delay, Math.max(maxIntervalMs, intervalMs)));
+  }
+
+  /**
+   * @param delayMs delay of the retry topic the record is sent to.
+   * @return the delay randomly spread by the jitter.
+   */
+  public long applyJitter(long delayMs) {
+    if (jitter <= 0) {
+      return delayMs;
+    }
+    double randomFactor = 2 * ThreadLocalRandom.current().nextDouble() - 1;
+    return Math.round(delayMs + delayMs * jitter * randomFactor);
+  }
+
+  public RetryPolicy withAttemptsAndInterval(int maxAttempts, long intervalMs) {
+    return new RetryPolicy(maxAttempts, intervalMs, multiplier, maxIntervalMs, jitter);
+  }
+}
@@ -0,0 +1,75 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.INTERRUPTED_BACK_OFF;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.INVALID_RETRY_TIERS;
+
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.BackOffContext;
+import org.springframework.retry.backoff.BackOffInterruptedException;
+import org.springframework.retry.backoff.Sleeper;
+import org.springframework.retry.backoff.SleepingBackOffPolicy;
+import org.springframework.retry.backoff.ThreadWaitSleeper;
+
+import java.util.List;
+
+/**
+ * Back off through the fixed delay tiers: the first retry waits for the first tier delay, the
+ * second one for the second tier delay and so on, the last tier is used for all remaining retries.
+ * <p>
+ * Spring creates a retry topic for each distinct delay, so a failed record is promoted to the next
+ * delay topic after each attempt. All records of a delay topic wait for the same time, so the
+ * record at the head of a partition is always the first one to be due, and a record with a long
+ * delay never blocks the records with a short one.
+ */
+public class TieredBackOffPolicy implements SleepingBackOffPolicy<TieredBackOffPolicy> {
+
+  private final List<Long> tierDelaysMs;
+  private final Sleeper sleeper;
+
+  /**
+   * @param tierDelaysMs delays of the tiers in milliseconds, at least one, all of them positive.
+   */
+  public TieredBackOffPolicy(List<Long> tierDelaysMs) {
+    this(validate(tierDelaysMs), new ThreadWaitSleeper());
+  }
+
+  private TieredBackOffPolicy(List<Long> tierDelaysMs, Sleeper sleeper) {
+    this.tierDelaysMs = List.copyOf(tierDelaysMs);
+    this.sleeper = sleeper;
+  }
+
+  @Override
+  public TieredBackOffPolicy withSleeper(Sleeper sleeper) {
+    return new TieredBackOffPolicy(tierDelaysMs, sleeper);
+  }
+
+  @Override
+  public BackOffContext start(RetryContext context) {
+    return new TierBackOffContext();
+  }
+
+  @Override
+  public void backOff(BackOffContext backOffContext) throws BackOffInterruptedException {
+    var tierContext = (TierBackOffContext) backOffContext;
+    int tierIndex = Math.min(tierContext.backOffsCount++, tierDelaysMs.size() - 1);
+    try {
+      sleeper.sleep(tierDelaysMs.get(tierIndex));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new BackOffInterruptedException(INTERRUPTED_BACK_OFF, ex);
+    }
+  }
+
+  private static List<Long> validate(List<Long> tierDelaysMs) {
+    if (tierDelaysMs == null || tierDelaysMs.isEmpty()
+        || tierDelaysMs.stream().anyMatch(delay -> delay == null || delay <= 0)) {
+      throw new IllegalArgumentException(String.format(INVALID_RETRY_TIERS, tierDelaysMs));
+    }
+    return tierDelaysMs;
+  }
+
+  private static class TierBackOffContext implements BackOffContext {
+
+    private int backOffsCount;
+  }
+}
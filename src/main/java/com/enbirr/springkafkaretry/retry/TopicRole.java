@@ -0,0 +1,34 @@
+package com.enbirr.springkafkaretry.retry;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+
+import java.util.Locale;
+
+/**
+ * Role of a topic in the retry pipeline. It is defined by the topic name suffix.
+ */
+public enum TopicRole {
+  MAIN,
+  RETRY,
+  DLQ;
+
+  public static TopicRole of(String topic, KafkaCustomProperties kafkaProperties) {
+    String retryTopicSuffix = kafkaProperties.getRetryTopicSuffix();
+    if (topic.endsWith(kafkaProperties.getDlqTopicSuffix())) {
+      return DLQ;
+    } else if (topic.endsWith(retryTopicSuffix)
+        // retry tier topics are suffixed with their delay, e.g. ".retry-10000"
+        || topic.contains(retryTopicSuffix + "-")) {
+      return RETRY;
+    } else {
+      return MAIN;
+    }
+  }
+
+  /**
+   * @return the role name used in metric tags and in logs.
+   */
+  public String getTagValue() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+}
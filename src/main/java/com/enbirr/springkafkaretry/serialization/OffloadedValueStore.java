@@ -0,0 +1,104 @@
+package com.enbirr.springkafkaretry.serialization;
+
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.OFFLOAD_DIRECTORY_NOT_SET;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.OFFLOADED_VALUE_NOT_FOUND;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.OFFLOADED_VALUE_NOT_STORED;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed store of the record values that are too big to be copied to the retry topic
+ * and to the DLQ on each hop. A value is kept in a file named after its SHA-256 hash, so all hops
+ * of a record (and equal values of different records) share one file, and the record carries only
+ * the hash.
+ * <p>
+ * Files are not deleted by the application: the directory has to be shared by all instances that
+ * consume the retry topic and the DLQ, and its retention has to be longer than the one of the DLQ.
+ * A local default (e.g. the temp directory) would lose the values on the first rebalance, so the
+ * directory must be set explicitly when offloading is switched on. Without it, offloaded values
+ * of the records written before are not found.
+ */
+public class OffloadedValueStore {
+
+  private static final String HASH_ALGORITHM = "SHA-256";
+  // Hex digits of a SHA-256 hash
+  private static final int KEY_LENGTH = 64;
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  // Null if the directory is not set
+  private final Path directory;
+
+  public OffloadedValueStore(KafkaCustomProperties kafkaProperties) {
+    String directory = kafkaProperties.getRetryValueOffloadDirectory();
+    if (directory.isBlank() && kafkaProperties.getRetryValueOffloadThresholdBytes() > 0) {
+      throw new IllegalArgumentException(String.format(OFFLOAD_DIRECTORY_NOT_SET,
+          kafkaProperties.getRetryValueOffloadThresholdBytes()));
+    }
+    this.directory = directory.isBlank() ? null : Path.of(directory);
+  }
+
+  /**
+   * @return key of the value in the store.
+   */
+  public String put(byte[] value) {
+    String key = hash(value);
+    Path file = directory.resolve(key);
+    if (Files.exists(file)) {
+      return key;
+    }
+    try {
+      Files.createDirectories(directory);
+      // Readers never see a partly written file
+      Path tempFile = Files.createTempFile(directory, key, TEMP_FILE_SUFFIX);
+      Files.write(tempFile, value);
+      try {
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (FileAlreadyExistsException ex) {
+        // The same value was stored concurrently
+        Files.deleteIfExists(tempFile);
+      }
+      return key;
+    } catch (IOException ex) {
+      throw new SerializationException(String.format(OFFLOADED_VALUE_NOT_STORED, directory), ex);
+    }
+  }
+
+  public byte[] get(String key) {
+    try {
+      return Files.readAllBytes(fileOf(key));
+    } catch (IOException ex) {
+      throw new SerializationException(String.format(OFFLOADED_VALUE_NOT_FOUND, key, directory),
+          ex);
+    }
+  }
+
+  /**
+   * The key comes from a record, so it's checked to be a hash: it must not point outside the
+   * directory.
+   */
+  private Path fileOf(String key) {
+    if (directory == null || key.length() != KEY_LENGTH || !key.chars().allMatch(HexFormat::isHexDigit)) {
+      throw new SerializationException(String.format(OFFLOADED_VALUE_NOT_FOUND, key, directory));
+    }
+    return directory.resolve(key);
+  }
+
+  private static String hash(byte[] value) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance(HASH_ALGORITHM).digest(value));
+    } catch (NoSuchAlgorithmException ex) {
+      // Every Java platform supports SHA-256
+      throw new IllegalStateException(ex);
+    }
+  }
+}
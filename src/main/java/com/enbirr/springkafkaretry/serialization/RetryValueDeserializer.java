@@ -0,0 +1,70 @@
+package com.enbirr.springkafkaretry.serialization;
+
+import static com.enbirr.springkafkaretry.serialization.RetryValueSerializer.COMPRESSION_HEADER;
+import static com.enbirr.springkafkaretry.serialization.RetryValueSerializer.OFFLOADED_HEADER;
+import static com.enbirr.springkafkaretry.serialization.RetryValueSerializer.UNRESTORED_HEADER;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.BufferSupplier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Restores the values written by {@link RetryValueSerializer}: loads an offloaded value from the
+ * store and decompresses a compressed one. Values without its headers (e.g. the main topic
+ * records) are passed as they were read, so the listeners get the original bytes in any case and
+ * the payload deserializer of the pipeline parses them without decoding them into a string first.
+ * <p>
+ * A value that could not be restored is marked by a header before the failure is thrown: the
+ * recoverer copies it to the DLQ record, so its bytes are written there as they were read.
+ */
+@RequiredArgsConstructor
+public class RetryValueDeserializer implements Deserializer<byte[]> {
+
+  private final OffloadedValueStore offloadedValueStore;
+
+  @Override
+  public byte[] deserialize(String topic, byte[] data) {
+    return data;
+  }
+
+  @Override
+  public byte[] deserialize(String topic, Headers headers, byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    try {
+      byte[] value = data;
+      if (headers.lastHeader(OFFLOADED_HEADER) != null) {
+        value = offloadedValueStore.get(new String(value, US_ASCII));
+      }
+      Header compressionHeader = headers.lastHeader(COMPRESSION_HEADER);
+      if (compressionHeader != null) {
+        value = decompress(value, CompressionType.forName(
+            new String(compressionHeader.value(), US_ASCII)));
+      }
+      return value;
+    } catch (RuntimeException ex) {
+      headers.add(UNRESTORED_HEADER, new byte[0]);
+      throw ex;
+    }
+  }
+
+  private static byte[] decompress(byte[] value, CompressionType compressionType) {
+    try (InputStream decompressingStream = compressionType.wrapForInput(ByteBuffer.wrap(value),
+        RecordBatch.CURRENT_MAGIC_VALUE, BufferSupplier.NO_CACHING)) {
+      return decompressingStream.readAllBytes();
+    } catch (IOException ex) {
+      throw new SerializationException(ex);
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.enbirr.springkafkaretry.serialization;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Value serializer of the producer of the retry topic and the DLQ records. Each hop of a failed
+ * record writes one more copy of its value, so big values are compressed (by the codecs of Kafka),
+ * and values that are still too big are offloaded to {@link OffloadedValueStore}: the record
+ * carries only their key. Headers tell {@link RetryValueDeserializer} how to restore the value.
+ * <p>
+ * Records sent to the main topic (e.g. by the DLQ redrive) are written as they are, so external
+ * consumers of the main topic don't need to know about the encoding. So are the values that could
+ * not be restored (e.g. the offloaded value is not found): the recoverer sends them to the DLQ with
+ * the bytes read from the topic, and their encoding headers are removed, so the consumers of the
+ * DLQ (e.g. the DLQ redrive) read them as plain values instead of failing on them again. The reason
+ * is kept in the exception headers.
+ */
+public class RetryValueSerializer implements Serializer<byte[]> {
+
+  public static final String HEADERS_PREFIX = "retry-value-";
+  public static final String COMPRESSION_HEADER = HEADERS_PREFIX + "compression";
+  public static final String OFFLOADED_HEADER = HEADERS_PREFIX + "offloaded";
+  // Set by RetryValueDeserializer on the values it could not restore
+  public static final String UNRESTORED_HEADER = HEADERS_PREFIX + "unrestored";
+
+  private final KafkaCustomProperties kafkaProperties;
+  private final OffloadedValueStore offloadedValueStore;
+  private final CompressionType compressionType;
+  private final int compressionMinBytes;
+  private final int offloadThresholdBytes;
+
+  public RetryValueSerializer(
+      KafkaCustomProperties kafkaProperties,
+      OffloadedValueStore offloadedValueStore
+  ) {
+    this.kafkaProperties = kafkaProperties;
+    this.offloadedValueStore = offloadedValueStore;
+    this.compressionType = CompressionType.forName(
+        kafkaProperties.getRetryValueCompressionType());
+    this.compressionMinBytes = kafkaProperties.getRetryValueCompressionMinBytes();
+    this.offloadThresholdBytes = kafkaProperties.getRetryValueOffloadThresholdBytes();
+  }
+
+  /**
+   * @return true if the values are compressed or offloaded.
+   */
+  public boolean isEncodingEnabled() {
+    return compressionType != CompressionType.NONE || offloadThresholdBytes > 0;
+  }
+
+  @Override
+  public byte[] serialize(String topic, byte[] data) {
+    return data;
+  }
+
+  @Override
+  public byte[] serialize(String topic, Headers headers, byte[] data) {
+    // Headers of the previous hop are copied to the record by the recoverer
+    headers.remove(COMPRESSION_HEADER);
+    headers.remove(OFFLOADED_HEADER);
+    boolean isUnrestored = headers.lastHeader(UNRESTORED_HEADER) != null;
+    headers.remove(UNRESTORED_HEADER);
+    byte[] value = data;
+    if (value == null || isUnrestored || TopicRole.of(topic, kafkaProperties) == TopicRole.MAIN) {
+      return value;
+    }
+    if (compressionType != CompressionType.NONE && value.length >= compressionMinBytes) {
+      byte[] compressed = compress(value);
+      if (compressed.length < value.length) {
+        value = compressed;
+        headers.add(COMPRESSION_HEADER, compressionType.name.getBytes(US_ASCII));
+      }
+    }
+    if (offloadThresholdBytes > 0 && value.length >= offloadThresholdBytes) {
+      value = offloadedValueStore.put(value).getBytes(US_ASCII);
+      headers.add(OFFLOADED_HEADER, new byte[0]);
+    }
+    return value;
+  }
+
+  private byte[] compress(byte[] value) {
+    var bufferStream = new ByteBufferOutputStream(value.length / 2 + 64);
+    try (OutputStream compressingStream = compressionType.wrapForOutput(bufferStream,
+        RecordBatch.CURRENT_MAGIC_VALUE)) {
+      compressingStream.write(value);
+    } catch (IOException ex) {
+      throw new SerializationException(ex);
+    }
+    ByteBuffer buffer = bufferStream.buffer();
+    return Arrays.copyOf(buffer.array(), bufferStream.position());
+  }
+}
@@ -9,7 +9,9 @@ import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Random;
 
 @Service
@@ -24,6 +26,10 @@ public class ProcessingService {
   private Integer errorPercentage;
   @Value("${processing.fatal-error-percentage:0}")
   private Integer fatalErrorPercentage;
+  @Value("${processing.stackless-exceptions:false}")
+  private boolean stacklessExceptions;
+  @Value("${processing.reactive.latency-ms:0}")
+  private long reactiveLatencyMs;
 
   public String truncateMessageInRiskyWay(String message) throws ProcessingException {
     int chanceOfSuccess = RANDOM.nextInt(1, 101);
@@ -32,9 +38,22 @@ public class ProcessingService {
     return truncateMessage(message, messageMaxLength);
   }
 
+  /**
+   * Non-blocking variant for the reactive pipeline. The call of a slow dependency is simulated by
+   * the delay, which doesn't hold a thread while waiting.
+   */
+  public Mono<String> truncateMessageReactively(String message) {
+    Mono<String> processing = Mono.fromCallable(() -> truncateMessageInRiskyWay(message));
+    if (reactiveLatencyMs <= 0) {
+      return processing;
+    }
+    return Mono.delay(Duration.ofMillis(reactiveLatencyMs)).then(processing);
+  }
+
   private void maybeRunIntoRetryableException(int chanceOfSuccess) {
     if (chanceOfSuccess <= errorPercentage) {
-      throw new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED);
+      // Retryable failure is expected, its stack trace is not needed to investigate it
+      throw new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED, !stacklessExceptions);
     }
   }
 
@@ -48,7 +67,7 @@ public class ProcessingService {
     }
   }
 
-  private static String truncateMessage(String message, int messageMaxLength) {
+  static String truncateMessage(String message, int messageMaxLength) {
     if (message.length() > messageMaxLength) {
       return message.substring(0, messageMaxLength) + "...";
     } else {
@@ -0,0 +1,26 @@
+package com.enbirr.springkafkaretry.service;
+
+import com.enbirr.springkafkaretry.pipeline.ProcessingStage;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import reactor.core.publisher.Mono;
+
+/**
+ * The processing of the example as a stage of the pipeline. {@link ProcessingService} classifies
+ * its failures itself by the processing exceptions it throws.
+ */
+@RequiredArgsConstructor
+public class TruncationStage implements ProcessingStage<String> {
+
+  private final ProcessingService processingService;
+
+  @Override
+  public String process(String payload, ConsumerRecord<?, ?> consumerRecord) {
+    return processingService.truncateMessageInRiskyWay(payload);
+  }
+
+  @Override
+  public Mono<String> processReactively(String payload, ConsumerRecord<?, ?> consumerRecord) {
+    return processingService.truncateMessageReactively(payload);
+  }
+}
@@ -2,65 +2,148 @@ package com.enbirr.springkafkaretry.util;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS;
-import static org.springframework.kafka.support.KafkaHeaders.ORIGINAL_OFFSET;
-import static org.springframework.kafka.support.KafkaHeaders.ORIGINAL_PARTITION;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ORIGINAL_TIMESTAMP;
 
 import com.enbirr.springkafkaretry.exception.ProcessingException;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import org.apache.commons.lang3.ObjectUtils;
-import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.springframework.kafka.listener.DeadLetterPublishingRecoverer.HeaderNames;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer.SingleRecordHeader;
 import org.springframework.kafka.support.KafkaHeaders;
 
-import java.nio.ByteBuffer;
+import java.math.BigInteger;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class KafkaUtils {
 
-  public static String getRecordDetails(
-      ConsumerRecord<String, String> consumerRecord,
-      int maxAttemptsCount
-  ) {
-    Integer originalPartition = getIntFromHeader(consumerRecord, ORIGINAL_PARTITION);
-    Long originalOffset = getLongFromHeader(consumerRecord, ORIGINAL_OFFSET);
+  // Protects from the cause chains with a loop
+  private static final int MAX_CAUSE_CHAIN_DEPTH = 64;
+  private static final ClassValue<Boolean> IS_INFORMATIVE_EXCEPTION = new ClassValue<>() {
+    @Override
+    protected Boolean computeValue(Class<?> exceptionClass) {
+      return ProcessingException.class.isAssignableFrom(exceptionClass);
+    }
+  };
+
+  /**
+   * @return number of the attempt to process the record: 1 for the main topic, 2 and more for the
+   * retry topic.
+   */
+  public static int getAttemptNumber(ConsumerRecord<?, ?> consumerRecord) {
+    return (int) getNumberFromHeader(consumerRecord, DEFAULT_HEADER_ATTEMPTS, 1);
+  }
 
-    StringBuilder strBuilder = new StringBuilder();
-    strBuilder.append(String.format("topic: %s, partition: %d, offset: %d",
-        consumerRecord.topic(), consumerRecord.partition(), consumerRecord.offset()));
+  /**
+   * @return timestamp of the record in the main topic. Spring keeps it in the header of the records
+   * sent to the retry topic.
+   */
+  public static long getOriginalTimestamp(ConsumerRecord<?, ?> consumerRecord) {
+    return getNumberFromHeader(consumerRecord, DEFAULT_HEADER_ORIGINAL_TIMESTAMP,
+        consumerRecord.timestamp());
+  }
 
-    if (originalPartition != null && originalOffset != null) {
-      strBuilder.append(String.format(", original partition: %d, original offset: %d",
-          originalPartition, originalOffset));
+  /**
+   * @return partition of the record in the main topic, or -1 for the records of the main topic. It's
+   * taken from the compact metadata header or from the original partition header of the record.
+   */
+  public static int getOriginalPartition(ConsumerRecord<?, ?> consumerRecord) {
+    Header metadataHeader = consumerRecord.headers().lastHeader(RetryMetadata.HEADER);
+    if (metadataHeader != null) {
+      return RetryMetadata.decodeOriginalPartition(metadataHeader.value());
     }
+    return (int) getNumberFromHeader(consumerRecord, KafkaHeaders.DLT_ORIGINAL_PARTITION,
+        getNumberFromHeader(consumerRecord, KafkaHeaders.ORIGINAL_PARTITION,
+            RetryMetadata.UNKNOWN));
+  }
 
-    Integer attemptNumber = getIntFromHeader(consumerRecord, DEFAULT_HEADER_ATTEMPTS);
-    String attemptAppendix = String.format(", attempt number: %d of %d",
-        attemptNumber == null ? 1 : attemptNumber,
-        maxAttemptsCount);
-    strBuilder.append(attemptAppendix);
+  /**
+   * @return offset of the record in the main topic, or -1 for the records of the main topic.
+   * @see #getOriginalPartition(ConsumerRecord)
+   */
+  public static long getOriginalOffset(ConsumerRecord<?, ?> consumerRecord) {
+    Header metadataHeader = consumerRecord.headers().lastHeader(RetryMetadata.HEADER);
+    if (metadataHeader != null) {
+      return RetryMetadata.decodeOriginalOffset(metadataHeader.value());
+    }
+    return getNumberFromHeader(consumerRecord, KafkaHeaders.DLT_ORIGINAL_OFFSET,
+        getNumberFromHeader(consumerRecord, KafkaHeaders.ORIGINAL_OFFSET, RetryMetadata.UNKNOWN));
+  }
 
-    return strBuilder.toString();
+  /**
+   * @return class name of the exception the record failed with, either from the compact metadata
+   * header or from the string header. Null if the record has no exception headers.
+   */
+  public static String getExceptionFqcn(Headers kafkaHeaders) {
+    RetryMetadata retryMetadata = getRetryMetadata(kafkaHeaders);
+    return retryMetadata != null
+        ? retryMetadata.exceptionFqcn()
+        : getStringHeader(kafkaHeaders, KafkaHeaders.EXCEPTION_FQCN);
   }
 
-  private static Integer getIntFromHeader(ConsumerRecord<?, ?> consumerRecord, String headerKey) {
-    var header = consumerRecord.headers().lastHeader(headerKey);
-    if (header != null) {
-      return ByteBuffer.wrap(header.value()).getInt();
-    } else {
-      return null;
-    }
+  /**
+   * @return class name of the cause of the exception the record failed with.
+   * @see #getExceptionFqcn(Headers)
+   */
+  public static String getExceptionCauseFqcn(Headers kafkaHeaders) {
+    RetryMetadata retryMetadata = getRetryMetadata(kafkaHeaders);
+    return retryMetadata != null
+        ? retryMetadata.exceptionCauseFqcn()
+        : getStringHeader(kafkaHeaders, KafkaHeaders.EXCEPTION_CAUSE_FQCN);
+  }
+
+  /**
+   * @return message of the exception the record failed with.
+   * @see #getExceptionFqcn(Headers)
+   */
+  public static String getExceptionMessage(Headers kafkaHeaders) {
+    RetryMetadata retryMetadata = getRetryMetadata(kafkaHeaders);
+    return retryMetadata != null
+        ? retryMetadata.exceptionMessage()
+        : getStringHeader(kafkaHeaders, KafkaHeaders.EXCEPTION_MESSAGE);
+  }
+
+  /**
+   * @return the compact metadata, or null if the record has no such header of a known version.
+   */
+  public static RetryMetadata getRetryMetadata(Headers kafkaHeaders) {
+    Header metadataHeader = kafkaHeaders.lastHeader(RetryMetadata.HEADER);
+    return metadataHeader == null ? null : RetryMetadata.decode(metadataHeader.value());
+  }
+
+  private static String getStringHeader(Headers kafkaHeaders, String headerKey) {
+    Header header = kafkaHeaders.lastHeader(headerKey);
+    return header == null ? null : new String(header.value(), UTF_8);
   }
 
-  private static Long getLongFromHeader(ConsumerRecord<?, ?> consumerRecord, String headerKey) {
-    var header = consumerRecord.headers().lastHeader(headerKey);
-    if (header != null) {
-      return ByteBuffer.wrap(header.value()).getLong();
-    } else {
-      return null;
+  /**
+   * @return value of the last header with the key, or the default value if there is no such header.
+   * @see #decodeBigEndian(byte[])
+   */
+  public static long getNumberFromHeader(
+      ConsumerRecord<?, ?> consumerRecord,
+      String headerKey,
+      long defaultValue
+  ) {
+    Header header = consumerRecord.headers().lastHeader(headerKey);
+    return header == null ? defaultValue : decodeBigEndian(header.value());
+  }
+
+  /**
+   * Decodes a signed big-endian number without allocations. Spring writes numeric headers either
+   * by {@link java.nio.ByteBuffer} (fixed-size int or long) or by {@link BigInteger#toByteArray()}
+   * (minimal size), both are two's-complement big-endian, so one decoder fits all of them.
+   */
+  static long decodeBigEndian(byte[] bytes) {
+    long value = bytes.length > 0 && bytes[0] < 0 ? -1 : 0;
+    for (byte b : bytes) {
+      value = (value << 8) | (b & 0xFF);
     }
+    return value;
   }
 
   /**
@@ -99,18 +182,75 @@ public class KafkaUtils {
     }
   }
 
-  private static Throwable findInformativeExceptionInCauseChain(Exception exception) {
-    int exIndex = ExceptionUtils.indexOfType(exception, ProcessingException.class);
-    if (exIndex != -1) {
-      return ExceptionUtils.getThrowables(exception)[exIndex];
-    } else {
-      return exception;
+  /**
+   * Compact alternative of {@link #getCustomExceptionHeadersCreator}: the exception and the
+   * original coordinates of the record are written into the single {@link RetryMetadata} header.
+   * {@link SingleRecordHeader} replaces the header of the previous attempt.
+   *
+   * @see org.springframework.kafka.listener.DeadLetterPublishingRecoverer#addHeadersFunction
+   */
+  public static Headers createRetryMetadataHeaders(
+      ConsumerRecord<?, ?> failedRecord,
+      Exception occurredException
+  ) {
+    Throwable exception = findInformativeExceptionInCauseChain(occurredException);
+    int originalPartition = getOriginalPartition(failedRecord);
+    long originalOffset = getOriginalOffset(failedRecord);
+    if (originalPartition == RetryMetadata.UNKNOWN) {
+      // The record has failed in the main topic
+      originalPartition = failedRecord.partition();
+      originalOffset = failedRecord.offset();
+    }
+
+    var retryMetadata = new RetryMetadata(
+        originalPartition,
+        originalOffset,
+        exception.getClass().getName(),
+        exception.getCause() == null ? null : exception.getCause().getClass().getName(),
+        ObjectUtils.isEmpty(exception.getMessage()) ? null : exception.getMessage());
+    return new RecordHeaders(new Header[]{
+        new SingleRecordHeader(RetryMetadata.HEADER, retryMetadata.encode())});
+  }
+
+  /**
+   * Exception headers creator for the compact headers mode: the exception is written by
+   * {@link #createRetryMetadataHeaders}, only the string headers of the previous attempts are
+   * removed here.
+   *
+   * @see #getCustomExceptionHeadersCreator(Headers, Exception, boolean, HeaderNames)
+   */
+  public static void removeStringExceptionHeaders(
+      Headers kafkaHeaders,
+      Exception occurredException,
+      boolean isKey,
+      HeaderNames headerNames
+  ) {
+    kafkaHeaders.remove(KafkaHeaders.EXCEPTION_FQCN);
+    kafkaHeaders.remove(KafkaHeaders.EXCEPTION_MESSAGE);
+    kafkaHeaders.remove(KafkaHeaders.EXCEPTION_CAUSE_FQCN);
+  }
+
+  /**
+   * @return the first {@link ProcessingException} in the cause chain, or the exception itself if
+   * there is no such one.
+   */
+  public static Throwable findInformativeExceptionInCauseChain(Throwable exception) {
+    // Unlike ExceptionUtils.getThrowables, walking the chain doesn't allocate anything
+    Throwable current = exception;
+    for (int depth = 0; current != null && depth < MAX_CAUSE_CHAIN_DEPTH; depth++) {
+      if (IS_INFORMATIVE_EXCEPTION.get(current.getClass())) {
+        return current;
+      }
+      current = current.getCause();
     }
+    return exception;
   }
 
   private static void removeOldExceptionHeaders(Headers kafkaHeaders) {
     kafkaHeaders.remove(KafkaHeaders.EXCEPTION_FQCN);
     kafkaHeaders.remove(KafkaHeaders.EXCEPTION_MESSAGE);
     kafkaHeaders.remove(KafkaHeaders.EXCEPTION_CAUSE_FQCN);
+    // Left by the previous attempt if the compact headers mode was switched off since then
+    kafkaHeaders.remove(RetryMetadata.HEADER);
   }
 }
@@ -0,0 +1,143 @@
+package com.enbirr.springkafkaretry.util;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.MDC;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Details of the record being processed: its coordinates, original coordinates (for the records
+ * from the retry topic) and attempt number. Headers are decoded without allocations, the text is
+ * rendered only when a log line with this object is actually written (by {@link #toString()}), and
+ * only once per record. The max attempts count depends on the exception headers of the record, so
+ * it's resolved only when the text is rendered or the count is asked for.
+ * <p>
+ * The instance is reused by the thread: it's valid only until the next call of
+ * {@link #of(ConsumerRecord, ToIntFunction)} in the same thread, so don't keep it after the record is
+ * handled.
+ */
+@Getter
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RecordDetails {
+
+  public static final String MDC_TOPIC = "kafka.topic";
+  public static final String MDC_PARTITION = "kafka.partition";
+  public static final String MDC_OFFSET = "kafka.offset";
+  public static final String MDC_ATTEMPT = "kafka.attempt";
+
+  private static final ThreadLocal<RecordDetails> THREAD_INSTANCE =
+      ThreadLocal.withInitial(RecordDetails::new);
+  private static final int NO_ORIGINAL = RetryMetadata.UNKNOWN;
+  private static final int NOT_RESOLVED = RetryMetadata.UNKNOWN;
+  // Offsets take 40 bits of the record id: up to 1e12 records per partition, up to 8M partitions.
+  private static final int OFFSET_BITS = 40;
+  private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+  private String topic;
+  private int partition;
+  private long offset;
+  private int originalPartition;
+  private long originalOffset;
+  private int attemptNumber;
+  @Getter(AccessLevel.NONE)
+  private int maxAttemptsCount;
+  @Getter(AccessLevel.NONE)
+  private ConsumerRecord<?, ?> consumerRecord;
+  @Getter(AccessLevel.NONE)
+  private ToIntFunction<ConsumerRecord<?, ?>> maxAttemptsResolver;
+  @Getter(AccessLevel.NONE)
+  private String renderedText;
+
+  public static RecordDetails of(ConsumerRecord<?, ?> consumerRecord, int maxAttemptsCount) {
+    RecordDetails recordDetails = of(consumerRecord, (ToIntFunction<ConsumerRecord<?, ?>>) null);
+    recordDetails.maxAttemptsCount = maxAttemptsCount;
+    return recordDetails;
+  }
+
+  /**
+   * @param maxAttemptsResolver resolves the max attempts count of the record when it's needed.
+   */
+  public static RecordDetails of(
+      ConsumerRecord<?, ?> consumerRecord,
+      ToIntFunction<ConsumerRecord<?, ?>> maxAttemptsResolver
+  ) {
+    RecordDetails recordDetails = THREAD_INSTANCE.get();
+    recordDetails.topic = consumerRecord.topic();
+    recordDetails.partition = consumerRecord.partition();
+    recordDetails.offset = consumerRecord.offset();
+    recordDetails.originalPartition = KafkaUtils.getOriginalPartition(consumerRecord);
+    recordDetails.originalOffset = KafkaUtils.getOriginalOffset(consumerRecord);
+    recordDetails.attemptNumber = KafkaUtils.getAttemptNumber(consumerRecord);
+    recordDetails.maxAttemptsCount = NOT_RESOLVED;
+    recordDetails.consumerRecord = consumerRecord;
+    recordDetails.maxAttemptsResolver = maxAttemptsResolver;
+    recordDetails.renderedText = null;
+    return recordDetails;
+  }
+
+  public int getMaxAttemptsCount() {
+    if (maxAttemptsCount == NOT_RESOLVED) {
+      maxAttemptsCount = maxAttemptsResolver.applyAsInt(consumerRecord);
+    }
+    return maxAttemptsCount;
+  }
+
+  public boolean hasOriginalCoordinates() {
+    return originalPartition != NO_ORIGINAL && originalOffset != NO_ORIGINAL;
+  }
+
+  /**
+   * @return id of the record in the main topic made of its partition and offset. Retry records
+   * have the same id as the record they were created for.
+   */
+  public long getOriginalRecordId() {
+    long mainTopicPartition = hasOriginalCoordinates() ? originalPartition : partition;
+    long mainTopicOffset = hasOriginalCoordinates() ? originalOffset : offset;
+    return (mainTopicPartition << OFFSET_BITS) | (mainTopicOffset & OFFSET_MASK);
+  }
+
+  /**
+   * Puts the record coordinates into the MDC, so they are available for all log lines written while
+   * processing the record. Call {@link #removeFromMdc()} after that.
+   */
+  public void putToMdc() {
+    MDC.put(MDC_TOPIC, topic);
+    MDC.put(MDC_PARTITION, String.valueOf(partition));
+    MDC.put(MDC_OFFSET, String.valueOf(offset));
+    MDC.put(MDC_ATTEMPT, String.valueOf(attemptNumber));
+  }
+
+  public static void removeFromMdc() {
+    MDC.remove(MDC_TOPIC);
+    MDC.remove(MDC_PARTITION);
+    MDC.remove(MDC_OFFSET);
+    MDC.remove(MDC_ATTEMPT);
+  }
+
+  @Override
+  public String toString() {
+    if (renderedText == null) {
+      renderedText = render();
+    }
+    return renderedText;
+  }
+
+  private String render() {
+    StringBuilder strBuilder = new StringBuilder(128)
+        .append("topic: ").append(topic)
+        .append(", partition: ").append(partition)
+        .append(", offset: ").append(offset);
+
+    if (hasOriginalCoordinates()) {
+      strBuilder.append(", original partition: ").append(originalPartition)
+          .append(", original offset: ").append(originalOffset);
+    }
+
+    return strBuilder.append(", attempt number: ").append(attemptNumber)
+        .append(" of ").append(getMaxAttemptsCount())
+        .toString();
+  }
+}
@@ -0,0 +1,222 @@
+package com.enbirr.springkafkaretry.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.enbirr.springkafkaretry.exception.CircuitOpenException;
+import com.enbirr.springkafkaretry.exception.KeyParkedException;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retry metadata of a record in a single binary header. It replaces the exception headers (class,
+ * message, cause class) and the original record headers (topic, partition, offset, timestamp,
+ * timestamp type, consumer group) that are much bigger than small record values.
+ * <p>
+ * Format of version 1, all numbers are unsigned varints:
+ * <pre>
+ * version | original partition + 1 | original offset + 1 | exception class | cause class
+ *         | message length | message (UTF-8)
+ * </pre>
+ * Class reference: 0 - no class, 1 - the name follows (length and UTF-8 bytes), n &gt;= 2 - the
+ * class with id n - 2 in {@link #KNOWN_CLASS_NAMES}. Readers of another version ignore the header.
+ *
+ * @param originalPartition  partition of the record in the main topic, -1 if unknown.
+ * @param originalOffset     offset of the record in the main topic, -1 if unknown.
+ * @param exceptionFqcn      class name of the exception, null if unknown.
+ * @param exceptionCauseFqcn class name of the exception cause, null if there is no cause.
+ * @param exceptionMessage   message of the exception, null if there is no message.
+ */
+public record RetryMetadata(
+    int originalPartition,
+    long originalOffset,
+    String exceptionFqcn,
+    String exceptionCauseFqcn,
+    String exceptionMessage
+) {
+
+  public static final String HEADER = "retry-metadata";
+  public static final byte VERSION = 1;
+  static final int UNKNOWN = -1;
+
+  // Ids of the classes are their positions: add new classes only to the end of the list.
+  private static final List<String> KNOWN_CLASS_NAMES = List.of(
+      ProcessingException.class.getName(),
+      ProcessingFatalException.class.getName(),
+      CircuitOpenException.class.getName(),
+      "org.springframework.kafka.listener.ListenerExecutionFailedException",
+      "org.springframework.kafka.listener.TimestampedException",
+      "org.springframework.kafka.support.serializer.DeserializationException",
+      "org.springframework.messaging.converter.MessageConversionException",
+      "java.lang.RuntimeException",
+      "java.lang.IllegalArgumentException",
+      "java.lang.IllegalStateException",
+      "java.lang.NullPointerException",
+      "java.util.concurrent.TimeoutException",
+      "java.io.IOException",
+      KeyParkedException.class.getName());
+  private static final Map<String, Integer> KNOWN_CLASS_IDS = new HashMap<>();
+  private static final int NO_CLASS = 0;
+  private static final int INLINE_CLASS_NAME = 1;
+  private static final int FIRST_KNOWN_CLASS = 2;
+
+  static {
+    for (int id = 0; id < KNOWN_CLASS_NAMES.size(); id++) {
+      KNOWN_CLASS_IDS.put(KNOWN_CLASS_NAMES.get(id), id);
+    }
+  }
+
+  public byte[] encode() {
+    byte[] message = exceptionMessage == null ? new byte[0] : exceptionMessage.getBytes(UTF_8);
+    var writer = new Writer(32 + message.length + classNameLength(exceptionFqcn)
+        + classNameLength(exceptionCauseFqcn));
+    writer.writeByte(VERSION);
+    writer.writeVarLong(originalPartition + 1L);
+    writer.writeVarLong(originalOffset + 1);
+    writer.writeClassName(exceptionFqcn);
+    writer.writeClassName(exceptionCauseFqcn);
+    writer.writeBytes(message);
+    return writer.toByteArray();
+  }
+
+  /**
+   * @return the metadata, or null if it's written by another version of the format.
+   */
+  public static RetryMetadata decode(byte[] header) {
+    if (!isSupported(header)) {
+      return null;
+    }
+    var reader = new Reader(header);
+    int originalPartition = (int) reader.readVarLong() - 1;
+    long originalOffset = reader.readVarLong() - 1;
+    String exceptionFqcn = reader.readClassName();
+    String exceptionCauseFqcn = reader.readClassName();
+    byte[] message = reader.readBytes();
+    return new RetryMetadata(originalPartition, originalOffset, exceptionFqcn, exceptionCauseFqcn,
+        message.length == 0 ? null : new String(message, UTF_8));
+  }
+
+  /**
+   * Reads only the original partition, without allocations.
+   */
+  static int decodeOriginalPartition(byte[] header) {
+    return isSupported(header) ? (int) new Reader(header).readVarLong() - 1 : UNKNOWN;
+  }
+
+  /**
+   * Reads only the original offset, without allocations.
+   */
+  static long decodeOriginalOffset(byte[] header) {
+    if (!isSupported(header)) {
+      return UNKNOWN;
+    }
+    var reader = new Reader(header);
+    reader.readVarLong();
+    return reader.readVarLong() - 1;
+  }
+
+  private static boolean isSupported(byte[] header) {
+    return header != null && header.length > 0 && header[0] == VERSION;
+  }
+
+  private static int classNameLength(String className) {
+    return className == null || KNOWN_CLASS_IDS.containsKey(className)
+        ? 0 : className.length() * 3;
+  }
+
+  private static final class Writer {
+
+    private byte[] buffer;
+    private int position;
+
+    private Writer(int capacity) {
+      this.buffer = new byte[capacity];
+    }
+
+    private void writeByte(int value) {
+      if (position == buffer.length) {
+        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    private void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        writeByte((int) (value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      writeByte((int) value);
+    }
+
+    private void writeBytes(byte[] bytes) {
+      writeVarLong(bytes.length);
+      for (byte b : bytes) {
+        writeByte(b);
+      }
+    }
+
+    private void writeClassName(String className) {
+      if (className == null) {
+        writeVarLong(NO_CLASS);
+        return;
+      }
+      Integer knownClassId = KNOWN_CLASS_IDS.get(className);
+      if (knownClassId != null) {
+        writeVarLong(FIRST_KNOWN_CLASS + knownClassId);
+      } else {
+        writeVarLong(INLINE_CLASS_NAME);
+        writeBytes(className.getBytes(UTF_8));
+      }
+    }
+
+    private byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+  }
+
+  private static final class Reader {
+
+    private final byte[] buffer;
+    // Skips the version
+    private int position = 1;
+
+    private Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        byte b = buffer[position++];
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+    }
+
+    private byte[] readBytes() {
+      int length = (int) readVarLong();
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    private String readClassName() {
+      int classRef = (int) readVarLong();
+      if (classRef == NO_CLASS) {
+        return null;
+      }
+      if (classRef == INLINE_CLASS_NAME) {
+        return new String(readBytes(), UTF_8);
+      }
+      int knownClassId = classRef - FIRST_KNOWN_CLASS;
+      // A newer writer may know more classes
+      return knownClassId < KNOWN_CLASS_NAMES.size() ? KNOWN_CLASS_NAMES.get(knownClassId) : null;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.enbirr.springkafkaretry;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MAIN_LISTENER_SHOULD_BE_RUNNING;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.STARTUP_TOOK_TOO_LONG;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.enbirr.springkafkaretry.consumer.KafkaConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the whole application the way a new instance is started when the consumer group is
+ * scaled out, and fails if it takes longer than "startup.max-ms", so slow startup regressions are
+ * caught. No broker is needed: with the topic checks switched off nothing waits for it.
+ * <p>
+ * mvn test -Dtest=SpringKafkaApplicationStartupTest -Dstartup.max-ms=5000
+ */
+@Slf4j
+class SpringKafkaApplicationStartupTest {
+
+  private static final long STARTUP_MAX_MS = Long.getLong("startup.max-ms", 10_000);
+  // Nothing listens on this port: consumers keep trying to connect in the background
+  private static final String UNAVAILABLE_BROKER = "localhost:1";
+
+  @Test
+  void givenLazyInitAndNoTopicChecks_whenAppStarts_thenItStartsInTimeWithMainListener() {
+    // GIVEN
+    String[] args = {
+        "--spring.main.lazy-initialization=true",
+        "--kafka.startup.topic-checks.enabled=false",
+        "--spring.jmx.enabled=false",
+        "--spring.kafka.producer.bootstrap-servers=" + UNAVAILABLE_BROKER,
+        "--spring.kafka.consumer.bootstrap-servers=" + UNAVAILABLE_BROKER};
+
+    // WHEN
+    long startNanos = System.nanoTime();
+    try (ConfigurableApplicationContext context =
+        new SpringApplicationBuilder(SpringKafkaApplication.class).run(args)) {
+      long startupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      log.info("Application started in {} ms (max {} ms)", startupMs, STARTUP_MAX_MS);
+
+      // THEN
+      assertTrue(startupMs <= STARTUP_MAX_MS, STARTUP_TOOK_TOO_LONG);
+      MessageListenerContainer mainListener = context.getBean(KafkaListenerEndpointRegistry.class)
+          .getListenerContainer(KafkaConsumer.MAIN_LISTENER_ID);
+      assertNotNull(mainListener, MAIN_LISTENER_SHOULD_BE_RUNNING);
+      assertTrue(mainListener.isRunning(), MAIN_LISTENER_SHOULD_BE_RUNNING);
+    }
+  }
+}
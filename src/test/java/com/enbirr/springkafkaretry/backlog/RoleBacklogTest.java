@@ -0,0 +1,30 @@
+package com.enbirr.springkafkaretry.backlog;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_DRAIN_TIME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class RoleBacklogTest {
+
+  @Test
+  void givenLagAndFasterConsuming_whenDrainTimeIsEstimated_thenRatesDifferenceIsUsed() {
+    // GIVEN 1000 records behind, consumed by 150 per second while 50 per second are written
+    long lag = 1000;
+
+    // WHEN
+    long drainSeconds = RoleBacklog.estimateDrainSeconds(lag, 150, 50);
+
+    // THEN
+    assertEquals(10, drainSeconds, UNEXPECTED_DRAIN_TIME);
+  }
+
+  @Test
+  void givenNoLagOrSlowerConsuming_whenDrainTimeIsEstimated_thenItIsZeroOrNotDraining() {
+    assertEquals(0, RoleBacklog.estimateDrainSeconds(0, 0, 100), UNEXPECTED_DRAIN_TIME);
+    assertEquals(RoleBacklog.NOT_DRAINING, RoleBacklog.estimateDrainSeconds(1000, 50, 50),
+        UNEXPECTED_DRAIN_TIME);
+    assertEquals(RoleBacklog.NOT_DRAINING, RoleBacklog.estimateDrainSeconds(1000, 0, 0),
+        UNEXPECTED_DRAIN_TIME);
+  }
+}
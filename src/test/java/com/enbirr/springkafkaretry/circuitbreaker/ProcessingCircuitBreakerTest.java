@@ -0,0 +1,138 @@
+package com.enbirr.springkafkaretry.circuitbreaker;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_CIRCUIT_BREAKER_STATE;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.enbirr.springkafkaretry.circuitbreaker.ProcessingCircuitBreaker.State;
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.exception.CircuitOpenException;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.util.TestDataGenerator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.List;
+
+class ProcessingCircuitBreakerTest {
+
+  private static final String MAIN_TOPIC = "spring.kafka.example";
+  private static final ConsumerRecord<String, String> MAIN_TOPIC_RECORD =
+      new ConsumerRecord<>(MAIN_TOPIC, 0, 0L, "key", "value");
+
+  private final MessageListenerContainer mainTopicContainer = mock(MessageListenerContainer.class);
+  private final TaskScheduler scheduler = mock(TaskScheduler.class);
+  private ProcessingCircuitBreaker circuitBreaker;
+
+  @BeforeEach
+  void setUp() {
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setMainTopic(MAIN_TOPIC);
+    kafkaProperties.setRetryTopicSuffix(".retry");
+    kafkaProperties.setDlqTopicSuffix(".dlq");
+    kafkaProperties.setCircuitBreakerEnabled(true);
+    kafkaProperties.setCircuitBreakerFailureRatePercentage(50);
+    kafkaProperties.setCircuitBreakerWindowSize(10);
+    kafkaProperties.setCircuitBreakerMinimumRecords(4);
+    kafkaProperties.setCircuitBreakerTrialRecords(2);
+
+    when(mainTopicContainer.getContainerProperties())
+        .thenReturn(new ContainerProperties(MAIN_TOPIC));
+    var containerRegistry = mock(KafkaListenerEndpointRegistry.class);
+    when(containerRegistry.getAllListenerContainers()).thenReturn(List.of(mainTopicContainer));
+
+    circuitBreaker = new ProcessingCircuitBreaker(kafkaProperties, containerRegistry, scheduler);
+  }
+
+  @Test
+  void givenRetryableFailuresReachThreshold_whenNextRecordComes_thenItStaysInMainTopic() {
+    // GIVEN
+    circuitBreaker.onSuccess(MAIN_TOPIC_RECORD);
+    circuitBreaker.onSuccess(MAIN_TOPIC_RECORD);
+    failWithRetryableError();
+
+    // WHEN
+    failWithRetryableError();
+
+    // THEN
+    assertEquals(State.OPEN, circuitBreaker.getState(), UNEXPECTED_CIRCUIT_BREAKER_STATE);
+    verify(mainTopicContainer).pause();
+    assertThrows(CircuitOpenException.class,
+        () -> circuitBreaker.acquirePermission(MAIN_TOPIC_RECORD));
+  }
+
+  @Test
+  void givenFatalFailures_whenTheyAreCounted_thenCircuitStaysClosed() {
+    for (int i = 0; i < 10; i++) {
+      circuitBreaker.onFailure(MAIN_TOPIC_RECORD,
+          TestDataGenerator.createProcessingFatalException());
+    }
+
+    assertEquals(State.CLOSED, circuitBreaker.getState(), UNEXPECTED_CIRCUIT_BREAKER_STATE);
+    assertEquals(10, circuitBreaker.getFatalFailuresCount().get());
+    verify(mainTopicContainer, never()).pause();
+  }
+
+  @Test
+  void givenOpenCircuit_whenTrialRecordsSucceed_thenCircuitCloses() {
+    // GIVEN
+    for (int i = 0; i < 4; i++) {
+      failWithRetryableError();
+    }
+    ArgumentCaptor<Runnable> halfOpenTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).schedule(halfOpenTask.capture(), any(Instant.class));
+
+    // WHEN
+    halfOpenTask.getValue().run();
+    circuitBreaker.acquirePermission(MAIN_TOPIC_RECORD);
+    circuitBreaker.onSuccess(MAIN_TOPIC_RECORD);
+    circuitBreaker.acquirePermission(MAIN_TOPIC_RECORD);
+    circuitBreaker.onSuccess(MAIN_TOPIC_RECORD);
+
+    // THEN
+    verify(mainTopicContainer).resume();
+    assertEquals(State.CLOSED, circuitBreaker.getState(), UNEXPECTED_CIRCUIT_BREAKER_STATE);
+  }
+
+  @Test
+  void givenHalfOpenCircuit_whenTrialPermitsAreReleased_thenTrialRecordsCouldStillCloseIt() {
+    // GIVEN
+    for (int i = 0; i < 4; i++) {
+      failWithRetryableError();
+    }
+    ArgumentCaptor<Runnable> halfOpenTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).schedule(halfOpenTask.capture(), any(Instant.class));
+    halfOpenTask.getValue().run();
+
+    // WHEN both trial records have thrown before their outcomes were counted
+    circuitBreaker.acquirePermission(MAIN_TOPIC_RECORD);
+    circuitBreaker.acquirePermission(MAIN_TOPIC_RECORD);
+    circuitBreaker.releasePermission(MAIN_TOPIC_RECORD);
+    circuitBreaker.releasePermission(MAIN_TOPIC_RECORD);
+
+    // THEN
+    for (int i = 0; i < 2; i++) {
+      circuitBreaker.acquirePermission(MAIN_TOPIC_RECORD);
+      circuitBreaker.onSuccess(MAIN_TOPIC_RECORD);
+    }
+    assertEquals(State.CLOSED, circuitBreaker.getState(), UNEXPECTED_CIRCUIT_BREAKER_STATE);
+  }
+
+  private void failWithRetryableError() {
+    circuitBreaker.onFailure(MAIN_TOPIC_RECORD,
+        new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED));
+  }
+}
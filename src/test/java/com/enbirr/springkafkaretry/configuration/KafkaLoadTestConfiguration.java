@@ -0,0 +1,70 @@
+package com.enbirr.springkafkaretry.configuration;
+
+import com.enbirr.springkafkaretry.circuitbreaker.ProcessingCircuitBreaker;
+import com.enbirr.springkafkaretry.consumer.KafkaConsumer;
+import com.enbirr.springkafkaretry.dedup.RecordDeduplicator;
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import com.enbirr.springkafkaretry.metrics.RetryAmplificationEndpoint;
+import com.enbirr.springkafkaretry.metrics.RetryDlqProducerListener;
+import com.enbirr.springkafkaretry.metrics.RetryMetrics;
+import com.enbirr.springkafkaretry.parking.KeyParking;
+import com.enbirr.springkafkaretry.ratelimit.ProcessingRateLimiter;
+import com.enbirr.springkafkaretry.service.ProcessingService;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.kafka.KafkaAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Application context for load tests. Unlike {@link KafkaTestConfiguration}, the real
+ * {@link ProcessingService} is used (its error percentages are set by the test properties), and the
+ * broker is the embedded one of spring-kafka-test, so Docker isn't needed.
+ * <p>
+ * Latency percentiles are taken from the application metrics, that's why the meter registry is
+ * configured to calculate them on the client side.
+ */
+@ImportAutoConfiguration(KafkaAutoConfiguration.class)
+@Import({
+    KafkaCustomProperties.class,
+    KafkaRetryDlqConfiguration.class,
+    KafkaListenerScalingConfiguration.class,
+    KafkaBatchListenerConfiguration.class,
+    KafkaTransactionConfiguration.class,
+    ProcessingService.class,
+    ProcessingPipelineConfiguration.class,
+    KafkaConsumer.class,
+    RetryMetrics.class,
+    RetryDlqProducerListener.class,
+    RetryAmplificationEndpoint.class,
+    ProcessingCircuitBreaker.class,
+    ProcessingRateLimiter.class,
+    RecordDeduplicator.class,
+    KeyParking.class,
+    RecordLogger.class})
+public class KafkaLoadTestConfiguration {
+
+  public static final double[] REPORTED_PERCENTILES = {0.5, 0.99, 0.999};
+
+  @Bean
+  public MeterRegistry meterRegistry() {
+    var meterRegistry = new SimpleMeterRegistry();
+    meterRegistry.config().meterFilter(new MeterFilter() {
+      @Override
+      public DistributionStatisticConfig configure(
+          Meter.Id id,
+          DistributionStatisticConfig config
+      ) {
+        return DistributionStatisticConfig.builder()
+            .percentiles(REPORTED_PERCENTILES)
+            .build()
+            .merge(config);
+      }
+    });
+    return meterRegistry;
+  }
+}
@@ -1,9 +1,21 @@
 package com.enbirr.springkafkaretry.configuration;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.enbirr.springkafkaretry.circuitbreaker.ProcessingCircuitBreaker;
 import com.enbirr.springkafkaretry.constants.KafkaTestMessages;
 import com.enbirr.springkafkaretry.consumer.KafkaConsumer;
 import com.enbirr.springkafkaretry.consumer.KafkaConsumerAspect;
+import com.enbirr.springkafkaretry.dedup.RecordDeduplicator;
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import com.enbirr.springkafkaretry.metrics.RetryMetrics;
+import com.enbirr.springkafkaretry.parking.KeyParking;
+import com.enbirr.springkafkaretry.pipeline.ProcessingPipeline;
+import com.enbirr.springkafkaretry.ratelimit.ProcessingRateLimiter;
+import com.enbirr.springkafkaretry.retry.RetryPolicies;
 import com.enbirr.springkafkaretry.service.ProcessingService;
+import com.enbirr.springkafkaretry.service.TruncationStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,16 +27,20 @@ import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.listener.KafkaMessageListenerContainer;
 import org.springframework.kafka.listener.MessageListener;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
 import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.scheduling.TaskScheduler;
 import org.testcontainers.containers.KafkaContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -72,8 +88,32 @@ public class KafkaTestConfiguration {
 
   // Bean for the class, which we test
   @Bean
-  public KafkaConsumer kafkaConsumer() {
-    return new KafkaConsumer(processingServiceMock, kafkaProperties);
+  public KafkaConsumer kafkaConsumer(
+      RetryMetrics retryMetrics,
+      ProcessingCircuitBreaker circuitBreaker,
+      DestinationTopicResolver destinationTopicResolver,
+      RetryPolicies retryPolicies
+  ) {
+    var processingPipeline = new ProcessingPipeline<String>(value -> new String(value, UTF_8),
+        List.of(new TruncationStage(processingServiceMock)));
+    return new KafkaConsumer(processingPipeline, retryPolicies, retryMetrics, circuitBreaker,
+        new ProcessingRateLimiter(kafkaProperties), new RecordDeduplicator(kafkaProperties),
+        new KeyParking(kafkaProperties, destinationTopicResolver),
+        new RecordLogger(kafkaProperties));
+  }
+
+  // Disabled by default, see kafka.circuit-breaker.enabled
+  @Bean
+  public ProcessingCircuitBreaker circuitBreaker(
+      KafkaListenerEndpointRegistry containerRegistry,
+      TaskScheduler scheduler
+  ) {
+    return new ProcessingCircuitBreaker(kafkaProperties, containerRegistry, scheduler);
+  }
+
+  @Bean
+  public RetryMetrics retryMetrics() {
+    return new RetryMetrics(new SimpleMeterRegistry(), kafkaProperties);
   }
 
   // Auxiliary object to catch the moment when Kafka consumer has processed a message.
@@ -84,15 +124,15 @@ public class KafkaTestConfiguration {
 
   // This queue will store consumed records from the retry and DLQ topics
   @Bean
-  public BlockingQueue<ConsumerRecord<String, String>> consumedRetryDlqRecords() {
+  public BlockingQueue<ConsumerRecord<String, byte[]>> consumedRetryDlqRecords() {
     return new LinkedBlockingQueue<>();
   }
 
   // Set up Retry & DLQ topics listener that fills consumed records queue.
   @Bean
-  public KafkaMessageListenerContainer<String, String> retryDlqListenerContainer(
-      ConsumerFactory<String, String> consumerFactory,
-      BlockingQueue<ConsumerRecord<String, String>> consumedRetryDlqRecords
+  public KafkaMessageListenerContainer<String, byte[]> retryDlqListenerContainer(
+      ConsumerFactory<String, byte[]> consumerFactory,
+      BlockingQueue<ConsumerRecord<String, byte[]>> consumedRetryDlqRecords
   ) {
     String retryTopic = kafkaProperties.getMainTopic() + kafkaProperties.getRetryTopicSuffix();
     String dlqTopic = kafkaProperties.getMainTopic() + kafkaProperties.getDlqTopicSuffix();
@@ -100,7 +140,7 @@ public class KafkaTestConfiguration {
     containerProperties.setGroupId("retry-and-dlq-group");
 
     var container = new KafkaMessageListenerContainer<>(consumerFactory, containerProperties);
-    container.setupMessageListener((MessageListener<String, String>) record -> {
+    container.setupMessageListener((MessageListener<String, byte[]>) record -> {
       logRetryDlqRecord(record);
       consumedRetryDlqRecords.add(record);
     });
@@ -112,11 +152,11 @@ public class KafkaTestConfiguration {
     return container;
   }
 
-  private static void logRetryDlqRecord(ConsumerRecord<String, String> record) {
+  private static void logRetryDlqRecord(ConsumerRecord<String, byte[]> record) {
     log.debug(KafkaTestMessages.RETRY_DLQ_TEST_LISTENER_RECEIVED_A_RECORD,
         record.topic(),
         record.partition(),
         record.offset(),
-        record.value());
+        new String(record.value(), UTF_8));
   }
 }
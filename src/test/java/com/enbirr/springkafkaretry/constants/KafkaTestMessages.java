@@ -14,6 +14,91 @@ public class KafkaTestMessages {
       + "message from retry topic";
   public static final String RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE = "Kafka record value for "
       + "all topics (main, retry, DLQ) should be equal to the message that was sent";
+  public static final String ALL_CORRECT_MESSAGES_SHOULD_BE_PROCESSED = "All correct messages "
+      + "of the batch should be processed by Kafka consumer";
+  public static final String UNEXPECTED_DELAY = "Delay before the next attempt doesn't match the "
+      + "retry policy";
+  public static final String DELAY_SHOULD_BE_WITHIN_JITTER_BOUNDS = "Delay with jitter should "
+      + "not differ from the delay of the retry topic more than the jitter allows";
+  public static final String UNEXPECTED_RETRY_DELAYS = "A retry topic should be created for each "
+      + "distinct delay of the retry policies up to the attempts limit";
+  public static final String RECORD_SHOULD_GO_TO_TOPIC_OF_ITS_DELAY = "Failed record should be "
+      + "sent to the retry topic of the delay its policy sets for the next attempt";
+  public static final String EXCEPTION_POLICY_SHOULD_BE_USED = "Retry policy of the exception "
+      + "(or of its superclass) should be used instead of the default one";
+  public static final String UNEXPECTED_RECORD_DETAILS = "Record details should contain the "
+      + "record coordinates and the attempt number decoded from the headers";
+  public static final String MAX_ATTEMPTS_SHOULD_BE_RESOLVED_LAZILY = "Max attempts count should "
+      + "be resolved only once and only when the record details are needed";
+  public static final String UNEXPECTED_CIRCUIT_BREAKER_STATE = "Circuit breaker state doesn't "
+      + "match the failures of the processed messages";
+  public static final String TRIAL_PERMIT_SHOULD_BE_RETURNED = "Trial permit of a record whose "
+      + "outcome was not counted should be returned to the half-open circuit";
+  public static final String REVOKED_PARTITION_RECORDS_SHOULD_BE_DROPPED = "Records of a revoked "
+      + "partition that were not being handled should not be handled by this instance";
+  public static final String RESTART_BACK_OFF_SHOULD_BE_CAPPED = "Restarts of the reactive "
+      + "pipeline should not back off longer than the max back-off";
+  public static final String RESTART_BACK_OFF_SHOULD_START_OVER = "Restart back-off should start "
+      + "over after the pipeline has handled a record";
+  public static final String UNEXPECTED_RATE_LIMIT = "Rate limit doesn't follow the "
+      + "outcomes of the processed messages";
+  public static final String UNEXPECTED_DEDUP_RESULT = "Only the records processed within the "
+      + "dedup window should be found";
+  public static final String UNEXPECTED_KEY_PARKING_RESULT = "Only the records behind a retried "
+      + "record of the same key should be parked";
+  public static final String UNEXPECTED_RETRY_METADATA = "Retry metadata read from the headers "
+      + "doesn't match the one that was written";
+  public static final String UPDATED_POLICY_SHOULD_BE_USED = "Retry policy changed at runtime "
+      + "should be used for the next failed records";
+  public static final String UNEXPECTED_DRAIN_TIME = "Drain time should be estimated from the "
+      + "lag and the difference of the consume and the produce rates";
+  public static final String UNEXPECTED_PIPELINE_FAILURE = "Failures of the pipeline should be "
+      + "classified by the stage, unreadable payloads should never be retried";
+  public static final String STARTUP_TOOK_TOO_LONG = "Application should start faster";
+  public static final String MAIN_LISTENER_SHOULD_BE_RUNNING = "Main topic listener should be "
+      + "created and started at startup even with lazy initialization";
+  public static final String UNEXPECTED_RESTORED_VALUE = "Value of the retry / DLQ record should "
+      + "be restored exactly as it was before the compression and the offloading";
+  public static final String KEY_ORDER_SHOULD_BE_KEPT = "Records with the same key should be "
+      + "processed in the order of the batch";
+  public static final String KEYS_SHOULD_BE_PROCESSED_IN_PARALLEL = "Records with different keys "
+      + "and records without key should be processed in parallel";
+  public static final String BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD = "Batch should fail at "
+      + "the lowest record that could not be sent, after the sends of the previous records are "
+      + "acknowledged, and the next records of its key should not be processed";
+  public static final String COMPLETED_RECORDS_SHOULD_BE_SKIPPED = "Records completed before the "
+      + "batch failed should not be processed again when the batch is redelivered";
+  public static final String RECORD_SHOULD_BE_SENT_EXACTLY_ONCE = "Failed record should be "
+      + "visible exactly once in the retry topic and in the DLQ under read_committed";
+  public static final String OFFSET_SHOULD_BE_COMMITTED_WITH_SENDS = "Offset of the failed "
+      + "record should be committed in the transaction that sent its copy";
+  public static final String UNRESTORED_VALUE_SHOULD_GO_TO_DLQ = "Value that could not be "
+      + "restored should be passed to the listener as a deserialization exception and sent to "
+      + "the DLQ as it was read, without the encoding headers";
+  public static final String OFFLOAD_DIRECTORY_SHOULD_BE_REQUIRED = "Offloading should not be "
+      + "switched on without an explicitly set directory";
+  public static final String UNEXPECTED_REDRIVE_FILTER_RESULT = "Redrive filter should match "
+      + "the exception headers and the original timestamp of the DLQ record";
+  public static final String REDRIVEN_RECORD_SHOULD_BE_PLAIN = "Redriven record should be sent "
+      + "to the main topic without the retry, the exception and the value encoding headers";
+  public static final String CHECKPOINT_SHOULD_NOT_PASS_END_OFFSETS = "Redrive checkpoint should "
+      + "not go beyond the end offsets the DLQ had at the start";
+  public static final String INVALID_REDRIVE_RATE_SHOULD_BE_REJECTED = "Redrive with a rate that "
+      + "is not positive should not be started";
+  public static final String REDRIVE_SHOULD_STOP_AT_ONCE = "Redrive waiting for the rate limit "
+      + "should stop at once and should not block the next start";
+  public static final String UNEXPECTED_LOGGED_PAYLOAD = "Logged payload should be redacted and "
+      + "truncated";
+  public static final String INVALID_REDACT_PATTERN_SHOULD_BE_REJECTED = "Redact pattern that "
+      + "could not be compiled should fail the startup instead of leaving payloads unredacted";
+  public static final String UNEXPECTED_ESCAPED_PAYLOAD = "Quotes, backslashes and line breaks "
+      + "of the logged payload should be escaped after the truncation";
+  public static final String UNEXPECTED_ESCAPED_STACK_TRACE = "Line breaks of the exception "
+      + "messages should be escaped, and the stack frames should stay on their own lines";
+  public static final String UNEXPECTED_STACK_TRACE_DEDUPLICATION = "Stack trace of the same "
+      + "failure should be logged once per window";
+  public static final String ALL_SENT_MESSAGES_SHOULD_BE_HANDLED = "Every message sent during "
+      + "the load test should be either processed successfully or sent to DLQ";
   public static final String RETRY_DLQ_TEST_LISTENER_RECEIVED_A_RECORD = "Retry & DLQ Test "
       + "Listener received a record (topic = {}, partition = {}, offset = {}): '{}'";
   public static final String RECORD_HEADER_SHOULD_BE_SPECIFIED = "Header %s should be specified "
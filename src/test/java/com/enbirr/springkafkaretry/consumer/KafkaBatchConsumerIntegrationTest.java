@@ -0,0 +1,117 @@
+package com.enbirr.springkafkaretry.consumer;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.ALL_CORRECT_MESSAGES_SHOULD_BE_PROCESSED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.DLQ_RECORD_SHOULD_BE_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MESSAGE_FROM_DLQ_TOPIC_WAS_EXPECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MESSAGE_FROM_RETRY_TOPIC_WAS_EXPECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RETRY_RECORD_SHOULD_BE_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.enbirr.springkafkaretry.configuration.KafkaBatchListenerConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.configuration.KafkaListenerScalingConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaRetryDlqConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaTestConfiguration;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.service.ProcessingService;
+import lombok.SneakyThrows;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+@SpringJUnitConfig(
+    classes = {
+        KafkaTestConfiguration.class,
+        KafkaRetryDlqConfiguration.class,
+        KafkaListenerScalingConfiguration.class,
+        KafkaBatchListenerConfiguration.class,
+        KafkaCustomProperties.class},
+    initializers = KafkaTestConfiguration.KafkaServerInitializer.class)
+@TestPropertySource(
+    value = "classpath:/application-test.properties",
+    properties = "kafka.batch.enabled=true")
+// Listeners of a cached context would compete with the ones of another test class.
+@DirtiesContext
+class KafkaBatchConsumerIntegrationTest {
+
+  private static final long AWAIT_TIMEOUT = 30;
+  @Autowired
+  private KafkaCustomProperties kafkaProperties;
+  @Autowired
+  private KafkaTemplate<String, String> kafkaTemplate;
+  @Autowired
+  private BlockingQueue<ConsumerRecord<String, byte[]>> retryAndDlqRecords;
+  @Autowired
+  private KafkaConsumerAspect kafkaConsumerAspect;
+  // Mocked KafkaConsumer's dependency
+  @Autowired
+  public ProcessingService processingServiceMock;
+
+  @Test
+  @SneakyThrows
+  void givenOneBadMessageInBatch_whenAppGetsBatch_thenOnlyBadMessageComesToRetryTopicAndThenToDlq() {
+    // GIVEN
+    String firstMessage = "first correct message";
+    String badMessage = "batch unprocessable message";
+    String lastMessage = "last correct message";
+
+    ProcessingException exception = new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED);
+    doThrow(exception).when(processingServiceMock).truncateMessageInRiskyWay(badMessage);
+
+    int expectedSuccessfulMessagesCount = 2;
+    CountDownLatch consumerLatch = new CountDownLatch(expectedSuccessfulMessagesCount);
+    kafkaConsumerAspect.reset(consumerLatch);
+
+    // WHEN
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), firstMessage);
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), badMessage);
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), lastMessage);
+
+    // THEN
+    assertTrue(consumerLatch.await(AWAIT_TIMEOUT, SECONDS), ALL_CORRECT_MESSAGES_SHOULD_BE_PROCESSED);
+    waitAndVerifyRetryAndDlqRecords(badMessage);
+
+    verify(processingServiceMock, times(1)).truncateMessageInRiskyWay(firstMessage);
+    verify(processingServiceMock, times(1)).truncateMessageInRiskyWay(lastMessage);
+    verify(processingServiceMock, times(kafkaProperties.getAttemptsMaxCount()))
+        .truncateMessageInRiskyWay(badMessage);
+  }
+
+  @SneakyThrows
+  private void waitAndVerifyRetryAndDlqRecords(String expectedPayload) {
+    String retryTopic = kafkaProperties.getMainTopic() + kafkaProperties.getRetryTopicSuffix();
+    String dlqTopic = kafkaProperties.getMainTopic() + kafkaProperties.getDlqTopicSuffix();
+    int attemptsForMainTopic = 1;
+    int expectedRetriesCount = kafkaProperties.getAttemptsMaxCount() - attemptsForMainTopic;
+
+    for (int i = 0; i < expectedRetriesCount; i++) {
+      ConsumerRecord<String, byte[]> retryRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+      assertNotNull(retryRecord, RETRY_RECORD_SHOULD_BE_RECEIVED);
+      assertEquals(retryTopic, retryRecord.topic(), MESSAGE_FROM_RETRY_TOPIC_WAS_EXPECTED);
+      assertEquals(expectedPayload, new String(retryRecord.value(), UTF_8),
+          RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+    }
+
+    ConsumerRecord<String, byte[]> dlqRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+    assertNotNull(dlqRecord, DLQ_RECORD_SHOULD_BE_RECEIVED);
+    assertEquals(dlqTopic, dlqRecord.topic(), MESSAGE_FROM_DLQ_TOPIC_WAS_EXPECTED);
+    assertEquals(expectedPayload, new String(dlqRecord.value(), UTF_8),
+        RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+  }
+}
@@ -22,6 +22,7 @@ import static org.springframework.kafka.support.KafkaHeaders.EXCEPTION_FQCN;
 import static org.springframework.kafka.support.KafkaHeaders.EXCEPTION_MESSAGE;
 
 import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.configuration.KafkaListenerScalingConfiguration;
 import com.enbirr.springkafkaretry.configuration.KafkaRetryDlqConfiguration;
 import com.enbirr.springkafkaretry.configuration.KafkaTestConfiguration;
 import com.enbirr.springkafkaretry.exception.ProcessingException;
@@ -36,6 +37,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
 
@@ -46,9 +48,12 @@ import java.util.concurrent.CountDownLatch;
     classes = {
         KafkaTestConfiguration.class,
         KafkaRetryDlqConfiguration.class,
+        KafkaListenerScalingConfiguration.class,
         KafkaCustomProperties.class},
     initializers = KafkaTestConfiguration.KafkaServerInitializer.class)
 @TestPropertySource(value = "classpath:/application-test.properties")
+// Listeners of a cached context would compete with the ones of another test class.
+@DirtiesContext
 class KafkaConsumerIntegrationTest {
 
   private static final long AWAIT_TIMEOUT = 30;
@@ -57,7 +62,7 @@ class KafkaConsumerIntegrationTest {
   @Autowired
   private KafkaTemplate<String, String> kafkaTemplate;
   @Autowired
-  private BlockingQueue<ConsumerRecord<String, String>> retryAndDlqRecords;
+  private BlockingQueue<ConsumerRecord<String, byte[]>> retryAndDlqRecords;
   @Autowired
   private KafkaConsumerAspect kafkaConsumerAspect;
   // Mocked KafkaConsumer's dependency
@@ -128,10 +133,11 @@ class KafkaConsumerIntegrationTest {
     int expectedRetriesCount = kafkaProperties.getAttemptsMaxCount() - attemptsForMainTopic;
 
     for (int i = 0; i < expectedRetriesCount; i++) {
-      ConsumerRecord<String, String> retryRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+      ConsumerRecord<String, byte[]> retryRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
       assertNotNull(retryRecord, RETRY_RECORD_SHOULD_BE_RECEIVED);
       assertEquals(retryTopic, retryRecord.topic(), MESSAGE_FROM_RETRY_TOPIC_WAS_EXPECTED);
-      assertEquals(expectedPayload, retryRecord.value(), RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+      assertEquals(expectedPayload, new String(retryRecord.value(), UTF_8),
+          RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
       assertExceptionHeadersAreValid(retryRecord.headers(), occurredException);
     }
   }
@@ -139,10 +145,11 @@ class KafkaConsumerIntegrationTest {
   @SneakyThrows
   private void waitAndVerifyDlqRecord(String expectedPayload, Exception occurredException) {
     String dlqTopic = kafkaProperties.getMainTopic() + kafkaProperties.getDlqTopicSuffix();
-    ConsumerRecord<String, String> dlqRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+    ConsumerRecord<String, byte[]> dlqRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
     assertNotNull(dlqRecord, DLQ_RECORD_SHOULD_BE_RECEIVED);
     assertEquals(dlqTopic, dlqRecord.topic(), MESSAGE_FROM_DLQ_TOPIC_WAS_EXPECTED);
-    assertEquals(expectedPayload, dlqRecord.value(), RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+    assertEquals(expectedPayload, new String(dlqRecord.value(), UTF_8),
+        RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
 
     assertExceptionHeadersAreValid(dlqRecord.headers(), occurredException);
   }
@@ -0,0 +1,98 @@
+package com.enbirr.springkafkaretry.consumer;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.TRIAL_PERMIT_SHOULD_BE_RETURNED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.enbirr.springkafkaretry.circuitbreaker.ProcessingCircuitBreaker;
+import com.enbirr.springkafkaretry.circuitbreaker.ProcessingCircuitBreaker.State;
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.dedup.RecordDeduplicator;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import com.enbirr.springkafkaretry.metrics.RetryMetrics;
+import com.enbirr.springkafkaretry.parking.KeyParking;
+import com.enbirr.springkafkaretry.pipeline.ProcessingPipeline;
+import com.enbirr.springkafkaretry.ratelimit.ProcessingRateLimiter;
+import com.enbirr.springkafkaretry.retry.RetryPolicies;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.List;
+
+class KafkaConsumerTest {
+
+  private static final String MAIN_TOPIC = "spring.kafka.example";
+  private static final ConsumerRecord<String, byte[]> MAIN_TOPIC_RECORD =
+      new ConsumerRecord<>(MAIN_TOPIC, 0, 0L, "key", "value".getBytes(UTF_8));
+
+  @Test
+  void givenHalfOpenCircuit_whenMetricsOfTrialRecordFail_thenItsPermitIsReturned() {
+    // GIVEN a half-open circuit with a single trial permit
+    ProcessingCircuitBreaker circuitBreaker = createHalfOpenCircuitBreaker();
+    RetryMetrics retryMetrics = mock(RetryMetrics.class);
+    doThrow(new IllegalStateException()).when(retryMetrics)
+        .recordProcessing(any(), any(Long.class), isNull());
+    var kafkaConsumer = new KafkaConsumer(
+        new ProcessingPipeline<String>(value -> new String(value, UTF_8), List.of()),
+        mock(RetryPolicies.class), retryMetrics, circuitBreaker,
+        mock(ProcessingRateLimiter.class), mock(RecordDeduplicator.class), mock(KeyParking.class),
+        mock(RecordLogger.class));
+
+    // WHEN the trial record is processed, but its outcome is not counted
+    assertThrows(IllegalStateException.class,
+        () -> kafkaConsumer.consumeMessage(MAIN_TOPIC_RECORD));
+
+    // THEN the next record gets the trial permit and closes the circuit
+    reset(retryMetrics);
+    assertDoesNotThrow(() -> kafkaConsumer.consumeMessage(MAIN_TOPIC_RECORD),
+        TRIAL_PERMIT_SHOULD_BE_RETURNED);
+    assertEquals(State.CLOSED, circuitBreaker.getState(), TRIAL_PERMIT_SHOULD_BE_RETURNED);
+  }
+
+  private static ProcessingCircuitBreaker createHalfOpenCircuitBreaker() {
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setMainTopic(MAIN_TOPIC);
+    kafkaProperties.setRetryTopicSuffix(".retry");
+    kafkaProperties.setDlqTopicSuffix(".dlq");
+    kafkaProperties.setCircuitBreakerEnabled(true);
+    kafkaProperties.setCircuitBreakerFailureRatePercentage(50);
+    kafkaProperties.setCircuitBreakerWindowSize(10);
+    kafkaProperties.setCircuitBreakerMinimumRecords(2);
+    kafkaProperties.setCircuitBreakerTrialRecords(1);
+
+    MessageListenerContainer mainTopicContainer = mock(MessageListenerContainer.class);
+    when(mainTopicContainer.getContainerProperties())
+        .thenReturn(new ContainerProperties(MAIN_TOPIC));
+    var containerRegistry = mock(KafkaListenerEndpointRegistry.class);
+    when(containerRegistry.getAllListenerContainers()).thenReturn(List.of(mainTopicContainer));
+    TaskScheduler scheduler = mock(TaskScheduler.class);
+    var circuitBreaker = new ProcessingCircuitBreaker(kafkaProperties, containerRegistry,
+        scheduler);
+
+    for (int i = 0; i < 2; i++) {
+      circuitBreaker.onFailure(MAIN_TOPIC_RECORD,
+          new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED));
+    }
+    ArgumentCaptor<Runnable> halfOpenTask = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler).schedule(halfOpenTask.capture(), any(Instant.class));
+    halfOpenTask.getValue().run();
+    return circuitBreaker;
+  }
+}
@@ -0,0 +1,284 @@
+package com.enbirr.springkafkaretry.consumer;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.ALL_SENT_MESSAGES_SHOULD_BE_HANDLED;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.ATTEMPT_TAG;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.END_TO_END_DELAY_TIMER;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.OUTCOME_TAG;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.PROCESSING_TIMER;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.PUBLISHED_COUNTER;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.SUCCESS_OUTCOME;
+import static com.enbirr.springkafkaretry.metrics.RetryMetrics.TOPIC_ROLE_TAG;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.configuration.KafkaLoadTestConfiguration;
+import com.enbirr.springkafkaretry.metrics.RetryAmplificationEndpoint;
+import com.enbirr.springkafkaretry.metrics.RetryAmplificationEndpoint.RetryAmplification;
+import com.enbirr.springkafkaretry.ratelimit.TokenBucket;
+import com.enbirr.springkafkaretry.retry.TopicRole;
+import com.enbirr.springkafkaretry.util.TestDataGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Sends messages at the configured rate into the embedded Kafka broker and reports throughput,
+ * end-to-end latency percentiles per attempt, retry amplification and consumer lag over time.
+ * <p>
+ * It's excluded from the regular test run, see the "load" Maven profile:
+ * mvn -P load test -Dload.rate-per-second=2000 -Dload.duration-seconds=300
+ * <p>
+ * Delivery modes are compared by running it with the same load and different "load.batch" and
+ * "load.transactional" options: the mode is logged in the report.
+ */
+@Tag("load")
+@SpringJUnitConfig(KafkaLoadTestConfiguration.class)
+// A single broker has to keep the transaction state with a single replica
+@EmbeddedKafka(partitions = 4, topics = "${kafka.topic}", brokerProperties = {
+    "transaction.state.log.replication.factor=1",
+    "transaction.state.log.min.isr=1"})
+@TestPropertySource(
+    locations = "classpath:/application-test.properties",
+    properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "processing.error-percentage=${load.error-percentage:10}",
+        "processing.fatal-error-percentage=${load.fatal-error-percentage:1}",
+        "processing.stackless-exceptions=true",
+        "kafka.listener.main.concurrency=${load.concurrency:4}",
+        "kafka.listener.retry.concurrency=${load.concurrency:4}",
+        "kafka.batch.enabled=${load.batch:false}",
+        "kafka.transaction.enabled=${load.transactional:false}",
+        "kafka.retry.topic.partitions=4",
+        "kafka.dlq.topic.partitions=4"})
+@DirtiesContext
+@Slf4j
+class KafkaLoadTest {
+
+  // Messages are generated in advance, so the generation doesn't limit the sending rate.
+  private static final int MESSAGES_POOL_SIZE = 1000;
+  private static final long AWAIT_POLL_INTERVAL_MS = 100;
+
+  @Value("${load.rate-per-second:500}")
+  private int ratePerSecond;
+  @Value("${load.duration-seconds:30}")
+  private int durationSeconds;
+  @Value("${load.message-length:256}")
+  private int messageLength;
+  @Value("${load.drain-timeout-seconds:120}")
+  private int drainTimeoutSeconds;
+  @Value("${load.lag-sample-interval-ms:1000}")
+  private long lagSampleIntervalMs;
+  @Value("${kafka.batch.enabled}")
+  private boolean batchEnabled;
+
+  @Autowired
+  private KafkaCustomProperties kafkaProperties;
+  @Autowired
+  private KafkaTemplate<String, String> kafkaTemplate;
+  @Autowired
+  private KafkaAdmin kafkaAdmin;
+  @Autowired
+  private MeterRegistry meterRegistry;
+  @Autowired
+  private RetryAmplificationEndpoint retryAmplificationEndpoint;
+
+  @Test
+  @SneakyThrows
+  void givenConfiguredLoad_whenMessagesAreSent_thenAllOfThemAreProcessedOrSentToDlq() {
+    // GIVEN
+    List<String> messages = IntStream.range(0, MESSAGES_POOL_SIZE)
+        .mapToObj(i -> TestDataGenerator.generateMessage(messageLength))
+        .toList();
+    // Bursts are limited by a tenth of a second worth of messages
+    var sendingRate = new TokenBucket(ratePerSecond, Math.max(1, ratePerSecond / 10.0));
+    List<LagSample> lagSamples = Collections.synchronizedList(new ArrayList<>());
+    ScheduledExecutorService lagSampler = Executors.newSingleThreadScheduledExecutor();
+
+    try (AdminClient adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+      long startNanos = System.nanoTime();
+      lagSampler.scheduleAtFixedRate(() -> sampleLag(adminClient, startNanos, lagSamples),
+          0, lagSampleIntervalMs, MILLISECONDS);
+
+      // WHEN
+      long sentCount = 0;
+      long sendingDeadline = startNanos + SECONDS.toNanos(durationSeconds);
+      while (System.nanoTime() < sendingDeadline) {
+        sendingRate.acquire();
+        kafkaTemplate.send(kafkaProperties.getMainTopic(),
+            messages.get((int) (sentCount % MESSAGES_POOL_SIZE)));
+        sentCount++;
+      }
+      kafkaTemplate.flush();
+      long sendingNanos = System.nanoTime() - startNanos;
+
+      boolean allHandled = awaitHandled(sentCount);
+      long handlingNanos = System.nanoTime() - startNanos;
+      lagSampler.shutdownNow();
+
+      logReport(sentCount, sendingNanos, handlingNanos, lagSamples);
+
+      // THEN
+      assertTrue(allHandled, ALL_SENT_MESSAGES_SHOULD_BE_HANDLED);
+    } finally {
+      lagSampler.shutdownNow();
+    }
+  }
+
+  private boolean awaitHandled(long sentCount) throws InterruptedException {
+    long deadline = System.nanoTime() + SECONDS.toNanos(drainTimeoutSeconds);
+    while (countHandled() < sentCount) {
+      if (System.nanoTime() > deadline) {
+        return false;
+      }
+      MILLISECONDS.sleep(AWAIT_POLL_INTERVAL_MS);
+    }
+    return true;
+  }
+
+  // A record is handled when it's either processed successfully or sent to DLQ.
+  private long countHandled() {
+    long processed = meterRegistry.find(PROCESSING_TIMER)
+        .tag(OUTCOME_TAG, SUCCESS_OUTCOME)
+        .timers().stream()
+        .mapToLong(Timer::count)
+        .sum();
+    long sentToDlq = (long) meterRegistry.find(PUBLISHED_COUNTER)
+        .tag(TOPIC_ROLE_TAG, TopicRole.DLQ.getTagValue())
+        .counters().stream()
+        .mapToDouble(Counter::count)
+        .sum();
+    return processed + sentToDlq;
+  }
+
+  /**
+   * Sums up the lag of all consumer groups per topic role. Partitions without committed offsets
+   * (nothing was consumed from them yet) are not counted.
+   */
+  private void sampleLag(AdminClient adminClient, long startNanos, List<LagSample> lagSamples) {
+    try {
+      Map<TopicRole, Long> lagByRole = new EnumMap<>(TopicRole.class);
+      for (ConsumerGroupListing group : adminClient.listConsumerGroups().all().get()) {
+        Map<TopicPartition, OffsetAndMetadata> committedOffsets = adminClient
+            .listConsumerGroupOffsets(group.groupId())
+            .partitionsToOffsetAndMetadata().get();
+        committedOffsets.values().removeIf(Objects::isNull);
+        if (committedOffsets.isEmpty()) {
+          continue;
+        }
+
+        Map<TopicPartition, OffsetSpec> latestOffsetsRequest = committedOffsets.keySet().stream()
+            .collect(Collectors.toMap(partition -> partition, partition -> OffsetSpec.latest()));
+        Map<TopicPartition, ListOffsetsResultInfo> latestOffsets = adminClient
+            .listOffsets(latestOffsetsRequest).all().get();
+
+        committedOffsets.forEach((partition, committedOffset) -> lagByRole.merge(
+            TopicRole.of(partition.topic(), kafkaProperties),
+            Math.max(0, latestOffsets.get(partition).offset() - committedOffset.offset()),
+            Long::sum));
+      }
+      long elapsedMs = NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+      lagSamples.add(new LagSample(elapsedMs,
+          lagByRole.getOrDefault(TopicRole.MAIN, 0L),
+          lagByRole.getOrDefault(TopicRole.RETRY, 0L)));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.warn("Failed to sample consumer lag: {}", e.toString());
+    }
+  }
+
+  private void logReport(
+      long sentCount,
+      long sendingNanos,
+      long handlingNanos,
+      List<LagSample> lagSamples
+  ) {
+    double sendingSeconds = sendingNanos / (double) SECONDS.toNanos(1);
+    double handlingSeconds = handlingNanos / (double) SECONDS.toNanos(1);
+    long handledCount = countHandled();
+    log.info("Load test report ({}). Sent {} messages in {} s ({} msg/s), handled {} in {} s "
+            + "({} msg/s)", describeMode(), sentCount, format(sendingSeconds), format(sentCount / sendingSeconds),
+        handledCount, format(handlingSeconds), format(handledCount / handlingSeconds));
+
+    log.info("End-to-end latency of the successfully processed records, ms:");
+    meterRegistry.find(END_TO_END_DELAY_TIMER).timers().stream()
+        .sorted(Comparator.comparing(timer -> Integer.parseInt(timer.getId().getTag(ATTEMPT_TAG))))
+        .forEach(timer -> log.info("  attempt {}: count = {}, {}",
+            timer.getId().getTag(ATTEMPT_TAG), timer.count(), formatPercentiles(timer)));
+
+    RetryAmplification amplification = retryAmplificationEndpoint.retryAmplification();
+    log.info("Retry amplification = {}, DLQ rate = {}, sent to retry = {}, sent to DLQ = {}",
+        format(amplification.amplification()), format(amplification.dlqRate()),
+        amplification.sentToRetry(), amplification.sentToDlq());
+
+    log.info("Consumer lag over time (elapsed ms: main topic lag / retry topics lag):");
+    synchronized (lagSamples) {
+      lagSamples.forEach(sample -> log.info("  {}: {} / {}",
+          sample.elapsedMs(), sample.mainTopicLag(), sample.retryTopicsLag()));
+    }
+  }
+
+  private String describeMode() {
+    if (kafkaProperties.isTransactionEnabled()) {
+      return "exactly-once, batch listener";
+    }
+    return batchEnabled ? "at-least-once, batch listener" : "at-least-once, record listener";
+  }
+
+  private static String formatPercentiles(Timer timer) {
+    StringBuilder percentiles = new StringBuilder();
+    for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+      if (percentiles.length() > 0) {
+        percentiles.append(", ");
+      }
+      // e.g. p99.9
+      percentiles.append("p").append(Math.round(percentile.percentile() * 1000) / 10.0)
+          .append(" = ").append(format(percentile.value(MILLISECONDS)));
+    }
+    return percentiles.toString();
+  }
+
+  private static String format(double value) {
+    return String.format("%.2f", value);
+  }
+
+  private record LagSample(long elapsedMs, long mainTopicLag, long retryTopicsLag) {
+
+  }
+}
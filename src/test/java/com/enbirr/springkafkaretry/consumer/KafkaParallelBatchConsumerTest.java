@@ -0,0 +1,201 @@
+package com.enbirr.springkafkaretry.consumer;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.COMPLETED_RECORDS_SHOULD_BE_SKIPPED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.KEYS_SHOULD_BE_PROCESSED_IN_PARALLEL;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.KEY_ORDER_SHOULD_BE_KEPT;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.FAILED_TO_ROUTE_RECORD;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+class KafkaParallelBatchConsumerTest {
+
+  private static final String MAIN_TOPIC = "spring.kafka.example";
+  private static final long AWAIT_TIMEOUT = 5;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void givenRecordsOfSameKeys_whenBatchIsConsumed_thenEachKeyIsProcessedInBatchOrder() {
+    // GIVEN
+    List<ConsumerRecord<String, byte[]>> batch = createBatch(
+        "a", "b", "a", "c", "b", "a", "c", "a", "b");
+    var batchConsumer = new StubBatchConsumer(record -> {
+      // Later records of one key would overtake the earlier ones if they were not in order
+      sleepMillis(record.offset() % 3 == 0 ? 20 : 0);
+      return CompletableFuture.completedFuture(null);
+    });
+
+    // WHEN
+    new KafkaParallelBatchConsumer(batchConsumer, executor).onMessage(batch);
+
+    // THEN
+    Map<String, List<Long>> offsetsByKey = new HashMap<>();
+    batchConsumer.consumedRecords.forEach(record -> offsetsByKey
+        .computeIfAbsent(record.key(), key -> new ArrayList<>()).add(record.offset()));
+    assertEquals(List.of(0L, 2L, 5L, 7L), offsetsByKey.get("a"), KEY_ORDER_SHOULD_BE_KEPT);
+    assertEquals(List.of(1L, 4L, 8L), offsetsByKey.get("b"), KEY_ORDER_SHOULD_BE_KEPT);
+    assertEquals(List.of(3L, 6L), offsetsByKey.get("c"), KEY_ORDER_SHOULD_BE_KEPT);
+  }
+
+  @Test
+  void givenRecordsOfDifferentKeysAndWithoutKey_whenBatchIsConsumed_thenTheyAreProcessedInParallel() {
+    // GIVEN records, each of which waits for all the others to be started
+    List<ConsumerRecord<String, byte[]>> batch = createBatch("a", null, "b", null);
+    var allStarted = new CountDownLatch(batch.size());
+    Queue<Boolean> waitResults = new ConcurrentLinkedQueue<>();
+    var batchConsumer = new StubBatchConsumer(record -> {
+      allStarted.countDown();
+      waitResults.add(awaitLatch(allStarted));
+      return CompletableFuture.completedFuture(null);
+    });
+
+    // WHEN
+    new KafkaParallelBatchConsumer(batchConsumer, executor).onMessage(batch);
+
+    // THEN
+    assertEquals(List.of(true, true, true, true), List.copyOf(waitResults),
+        KEYS_SHOULD_BE_PROCESSED_IN_PARALLEL);
+  }
+
+  @Test
+  void givenUnroutableRecords_whenBatchIsConsumed_thenItFailsAtLowestOneAfterEarlierSends()
+      throws Exception {
+    // GIVEN: the send of the first record is not acknowledged yet, two records could not be sent
+    List<ConsumerRecord<String, byte[]>> batch = createBatch("a", "b", "c", "b", "a");
+    ConsumerRecord<String, byte[]> lowestUnroutableRecord = batch.get(1);
+    var firstSend = new CompletableFuture<Void>();
+    var batchConsumer = new StubBatchConsumer(record -> switch ((int) record.offset()) {
+      case 0 -> firstSend;
+      case 1, 2 -> throw new BatchListenerFailedException(FAILED_TO_ROUTE_RECORD, record);
+      default -> CompletableFuture.completedFuture(null);
+    });
+    var parallelBatchConsumer = new KafkaParallelBatchConsumer(batchConsumer, executor);
+
+    // WHEN
+    CompletableFuture<Void> consuming = CompletableFuture.runAsync(
+        () -> parallelBatchConsumer.onMessage(batch));
+
+    // THEN
+    assertThrows(TimeoutException.class, () -> consuming.get(200, MILLISECONDS),
+        BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD);
+    firstSend.complete(null);
+    ExecutionException exception = assertThrows(ExecutionException.class,
+        () -> consuming.get(AWAIT_TIMEOUT, SECONDS), BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD);
+    var batchException = assertInstanceOf(BatchListenerFailedException.class,
+        exception.getCause(), BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD);
+    assertSame(lowestUnroutableRecord, batchException.getRecord(),
+        BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD);
+    // The next record of the failed key must not overtake it
+    assertFalse(batchConsumer.consumedRecords.contains(batch.get(3)),
+        BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD);
+    assertTrue(batchConsumer.consumedRecords.contains(batch.get(4)),
+        BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD);
+  }
+
+  @Test
+  void givenBatchFailedAfterCompletedRecords_whenItIsRedelivered_thenOnlyTheRestIsProcessed() {
+    // GIVEN: the record of key "b" could not be sent, the later record of key "c" is completed
+    List<ConsumerRecord<String, byte[]>> batch = createBatch("a", "b", "c", "b");
+    var isRoutable = new AtomicBoolean();
+    var batchConsumer = new StubBatchConsumer(record -> {
+      if (record.offset() == 1 && !isRoutable.get()) {
+        throw new BatchListenerFailedException(FAILED_TO_ROUTE_RECORD, record);
+      }
+      return CompletableFuture.completedFuture(null);
+    });
+    var parallelBatchConsumer = new KafkaParallelBatchConsumer(batchConsumer, executor);
+    assertThrows(BatchListenerFailedException.class, () -> parallelBatchConsumer.onMessage(batch),
+        BATCH_SHOULD_FAIL_AT_LOWEST_FAILED_RECORD);
+    batchConsumer.consumedRecords.clear();
+    isRoutable.set(true);
+
+    // WHEN: the container redelivers the batch from the failed record
+    parallelBatchConsumer.onMessage(batch.subList(1, batch.size()));
+
+    // THEN
+    assertEquals(List.of(batch.get(1), batch.get(3)), List.copyOf(batchConsumer.consumedRecords),
+        COMPLETED_RECORDS_SHOULD_BE_SKIPPED);
+  }
+
+  private static List<ConsumerRecord<String, byte[]>> createBatch(String... keys) {
+    List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>();
+    for (int offset = 0; offset < keys.length; offset++) {
+      batch.add(new ConsumerRecord<>(MAIN_TOPIC, 0, offset, keys[offset],
+          ("value-" + offset).getBytes(UTF_8)));
+    }
+    return batch;
+  }
+
+  private static boolean awaitLatch(CountDownLatch latch) {
+    try {
+      return latch.await(AWAIT_TIMEOUT, SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private static void sleepMillis(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Handles a record by the given function instead of the processing and the recoverer.
+   */
+  private static class StubBatchConsumer extends KafkaBatchConsumer {
+
+    private final Function<ConsumerRecord<String, byte[]>, CompletableFuture<?>> handler;
+    private final Queue<ConsumerRecord<String, byte[]>> consumedRecords =
+        new ConcurrentLinkedQueue<>();
+
+    StubBatchConsumer(Function<ConsumerRecord<String, byte[]>, CompletableFuture<?>> handler) {
+      super(null, null, null);
+      this.handler = handler;
+    }
+
+    @Override
+    CompletableFuture<?> consumeOrSendToRetryOrDlq(
+        ConsumerRecord<String, byte[]> consumerRecord
+    ) {
+      consumedRecords.add(consumerRecord);
+      return handler.apply(consumerRecord);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package com.enbirr.springkafkaretry.consumer;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.ALL_CORRECT_MESSAGES_SHOULD_BE_PROCESSED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.DLQ_RECORD_SHOULD_BE_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MESSAGE_FROM_DLQ_TOPIC_WAS_EXPECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MESSAGE_FROM_RETRY_TOPIC_WAS_EXPECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.OFFSET_SHOULD_BE_COMMITTED_WITH_SENDS;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RECORD_SHOULD_BE_SENT_EXACTLY_ONCE;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RETRY_RECORD_SHOULD_BE_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+
+import com.enbirr.springkafkaretry.configuration.KafkaBatchListenerConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.configuration.KafkaListenerScalingConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaRetryDlqConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaTestConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaTransactionConfiguration;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.service.ProcessingService;
+import lombok.SneakyThrows;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Exactly-once mode against the embedded broker: the test listener of the retry topic and the DLQ
+ * reads committed records only, like the consumers of the application.
+ */
+@SpringJUnitConfig(
+    classes = {
+        KafkaTestConfiguration.class,
+        KafkaRetryDlqConfiguration.class,
+        KafkaListenerScalingConfiguration.class,
+        KafkaBatchListenerConfiguration.class,
+        KafkaTransactionConfiguration.class,
+        KafkaCustomProperties.class})
+// A single broker has to keep the transaction state with a single replica. One partition for each
+// topic, like the topics auto-created by the Kafka container.
+@EmbeddedKafka(topics = "${kafka.topic}", partitions = 1, brokerProperties = {
+    "transaction.state.log.replication.factor=1",
+    "transaction.state.log.min.isr=1"})
+@TestPropertySource(
+    value = "classpath:/application-test.properties",
+    properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "kafka.transaction.enabled=true"})
+// Listeners of a cached context would compete with the ones of another test class.
+@DirtiesContext
+class KafkaTransactionIntegrationTest {
+
+  private static final long AWAIT_TIMEOUT = 30;
+  // Time to catch a duplicate after the last expected record
+  private static final long DUPLICATES_TIMEOUT_MS = 3000;
+  private static final long AWAIT_POLL_INTERVAL_MS = 100;
+  @Value("${spring.kafka.consumer.group-id}")
+  private String groupId;
+  @Autowired
+  private KafkaCustomProperties kafkaProperties;
+  @Autowired
+  private KafkaTemplate<String, String> kafkaTemplate;
+  @Autowired
+  private KafkaAdmin kafkaAdmin;
+  @Autowired
+  private BlockingQueue<ConsumerRecord<String, byte[]>> retryAndDlqRecords;
+  @Autowired
+  private KafkaConsumerAspect kafkaConsumerAspect;
+  // Mocked KafkaConsumer's dependency
+  @Autowired
+  public ProcessingService processingServiceMock;
+
+  @Test
+  @SneakyThrows
+  void givenBadMessageInBatch_whenAppGetsBatch_thenItIsSentOnceToEachTopicAndOffsetIsCommitted() {
+    // GIVEN
+    String firstMessage = "first correct message";
+    String badMessage = "transactional unprocessable message";
+    String lastMessage = "last correct message";
+
+    ProcessingException exception = new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED);
+    doThrow(exception).when(processingServiceMock).truncateMessageInRiskyWay(badMessage);
+
+    CountDownLatch consumerLatch = new CountDownLatch(2);
+    kafkaConsumerAspect.reset(consumerLatch);
+
+    // WHEN
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), firstMessage);
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), badMessage);
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), lastMessage).get();
+
+    // THEN
+    assertTrue(consumerLatch.await(AWAIT_TIMEOUT, SECONDS), ALL_CORRECT_MESSAGES_SHOULD_BE_PROCESSED);
+    waitAndVerifyRetryAndDlqRecords(badMessage);
+    assertNull(retryAndDlqRecords.poll(DUPLICATES_TIMEOUT_MS, MILLISECONDS),
+        RECORD_SHOULD_BE_SENT_EXACTLY_ONCE);
+    waitForCommittedOffset(3);
+  }
+
+  @SneakyThrows
+  private void waitAndVerifyRetryAndDlqRecords(String expectedPayload) {
+    String retryTopic = kafkaProperties.getMainTopic() + kafkaProperties.getRetryTopicSuffix();
+    String dlqTopic = kafkaProperties.getMainTopic() + kafkaProperties.getDlqTopicSuffix();
+    int attemptsForMainTopic = 1;
+    int expectedRetriesCount = kafkaProperties.getAttemptsMaxCount() - attemptsForMainTopic;
+
+    for (int i = 0; i < expectedRetriesCount; i++) {
+      ConsumerRecord<String, byte[]> retryRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+      assertNotNull(retryRecord, RETRY_RECORD_SHOULD_BE_RECEIVED);
+      assertEquals(retryTopic, retryRecord.topic(), MESSAGE_FROM_RETRY_TOPIC_WAS_EXPECTED);
+      assertEquals(expectedPayload, new String(retryRecord.value(), UTF_8),
+          RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+    }
+
+    ConsumerRecord<String, byte[]> dlqRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+    assertNotNull(dlqRecord, DLQ_RECORD_SHOULD_BE_RECEIVED);
+    assertEquals(dlqTopic, dlqRecord.topic(), MESSAGE_FROM_DLQ_TOPIC_WAS_EXPECTED);
+    assertEquals(expectedPayload, new String(dlqRecord.value(), UTF_8),
+        RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+  }
+
+  /**
+   * Offsets of the main topic are committed by the transaction that sent the copy of the failed
+   * record, so the committed offset is the end of the sent messages.
+   */
+  @SneakyThrows
+  private void waitForCommittedOffset(long expectedOffset) {
+    var mainTopicPartition = new TopicPartition(kafkaProperties.getMainTopic(), 0);
+    long deadline = System.nanoTime() + SECONDS.toNanos(AWAIT_TIMEOUT);
+    long committedOffset = -1;
+    try (AdminClient adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+      while (committedOffset != expectedOffset && System.nanoTime() < deadline) {
+        OffsetAndMetadata offsetAndMetadata = adminClient
+            .listConsumerGroupOffsets(groupId)
+            .partitionsToOffsetAndMetadata().get()
+            .get(mainTopicPartition);
+        committedOffset = offsetAndMetadata == null ? -1 : offsetAndMetadata.offset();
+        Thread.sleep(AWAIT_POLL_INTERVAL_MS);
+      }
+    }
+    assertEquals(expectedOffset, committedOffset, OFFSET_SHOULD_BE_COMMITTED_WITH_SENDS);
+  }
+}
@@ -0,0 +1,57 @@
+package com.enbirr.springkafkaretry.dedup;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_DEDUP_RESULT;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ProcessedKeysWindowTest {
+
+  private static final long NO_TTL = Long.MAX_VALUE;
+
+  @Test
+  void givenFullWindow_whenKeyIsAdded_thenOldestKeyIsEvicted() {
+    // GIVEN
+    var window = new ProcessedKeysWindow(3, NO_TTL);
+    window.add(1, 0);
+    window.add(2, 0);
+    window.add(3, 0);
+
+    // WHEN
+    window.add(4, 0);
+
+    // THEN
+    assertFalse(window.contains(1, 0), UNEXPECTED_DEDUP_RESULT);
+    assertTrue(window.contains(2, 0), UNEXPECTED_DEDUP_RESULT);
+    assertTrue(window.contains(3, 0), UNEXPECTED_DEDUP_RESULT);
+    assertTrue(window.contains(4, 0), UNEXPECTED_DEDUP_RESULT);
+  }
+
+  @Test
+  void givenKeyAddedBeforeTtl_whenItIsChecked_thenItIsNotFound() {
+    var window = new ProcessedKeysWindow(10, 100);
+    window.add(1, 0);
+    window.add(2, 50);
+
+    assertFalse(window.contains(1, 100), UNEXPECTED_DEDUP_RESULT);
+    assertTrue(window.contains(2, 100), UNEXPECTED_DEDUP_RESULT);
+  }
+
+  @Test
+  void givenManyEvictions_whenKeysAreChecked_thenOnlyLastKeysAreFound() {
+    // Sequential keys (like offsets) collide in the hash table, evictions must keep them reachable
+    var window = new ProcessedKeysWindow(1000, NO_TTL);
+    for (long key = 0; key < 10_000; key++) {
+      window.add(key, 0);
+    }
+
+    for (long key = 0; key < 10_000; key++) {
+      if (key < 9_000) {
+        assertFalse(window.contains(key, 0), UNEXPECTED_DEDUP_RESULT);
+      } else {
+        assertTrue(window.contains(key, 0), UNEXPECTED_DEDUP_RESULT);
+      }
+    }
+  }
+}
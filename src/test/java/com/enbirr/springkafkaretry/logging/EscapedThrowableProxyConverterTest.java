@@ -0,0 +1,37 @@
+package com.enbirr.springkafkaretry.logging;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_ESCAPED_STACK_TRACE;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import org.junit.jupiter.api.Test;
+
+class EscapedThrowableProxyConverterTest {
+
+  private static final String FORGED_LINE = "time=2023-01-01T00:00:00.000Z level=INFO message=\"ok\"";
+
+  @Test
+  void givenExceptionMessagesWithLineBreaks_whenStackTraceIsConverted_thenTheyCantForgeLines() {
+    // GIVEN
+    var cause = new IllegalArgumentException("bad payload\n" + FORGED_LINE);
+    var exception = new ProcessingException("failed\r\n" + FORGED_LINE, cause);
+    var event = new LoggingEvent();
+    event.setThrowableProxy(new ThrowableProxy(exception));
+    var converter = new EscapedThrowableProxyConverter();
+    converter.start();
+
+    // WHEN
+    String stackTrace = converter.convert(event);
+
+    // THEN
+    assertFalse(stackTrace.lines().anyMatch(line -> line.startsWith("time=")),
+        UNEXPECTED_ESCAPED_STACK_TRACE);
+    assertTrue(stackTrace.contains("failed\\r\\ntime="), UNEXPECTED_ESCAPED_STACK_TRACE);
+    assertTrue(stackTrace.contains("bad payload\\ntime="), UNEXPECTED_ESCAPED_STACK_TRACE);
+    assertTrue(stackTrace.lines().anyMatch(line -> line.startsWith("\tat ")),
+        UNEXPECTED_ESCAPED_STACK_TRACE);
+  }
+}
@@ -0,0 +1,94 @@
+package com.enbirr.springkafkaretry.logging;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.INVALID_REDACT_PATTERN_SHOULD_BE_REJECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_ESCAPED_PAYLOAD;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_LOGGED_PAYLOAD;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_STACK_TRACE_DEDUPLICATION;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class RecordLoggerTest {
+
+  private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+  @Test
+  void givenRedactPatternAndMaxLength_whenPayloadIsFormatted_thenSecretsAreHiddenBeforeTruncation() {
+    // GIVEN
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setLoggingSuccessSampleRate(1.0);
+    kafkaProperties.setLoggingPayloadMaxLength(12);
+    kafkaProperties.setLoggingPayloadRedactPattern("\\d{13,19}|secret=\\w+");
+    var recordLogger = new RecordLogger(kafkaProperties);
+
+    // WHEN
+    String formattedPayload = recordLogger.formatPayload(
+        "card=4111111111111111;secret=x;name=John");
+
+    // THEN
+    assertEquals("card=***;***...(10 more characters)", formattedPayload,
+        UNEXPECTED_LOGGED_PAYLOAD);
+  }
+
+  @Test
+  void givenInvalidRedactPattern_whenLoggerIsCreated_thenApplicationFailsToStart() {
+    // GIVEN
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setLoggingPayloadRedactPattern("\\d{3,");
+
+    // WHEN
+    Executable creation = () -> new RecordLogger(kafkaProperties);
+
+    // THEN
+    assertThrows(IllegalArgumentException.class, creation,
+        INVALID_REDACT_PATTERN_SHOULD_BE_REJECTED);
+  }
+
+  @Test
+  void givenPayloadWithQuotesAndLineBreaks_whenPayloadIsFormatted_thenItCantBreakTheLogLine() {
+    // GIVEN
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setLoggingSuccessSampleRate(1.0);
+    kafkaProperties.setLoggingPayloadMaxLength(16);
+    var recordLogger = new RecordLogger(kafkaProperties);
+
+    // WHEN the payload ends with a backslash after the truncation
+    String formattedPayload = recordLogger.formatPayload(
+        "a\"\r\nlevel=ERROR\\\" message=\"forged\"");
+
+    // THEN
+    assertEquals("a\\\"\\r\\nlevel=ERROR\\\\...(18 more characters)", formattedPayload,
+        UNEXPECTED_ESCAPED_PAYLOAD);
+  }
+
+  @Test
+  void givenSameFailureThrownManyTimes_whenWindowPasses_thenNextStackTraceTellsSuppressedCount() {
+    // GIVEN
+    var deduplicator = new StackTraceDeduplicator(WINDOW_NANOS, 16);
+    long otherSignature = StackTraceDeduplicator.signatureOf(
+        new IllegalStateException(PROCESSING_ERROR_COULD_BE_RETRIED));
+
+    // WHEN
+    var results = new ArrayList<Long>();
+    for (long nowNanos : new long[]{0, 1, WINDOW_NANOS}) {
+      // Thrown from the same place, so the signature is the same whatever the message is
+      var failure = new ProcessingException("Failed at " + nowNanos);
+      results.add(deduplicator.tryLog(StackTraceDeduplicator.signatureOf(failure), nowNanos));
+    }
+    long other = deduplicator.tryLog(otherSignature, WINDOW_NANOS);
+
+    // THEN
+    assertEquals(List.of(0L, StackTraceDeduplicator.SUPPRESSED, 1L), results,
+        UNEXPECTED_STACK_TRACE_DEDUPLICATION);
+    assertEquals(0, other, UNEXPECTED_STACK_TRACE_DEDUPLICATION);
+  }
+}
@@ -0,0 +1,158 @@
+package com.enbirr.springkafkaretry.parking;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_KEY_PARKING_RESULT;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.kafka.support.KafkaHeaders.DLT_ORIGINAL_OFFSET;
+import static org.springframework.kafka.support.KafkaHeaders.DLT_ORIGINAL_PARTITION;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.util.RecordDetails;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.retrytopic.DestinationTopic;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.ByteBuffer;
+
+class KeyParkingTest {
+
+  private static final String MAIN_TOPIC = "spring.kafka.example";
+  private static final String RETRY_TOPIC = MAIN_TOPIC + ".retry";
+  private static final String KEY = "key";
+  private static final int MAX_ATTEMPTS_COUNT = 3;
+
+  private final DestinationTopic retryTopicDestination = mock(DestinationTopic.class);
+  private KeyParking keyParking;
+
+  @BeforeEach
+  void setUp() {
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setMainTopic(MAIN_TOPIC);
+    kafkaProperties.setRetryTopicSuffix(".retry");
+    kafkaProperties.setDlqTopicSuffix(".dlq");
+    kafkaProperties.setKeyParkingEnabled(true);
+    kafkaProperties.setKeyParkingMaxKeys(10);
+    kafkaProperties.setKeyParkingTtlMs(60_000);
+
+    var destinationTopicResolver = mock(DestinationTopicResolver.class);
+    when(destinationTopicResolver.resolveDestinationTopic(anyString(), anyString(), anyInt(),
+        any(), anyLong())).thenReturn(retryTopicDestination);
+    keyParking = new KeyParking(kafkaProperties, destinationTopicResolver);
+  }
+
+  @Test
+  void givenKeyWithRetriedRecord_whenLaterRecordsComeFromBothTopics_thenTheyWaitForItInOrder() {
+    // GIVEN the first record of the key has failed and goes to the retry topic
+    var failedRecord = new ConsumerRecord<>(MAIN_TOPIC, 0, 10L, KEY, "first");
+    keyParking.onFailure(failedRecord, detailsOf(failedRecord),
+        new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED));
+
+    // WHEN
+    var laterRecord = new ConsumerRecord<>(MAIN_TOPIC, 0, 11L, KEY, "second");
+    var otherKeyRecord = new ConsumerRecord<>(MAIN_TOPIC, 0, 12L, "other key", "third");
+    boolean laterRecordIsParked = keyParking.shouldPark(laterRecord, detailsOf(laterRecord));
+    boolean otherKeyRecordIsParked = keyParking.shouldPark(otherKeyRecord,
+        detailsOf(otherKeyRecord));
+
+    // THEN
+    assertTrue(laterRecordIsParked, UNEXPECTED_KEY_PARKING_RESULT);
+    assertFalse(otherKeyRecordIsParked, UNEXPECTED_KEY_PARKING_RESULT);
+
+    // The parked record has come from the retry topic before the failed one is processed
+    var parkedRetryRecord = retryRecordOf(laterRecord, 20L);
+    assertTrue(keyParking.shouldPark(parkedRetryRecord, detailsOf(parkedRetryRecord)),
+        UNEXPECTED_KEY_PARKING_RESULT);
+
+    var failedRetryRecord = retryRecordOf(failedRecord, 21L);
+    assertFalse(keyParking.shouldPark(failedRetryRecord, detailsOf(failedRetryRecord)),
+        UNEXPECTED_KEY_PARKING_RESULT);
+    keyParking.onProcessed(failedRetryRecord, detailsOf(failedRetryRecord));
+
+    // Now the parked record goes first
+    var parkedAgainRetryRecord = retryRecordOf(laterRecord, 22L);
+    assertFalse(keyParking.shouldPark(parkedAgainRetryRecord, detailsOf(parkedAgainRetryRecord)),
+        UNEXPECTED_KEY_PARKING_RESULT);
+    keyParking.onProcessed(parkedAgainRetryRecord, detailsOf(parkedAgainRetryRecord));
+
+    assertEquals(0, keyParking.getParkedKeysCount(), UNEXPECTED_KEY_PARKING_RESULT);
+  }
+
+  @Test
+  void givenRetryRecordGoingToDlq_whenItFails_thenItsKeyIsReleased() {
+    // GIVEN
+    var failedRecord = new ConsumerRecord<>(MAIN_TOPIC, 0, 10L, KEY, "first");
+    keyParking.onFailure(failedRecord, detailsOf(failedRecord),
+        new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED));
+    var failedRetryRecord = retryRecordOf(failedRecord, 20L);
+    keyParking.shouldPark(failedRetryRecord, detailsOf(failedRetryRecord));
+
+    // WHEN
+    when(retryTopicDestination.isDltTopic()).thenReturn(true);
+    keyParking.onFailure(failedRetryRecord, detailsOf(failedRetryRecord),
+        new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED));
+
+    // THEN
+    var laterRecord = new ConsumerRecord<>(MAIN_TOPIC, 0, 11L, KEY, "second");
+    assertFalse(keyParking.shouldPark(laterRecord, detailsOf(laterRecord)),
+        UNEXPECTED_KEY_PARKING_RESULT);
+    assertEquals(0, keyParking.getParkedKeysCount(), UNEXPECTED_KEY_PARKING_RESULT);
+  }
+
+  @Test
+  void givenKeyParkedInTransaction_whenTransactionIsRolledBack_thenKeyIsReleased() {
+    // GIVEN a batch, which records of the key have failed and have been parked in one transaction
+    var failedRecord = new ConsumerRecord<>(MAIN_TOPIC, 0, 10L, KEY, "first");
+    var laterRecord = new ConsumerRecord<>(MAIN_TOPIC, 0, 11L, KEY, "second");
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      keyParking.onFailure(failedRecord, detailsOf(failedRecord),
+          new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED));
+      assertTrue(keyParking.shouldPark(laterRecord, detailsOf(laterRecord)),
+          UNEXPECTED_KEY_PARKING_RESULT);
+
+      // WHEN
+      TransactionSynchronizationUtils.invokeAfterCompletion(
+          TransactionSynchronizationManager.getSynchronizations(),
+          TransactionSynchronization.STATUS_ROLLED_BACK);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    // THEN the redelivered batch is processed as if nothing has been parked
+    assertEquals(0, keyParking.getParkedKeysCount(), UNEXPECTED_KEY_PARKING_RESULT);
+    assertFalse(keyParking.shouldPark(failedRecord, detailsOf(failedRecord)),
+        UNEXPECTED_KEY_PARKING_RESULT);
+  }
+
+  private static RecordDetails detailsOf(ConsumerRecord<String, String> consumerRecord) {
+    return RecordDetails.of(consumerRecord, MAX_ATTEMPTS_COUNT);
+  }
+
+  private static ConsumerRecord<String, String> retryRecordOf(
+      ConsumerRecord<String, String> mainTopicRecord,
+      long retryTopicOffset
+  ) {
+    var retryRecord = new ConsumerRecord<>(RETRY_TOPIC, 0, retryTopicOffset, mainTopicRecord.key(),
+        mainTopicRecord.value());
+    retryRecord.headers()
+        .add(DLT_ORIGINAL_PARTITION,
+            ByteBuffer.allocate(Integer.BYTES).putInt(mainTopicRecord.partition()).array())
+        .add(DLT_ORIGINAL_OFFSET,
+            ByteBuffer.allocate(Long.BYTES).putLong(mainTopicRecord.offset()).array());
+    return retryRecord;
+  }
+}
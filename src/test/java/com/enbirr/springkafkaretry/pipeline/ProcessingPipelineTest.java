@@ -0,0 +1,71 @@
+package com.enbirr.springkafkaretry.pipeline;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_PIPELINE_FAILURE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.enbirr.springkafkaretry.exception.PayloadDeserializationException;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ProcessingPipelineTest {
+
+  private static final ConsumerRecord<String, byte[]> RECORD =
+      new ConsumerRecord<>("topic", 0, 0, "key", "not a number".getBytes(UTF_8));
+
+  @Test
+  void givenUnreadablePayload_whenRecordIsProcessed_thenItIsNotRetried() {
+    // GIVEN
+    var pipeline = new ProcessingPipeline<>(
+        new JsonPayloadDeserializer<>(new ObjectMapper(), Integer.class), List.of());
+
+    // WHEN
+    var exception = assertThrows(ProcessingException.class, () -> pipeline.process(RECORD));
+
+    // THEN
+    assertInstanceOf(PayloadDeserializationException.class, exception,
+        UNEXPECTED_PIPELINE_FAILURE);
+    assertInstanceOf(JsonProcessingException.class, exception.getCause(),
+        UNEXPECTED_PIPELINE_FAILURE);
+  }
+
+  @Test
+  void givenStageFailures_whenRecordIsProcessed_thenTheyAreClassifiedByTheStage() {
+    // GIVEN
+    ProcessingStage<String> failingStage = (payload, consumerRecord) -> {
+      throw new IllegalStateException(payload);
+    };
+    ProcessingStage<String> nonRetryableStage = new ProcessingStage<>() {
+      @Override
+      public String process(String payload, ConsumerRecord<?, ?> consumerRecord) {
+        throw new IllegalArgumentException(payload);
+      }
+
+      @Override
+      public boolean isRetryable(Exception exception) {
+        return false;
+      }
+    };
+    var retryablePipeline = new ProcessingPipeline<String>(value -> new String(value, UTF_8),
+        List.of(failingStage));
+    var fatalPipeline = new ProcessingPipeline<String>(value -> new String(value, UTF_8),
+        List.of(nonRetryableStage));
+
+    // WHEN
+    var retryable = assertThrows(ProcessingException.class,
+        () -> retryablePipeline.process(RECORD));
+    var fatal = assertThrows(ProcessingException.class, () -> fatalPipeline.process(RECORD));
+
+    // THEN
+    assertEquals(ProcessingException.class, retryable.getClass(), UNEXPECTED_PIPELINE_FAILURE);
+    assertInstanceOf(ProcessingFatalException.class, fatal, UNEXPECTED_PIPELINE_FAILURE);
+  }
+}
@@ -0,0 +1,68 @@
+package com.enbirr.springkafkaretry.ratelimit;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_RATE_LIMIT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveRateLimitTest {
+
+  @Test
+  void givenFailures_whenProcessingSucceedsAgain_thenRateGrowsBackAdditively() {
+    // GIVEN
+    var rateLimit = new AdaptiveRateLimit(5, 100, 10, 0.5, 0);
+    rateLimit.onFailure();
+    rateLimit.onFailure();
+    assertEquals(25, rateLimit.getPermitsPerSecond(), UNEXPECTED_RATE_LIMIT);
+
+    // WHEN
+    for (int i = 0; i < 3; i++) {
+      rateLimit.onSuccess();
+    }
+
+    // THEN
+    assertEquals(55, rateLimit.getPermitsPerSecond(), UNEXPECTED_RATE_LIMIT);
+  }
+
+  @Test
+  void givenManyFailuresAndSuccesses_whenRateChanges_thenItStaysWithinBounds() {
+    var rateLimit = new AdaptiveRateLimit(5, 100, 10, 0.5, 0);
+
+    for (int i = 0; i < 10; i++) {
+      rateLimit.onFailure();
+    }
+    assertEquals(5, rateLimit.getPermitsPerSecond(), UNEXPECTED_RATE_LIMIT);
+
+    for (int i = 0; i < 20; i++) {
+      rateLimit.onSuccess();
+    }
+    assertEquals(100, rateLimit.getPermitsPerSecond(), UNEXPECTED_RATE_LIMIT);
+  }
+
+  @Test
+  void givenFailuresAtTheSameMoment_whenAdjustmentIntervalIsSet_thenRateIsCutOnce() {
+    var rateLimit = new AdaptiveRateLimit(5, 100, 10, 0.5, 60_000);
+
+    rateLimit.onFailure();
+    rateLimit.onFailure();
+    rateLimit.onFailure();
+
+    assertEquals(50, rateLimit.getPermitsPerSecond(), UNEXPECTED_RATE_LIMIT);
+  }
+
+  @Test
+  void givenSuccessesWithinOneInterval_whenAdjustmentIntervalIsSet_thenRateGrowsOnce() {
+    // GIVEN
+    var rateLimit = new AdaptiveRateLimit(5, 100, 10, 0.5, 60_000);
+    rateLimit.onFailure();
+    assertEquals(50, rateLimit.getPermitsPerSecond(), UNEXPECTED_RATE_LIMIT);
+
+    // WHEN
+    for (int i = 0; i < 1000; i++) {
+      rateLimit.onSuccess();
+    }
+
+    // THEN
+    assertEquals(60, rateLimit.getPermitsPerSecond(), UNEXPECTED_RATE_LIMIT);
+  }
+}
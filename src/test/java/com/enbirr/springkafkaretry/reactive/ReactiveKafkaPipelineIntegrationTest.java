@@ -0,0 +1,125 @@
+package com.enbirr.springkafkaretry.reactive;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.DLQ_RECORD_SHOULD_BE_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MESSAGE_FROM_DLQ_TOPIC_WAS_EXPECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MESSAGE_FROM_RETRY_TOPIC_WAS_EXPECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RETRY_RECORD_SHOULD_BE_RECEIVED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.configuration.KafkaListenerScalingConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaReactiveConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaRetryDlqConfiguration;
+import com.enbirr.springkafkaretry.configuration.KafkaTestConfiguration;
+import com.enbirr.springkafkaretry.configuration.ProcessingPipelineConfiguration;
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.logging.RecordLogger;
+import com.enbirr.springkafkaretry.service.ProcessingService;
+import lombok.SneakyThrows;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.BlockingQueue;
+
+@SpringJUnitConfig(
+    classes = {
+        KafkaTestConfiguration.class,
+        KafkaRetryDlqConfiguration.class,
+        KafkaListenerScalingConfiguration.class,
+        KafkaReactiveConfiguration.class,
+        ProcessingPipelineConfiguration.class,
+        RecordLogger.class,
+        KafkaCustomProperties.class})
+// One partition for each topic, like the topics auto-created by the Kafka container
+@EmbeddedKafka(topics = "${kafka.topic}", partitions = 1)
+@TestPropertySource(
+    value = "classpath:/application-test.properties",
+    properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "kafka.reactive.enabled=true"})
+// Listeners of a cached context would compete with the ones of another test class.
+@DirtiesContext
+class ReactiveKafkaPipelineIntegrationTest {
+
+  private static final long AWAIT_TIMEOUT = 30;
+  @Autowired
+  private KafkaCustomProperties kafkaProperties;
+  @Autowired
+  private KafkaTemplate<String, String> kafkaTemplate;
+  @Autowired
+  private BlockingQueue<ConsumerRecord<String, byte[]>> retryAndDlqRecords;
+  // Mocked dependency of the processing pipeline
+  @Autowired
+  public ProcessingService processingServiceMock;
+
+  @Test
+  @SneakyThrows
+  void givenOneBadMessage_whenPipelineGetsIt_thenOnlyBadMessageComesToRetryTopicAndThenToDlq() {
+    // GIVEN
+    String firstMessage = "first correct message";
+    String badMessage = "reactive unprocessable message";
+    String lastMessage = "last correct message";
+
+    when(processingServiceMock.truncateMessageReactively(anyString()))
+        .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+    ProcessingException exception = new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED);
+    when(processingServiceMock.truncateMessageReactively(badMessage))
+        .thenAnswer(invocation -> Mono.error(exception));
+
+    // WHEN
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), firstMessage);
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), badMessage);
+    kafkaTemplate.send(kafkaProperties.getMainTopic(), lastMessage);
+
+    // THEN
+    waitAndVerifyRetryAndDlqRecords(badMessage);
+
+    verify(processingServiceMock, timeout(SECONDS.toMillis(AWAIT_TIMEOUT)).times(1))
+        .truncateMessageReactively(firstMessage);
+    verify(processingServiceMock, timeout(SECONDS.toMillis(AWAIT_TIMEOUT)).times(1))
+        .truncateMessageReactively(lastMessage);
+    verify(processingServiceMock, times(kafkaProperties.getAttemptsMaxCount()))
+        .truncateMessageReactively(badMessage);
+  }
+
+  @SneakyThrows
+  private void waitAndVerifyRetryAndDlqRecords(String expectedPayload) {
+    String retryTopic = kafkaProperties.getMainTopic() + kafkaProperties.getRetryTopicSuffix();
+    String dlqTopic = kafkaProperties.getMainTopic() + kafkaProperties.getDlqTopicSuffix();
+    int attemptsForMainTopic = 1;
+    int expectedRetriesCount = kafkaProperties.getAttemptsMaxCount() - attemptsForMainTopic;
+
+    for (int i = 0; i < expectedRetriesCount; i++) {
+      ConsumerRecord<String, byte[]> retryRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+      assertNotNull(retryRecord, RETRY_RECORD_SHOULD_BE_RECEIVED);
+      assertEquals(retryTopic, retryRecord.topic(), MESSAGE_FROM_RETRY_TOPIC_WAS_EXPECTED);
+      assertEquals(expectedPayload, new String(retryRecord.value(), UTF_8),
+          RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+    }
+
+    ConsumerRecord<String, byte[]> dlqRecord = retryAndDlqRecords.poll(AWAIT_TIMEOUT, SECONDS);
+    assertNotNull(dlqRecord, DLQ_RECORD_SHOULD_BE_RECEIVED);
+    assertEquals(dlqTopic, dlqRecord.topic(), MESSAGE_FROM_DLQ_TOPIC_WAS_EXPECTED);
+    assertEquals(expectedPayload, new String(dlqRecord.value(), UTF_8),
+        RECORD_VALUE_SHOULD_CONTAIN_SENT_MESSAGE);
+  }
+}
@@ -0,0 +1,132 @@
+package com.enbirr.springkafkaretry.reactive;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RESTART_BACK_OFF_SHOULD_BE_CAPPED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RESTART_BACK_OFF_SHOULD_START_OVER;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.REVOKED_PARTITION_RECORDS_SHOULD_BE_DROPPED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class ReactiveKafkaPipelineTest {
+
+  private static final TopicPartition PARTITION_0 = new TopicPartition("topic", 0);
+  private static final TopicPartition PARTITION_1 = new TopicPartition("topic", 1);
+  private static final Duration MIN_BACK_OFF = Duration.ofMillis(100);
+  private static final Duration MAX_BACK_OFF = Duration.ofSeconds(1);
+
+  @Test
+  void givenBufferedRecords_whenPartitionIsRevoked_thenTheyAreNotHandled() {
+    // GIVEN
+    Sinks.Many<ReceiverRecord<String, String>> records = Sinks.many().unicast()
+        .onBackpressureBuffer();
+    Sinks.Many<TopicPartition> revokedPartitions = Sinks.many().multicast()
+        .directBestEffort();
+    Sinks.One<ReceiverRecord<String, String>> firstRecordHandling = Sinks.one();
+    List<ReceiverRecord<String, String>> handledRecords = new ArrayList<>();
+    ReceiverRecord<String, String> firstRecord = createRecord(PARTITION_0, 0);
+    ReceiverRecord<String, String> bufferedRecord = createRecord(PARTITION_0, 1);
+    ReceiverRecord<String, String> otherPartitionRecord = createRecord(PARTITION_1, 0);
+
+    ReactiveKafkaPipeline.handleByPartition(records.asFlux(), revokedPartitions.asFlux(),
+            receiverRecord -> receiverRecord == firstRecord
+                ? firstRecordHandling.asMono()
+                : Mono.just(receiverRecord),
+            1)
+        .subscribe(handledRecords::add);
+    records.tryEmitNext(firstRecord);
+    // Waits for the first record of the partition, in-flight limit is 1
+    records.tryEmitNext(bufferedRecord);
+
+    // WHEN
+    revokedPartitions.tryEmitNext(PARTITION_0);
+    firstRecordHandling.tryEmitValue(firstRecord);
+    records.tryEmitNext(otherPartitionRecord);
+
+    // THEN
+    assertEquals(List.of(firstRecord, otherPartitionRecord), handledRecords,
+        REVOKED_PARTITION_RECORDS_SHOULD_BE_DROPPED);
+    verify(bufferedRecord.receiverOffset(), never()).acknowledge();
+  }
+
+  @Test
+  void givenPipelineKeepsFailing_whenItIsRestarted_thenBackOffIsCapped() {
+    List<Long> restartTimes = new ArrayList<>();
+
+    StepVerifier.withVirtualTime(() -> Flux.defer(() -> {
+              restartTimes.add(Schedulers.parallel().now(TimeUnit.MILLISECONDS));
+              return Flux.error(new IllegalStateException());
+            })
+            .retryWhen(ReactiveKafkaPipeline.restartBackOff(MIN_BACK_OFF, MAX_BACK_OFF)))
+        .expectSubscription()
+        .thenAwait(Duration.ofMinutes(1))
+        .thenCancel()
+        .verify();
+
+    for (int i = 1; i < restartTimes.size(); i++) {
+      long backOffMs = restartTimes.get(i) - restartTimes.get(i - 1);
+      assertTrue(backOffMs <= MAX_BACK_OFF.toMillis(), RESTART_BACK_OFF_SHOULD_BE_CAPPED);
+    }
+    // Without the cap, the back-off would be longer than a minute after 10 restarts
+    assertTrue(restartTimes.size() > 50, RESTART_BACK_OFF_SHOULD_BE_CAPPED);
+  }
+
+  @Test
+  void givenPipelineHandledRecord_whenItFailsAgain_thenBackOffStartsOver() {
+    // GIVEN
+    int restartWithHandledRecord = 10;
+    List<Long> restartTimes = new ArrayList<>();
+
+    // WHEN
+    StepVerifier.withVirtualTime(() -> Flux.defer(() -> {
+              restartTimes.add(Schedulers.parallel().now(TimeUnit.MILLISECONDS));
+              Flux<String> failure = Flux.error(new IllegalStateException());
+              return restartTimes.size() == restartWithHandledRecord
+                  ? Flux.just("handled record").concatWith(failure)
+                  : failure;
+            })
+            .retryWhen(ReactiveKafkaPipeline.restartBackOff(MIN_BACK_OFF, MAX_BACK_OFF))
+            .then())
+        .expectSubscription()
+        .thenAwait(Duration.ofMinutes(1))
+        .thenCancel()
+        .verify();
+
+    // THEN
+    long backOffBeforeRecordMs = restartTimes.get(restartWithHandledRecord - 1)
+        - restartTimes.get(restartWithHandledRecord - 2);
+    long backOffAfterRecordMs = restartTimes.get(restartWithHandledRecord)
+        - restartTimes.get(restartWithHandledRecord - 1);
+    // Jitter spreads the first back-off by 50% at most
+    assertTrue(backOffAfterRecordMs <= MIN_BACK_OFF.toMillis() * 3 / 2,
+        RESTART_BACK_OFF_SHOULD_START_OVER);
+    assertTrue(backOffBeforeRecordMs > backOffAfterRecordMs, RESTART_BACK_OFF_SHOULD_START_OVER);
+  }
+
+  private static ReceiverRecord<String, String> createRecord(TopicPartition partition,
+      long offset) {
+    ReceiverOffset receiverOffset = mock(ReceiverOffset.class);
+    when(receiverOffset.topicPartition()).thenReturn(partition);
+    return new ReceiverRecord<>(
+        new ConsumerRecord<>(partition.topic(), partition.partition(), offset, null, "value"),
+        receiverOffset);
+  }
+}
@@ -0,0 +1,122 @@
+package com.enbirr.springkafkaretry.redrive;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.INVALID_REDRIVE_RATE_SHOULD_BE_REJECTED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.REDRIVE_SHOULD_STOP_AT_ONCE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.producer.RetryDlqProducer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+
+class DlqRedriveServiceTest {
+
+  private static final String MAIN_TOPIC = "spring.kafka.example";
+  private static final String DLQ_TOPIC = MAIN_TOPIC + ".dlq";
+  private static final RedriveFilter ANY_RECORD = new RedriveFilter(null, null, null, null);
+  private static final long STOP_TIMEOUT_MS = 500;
+  private static final byte[] VALUE = "value".getBytes(UTF_8);
+
+  @SuppressWarnings("unchecked")
+  private final ConsumerFactory<String, byte[]> consumerFactory = mock(ConsumerFactory.class);
+  @SuppressWarnings("unchecked")
+  private final KafkaTemplate<String, byte[]> template = mock(KafkaTemplate.class);
+  private DlqRedriveService redriveService;
+
+  @BeforeEach
+  void setUp() {
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setMainTopic(MAIN_TOPIC);
+    kafkaProperties.setDlqTopicSuffix(".dlq");
+    kafkaProperties.setRedriveGroupId(MAIN_TOPIC + ".redrive");
+    kafkaProperties.setRedriveRatePerSecond(1000);
+    kafkaProperties.setRedrivePollRecords(100);
+
+    var retryDlqProducer = mock(RetryDlqProducer.class);
+    when(retryDlqProducer.getTemplate()).thenReturn(template);
+    when(template.send(ArgumentMatchers.<ProducerRecord<String, byte[]>>any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+    redriveService = new DlqRedriveService(kafkaProperties, consumerFactory, retryDlqProducer);
+  }
+
+  @AfterEach
+  void tearDown() {
+    redriveService.destroy();
+  }
+
+  @Test
+  void givenNotPositiveRate_whenRedriveIsStarted_thenItIsRejected() {
+    // THEN
+    assertThrows(IllegalArgumentException.class, () -> redriveService.start(ANY_RECORD, null, 0),
+        INVALID_REDRIVE_RATE_SHOULD_BE_REJECTED);
+    assertThrows(IllegalArgumentException.class, () -> redriveService.start(ANY_RECORD, null, -1),
+        INVALID_REDRIVE_RATE_SHOULD_BE_REJECTED);
+  }
+
+  @Test
+  void givenRedriveWaitingForRateLimit_whenStopped_thenItStopsAtOnceAndNextOneCouldStart() {
+    // GIVEN the redrive sends 1 record per second, so it waits for the rate limit after the first
+    when(consumerFactory.createConsumer(anyString(), any(), anyString(), any(Properties.class)))
+        .thenReturn(createDlqConsumer(10))
+        .thenReturn(createDlqConsumer(0));
+    redriveService.start(ANY_RECORD, null, 1);
+    verify(template, timeout(STOP_TIMEOUT_MS))
+        .send(ArgumentMatchers.<ProducerRecord<String, byte[]>>any());
+
+    // WHEN
+    redriveService.stop();
+
+    // THEN
+    long deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+    while (isRunning() && System.currentTimeMillis() < deadline) {
+      Thread.onSpinWait();
+    }
+    assertEquals(RedriveJob.State.STOPPED.name(), redriveService.getStatus().state(),
+        REDRIVE_SHOULD_STOP_AT_ONCE);
+    assertDoesNotThrow(() -> redriveService.start(ANY_RECORD, null, null),
+        REDRIVE_SHOULD_STOP_AT_ONCE);
+  }
+
+  private boolean isRunning() {
+    return RedriveJob.State.RUNNING.name().equals(redriveService.getStatus().state());
+  }
+
+  private static MockConsumer<String, byte[]> createDlqConsumer(int recordsCount) {
+    var dlqConsumer = new MockConsumer<String, byte[]>(OffsetResetStrategy.EARLIEST);
+    var dlqPartition = new TopicPartition(DLQ_TOPIC, 0);
+    dlqConsumer.updatePartitions(DLQ_TOPIC,
+        List.of(new PartitionInfo(DLQ_TOPIC, 0, null, null, null)));
+    dlqConsumer.updateBeginningOffsets(Map.of(dlqPartition, 0L));
+    dlqConsumer.updateEndOffsets(Map.of(dlqPartition, (long) recordsCount));
+    dlqConsumer.schedulePollTask(() -> {
+      for (long offset = 0; offset < recordsCount; offset++) {
+        dlqConsumer.addRecord(new ConsumerRecord<>(DLQ_TOPIC, 0, offset, "key", VALUE));
+      }
+    });
+    return dlqConsumer;
+  }
+}
@@ -0,0 +1,82 @@
+package com.enbirr.springkafkaretry.redrive;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_REDRIVE_FILTER_RESULT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ORIGINAL_TIMESTAMP;
+
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+class RedriveFilterTest {
+
+  private static final String DLQ_TOPIC = "spring.kafka.example.dlq";
+  private static final long ORIGINAL_TIMESTAMP = 1_000L;
+  // The DLQ record is produced much later than the original record
+  private static final long DLQ_TIMESTAMP = 100_000L;
+
+  @Test
+  void givenDlqRecord_whenFilteredByException_thenExceptionAndCauseHeadersMustBothMatch() {
+    // GIVEN
+    var dlqRecord = createDlqRecord(ProcessingException.class, IllegalStateException.class);
+
+    // WHEN
+    boolean anyRecordMatches = new RedriveFilter(null, null, null, null).matches(dlqRecord);
+    boolean sameExceptionMatches = new RedriveFilter(ProcessingException.class.getName(),
+        IllegalStateException.class.getName(), null, null).matches(dlqRecord);
+    boolean otherExceptionMatches = new RedriveFilter(ProcessingFatalException.class.getName(),
+        null, null, null).matches(dlqRecord);
+    boolean otherCauseMatches = new RedriveFilter(ProcessingException.class.getName(),
+        IllegalArgumentException.class.getName(), null, null).matches(dlqRecord);
+
+    // THEN
+    assertTrue(anyRecordMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+    assertTrue(sameExceptionMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+    assertFalse(otherExceptionMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+    assertFalse(otherCauseMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+  }
+
+  @Test
+  void givenDlqRecord_whenFilteredByTimestamps_thenOriginalTimestampIsCheckedInHalfOpenRange() {
+    // GIVEN
+    var dlqRecord = createDlqRecord(ProcessingException.class, IllegalStateException.class);
+
+    // WHEN
+    boolean fromMatches = new RedriveFilter(null, null, ORIGINAL_TIMESTAMP, null)
+        .matches(dlqRecord);
+    boolean toMatches = new RedriveFilter(null, null, null, ORIGINAL_TIMESTAMP)
+        .matches(dlqRecord);
+    boolean rangeMatches = new RedriveFilter(null, null, ORIGINAL_TIMESTAMP - 1,
+        ORIGINAL_TIMESTAMP + 1).matches(dlqRecord);
+    boolean dlqTimestampRangeMatches = new RedriveFilter(null, null, DLQ_TIMESTAMP, null)
+        .matches(dlqRecord);
+
+    // THEN
+    assertTrue(fromMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+    assertFalse(toMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+    assertTrue(rangeMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+    assertFalse(dlqTimestampRangeMatches, UNEXPECTED_REDRIVE_FILTER_RESULT);
+  }
+
+  private static ConsumerRecord<String, String> createDlqRecord(
+      Class<? extends Exception> exceptionClass,
+      Class<? extends Exception> causeClass
+  ) {
+    var headers = new RecordHeaders();
+    headers.add(KafkaHeaders.EXCEPTION_FQCN, exceptionClass.getName().getBytes(UTF_8));
+    headers.add(KafkaHeaders.EXCEPTION_CAUSE_FQCN, causeClass.getName().getBytes(UTF_8));
+    headers.add(DEFAULT_HEADER_ORIGINAL_TIMESTAMP,
+        ByteBuffer.allocate(Long.BYTES).putLong(ORIGINAL_TIMESTAMP).array());
+    return new ConsumerRecord<>(DLQ_TOPIC, 0, 0L, DLQ_TIMESTAMP, TimestampType.CREATE_TIME, -1, -1,
+        "key", "value", headers, Optional.empty());
+  }
+}
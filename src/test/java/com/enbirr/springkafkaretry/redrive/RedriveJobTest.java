@@ -0,0 +1,125 @@
+package com.enbirr.springkafkaretry.redrive;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.CHECKPOINT_SHOULD_NOT_PASS_END_OFFSETS;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.REDRIVEN_RECORD_SHOULD_BE_PLAIN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.enbirr.springkafkaretry.serialization.RetryValueSerializer;
+import com.enbirr.springkafkaretry.util.RetryMetadata;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@ExtendWith(MockitoExtension.class)
+class RedriveJobTest {
+
+  private static final String MAIN_TOPIC = "spring.kafka.example";
+  private static final String DLQ_TOPIC = MAIN_TOPIC + ".dlq";
+  private static final String GROUP_ID = MAIN_TOPIC + ".redrive";
+  private static final TopicPartition DLQ_PARTITION = new TopicPartition(DLQ_TOPIC, 0);
+  private static final String CUSTOM_HEADER = "trace-id";
+  private static final byte[] VALUE = "value".getBytes(UTF_8);
+
+  private final Map<TopicPartition, OffsetAndMetadata> checkpoint = new HashMap<>();
+  private final MockConsumer<String, byte[]> dlqConsumer =
+      new MockConsumer<>(OffsetResetStrategy.EARLIEST) {
+        @Override
+        public synchronized void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+          super.commitSync(offsets);
+          checkpoint.putAll(offsets);
+        }
+      };
+  @Mock
+  private KafkaTemplate<String, byte[]> template;
+  @Captor
+  private ArgumentCaptor<ProducerRecord<String, byte[]>> sentRecord;
+
+  @BeforeEach
+  void setUp() {
+    dlqConsumer.updatePartitions(DLQ_TOPIC,
+        List.of(new PartitionInfo(DLQ_TOPIC, 0, null, null, null)));
+    dlqConsumer.updateBeginningOffsets(Map.of(DLQ_PARTITION, 0L));
+    when(template.send(ArgumentMatchers.<ProducerRecord<String, byte[]>>any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+  }
+
+  @Test
+  void givenDlqRecordWithRetryHeaders_whenRedriven_thenOnlyItsOwnHeadersAreSentToMainTopic() {
+    // GIVEN
+    var dlqRecord = new ConsumerRecord<>(DLQ_TOPIC, 0, 0L, "key", VALUE);
+    dlqRecord.headers()
+        .add(CUSTOM_HEADER, "1".getBytes(UTF_8))
+        .add(KafkaHeaders.EXCEPTION_FQCN, IllegalStateException.class.getName().getBytes(UTF_8))
+        .add(KafkaHeaders.DLT_ORIGINAL_OFFSET, new byte[Long.BYTES])
+        .add(RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS, new byte[Integer.BYTES])
+        .add(RetryMetadata.HEADER, new byte[1])
+        .add(RetryValueSerializer.COMPRESSION_HEADER, "gzip".getBytes(UTF_8));
+    dlqConsumer.updateEndOffsets(Map.of(DLQ_PARTITION, 1L));
+    dlqConsumer.schedulePollTask(() -> dlqConsumer.addRecord(dlqRecord));
+
+    // WHEN
+    createJob().run();
+
+    // THEN
+    verify(template).send(sentRecord.capture());
+    assertEquals(MAIN_TOPIC, sentRecord.getValue().topic(), REDRIVEN_RECORD_SHOULD_BE_PLAIN);
+    assertArrayEquals(VALUE, sentRecord.getValue().value(), REDRIVEN_RECORD_SHOULD_BE_PLAIN);
+    assertEquals(List.of(new RecordHeader(CUSTOM_HEADER, "1".getBytes(UTF_8))),
+        List.<Header>of(sentRecord.getValue().headers().toArray()),
+        REDRIVEN_RECORD_SHOULD_BE_PLAIN);
+  }
+
+  @Test
+  void givenRecordsWrittenAfterStart_whenRedriven_thenCheckpointStopsAtStartEndOffsets() {
+    // GIVEN the DLQ had 2 records at the start, the 3rd one arrives before the first poll
+    dlqConsumer.updateEndOffsets(Map.of(DLQ_PARTITION, 2L));
+    dlqConsumer.schedulePollTask(() -> {
+      for (long offset = 0; offset < 3; offset++) {
+        dlqConsumer.addRecord(new ConsumerRecord<>(DLQ_TOPIC, 0, offset, "key", VALUE));
+      }
+    });
+    RedriveJob job = createJob();
+
+    // WHEN
+    job.run();
+
+    // THEN
+    verify(template, times(2)).send(sentRecord.capture());
+    assertEquals(Map.of(DLQ_PARTITION, new OffsetAndMetadata(2L)), checkpoint,
+        CHECKPOINT_SHOULD_NOT_PASS_END_OFFSETS);
+    assertEquals(new RedriveStatus(RedriveJob.State.COMPLETED.name(), GROUP_ID, 2, 2, 0, null),
+        job.getStatus(), CHECKPOINT_SHOULD_NOT_PASS_END_OFFSETS);
+  }
+
+  private RedriveJob createJob() {
+    return new RedriveJob(dlqConsumer, template, DLQ_TOPIC, MAIN_TOPIC, GROUP_ID,
+        new RedriveFilter(null, null, null, null), 1000);
+  }
+}
@@ -0,0 +1,59 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.DELAY_SHOULD_BE_WITHIN_JITTER_BOUNDS;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_BACKOFF_TIMESTAMP;
+
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.retrytopic.DestinationTopic;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+class JitteredBackOffHeadersTest {
+
+  private static final String LISTENER_ID = "listener";
+  private static final long TOPIC_DELAY_MS = 10_000;
+
+  @Test
+  void givenJitter_whenRecordIsSentToRetryTopic_thenNextAttemptIsSpreadAroundTopicDelay() {
+    // GIVEN
+    var retryPolicies = new RetryPolicies(new RetryPolicy(3, TOPIC_DELAY_MS, 1.0, TOPIC_DELAY_MS,
+        0.2), Map.of());
+    DestinationTopic retryTopic = mock(DestinationTopic.class);
+    when(retryTopic.getDestinationDelay()).thenReturn(TOPIC_DELAY_MS);
+    DestinationTopicResolver resolver = mock(DestinationTopicResolver.class);
+    when(resolver.resolveDestinationTopic(anyString(), anyString(), anyInt(), any(), anyLong()))
+        .thenReturn(retryTopic);
+    var backOffHeaders = new JitteredBackOffHeaders(resolver, retryPolicies, LISTENER_ID);
+    var failedRecord = new ConsumerRecord<>("topic", 0, 0L, "key", "value");
+    var exception = new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED);
+
+    for (int i = 0; i < 100; i++) {
+      // WHEN
+      long failureTimestamp = System.currentTimeMillis();
+      Headers headers = backOffHeaders.apply(failedRecord, exception);
+      long sendTimestamp = System.currentTimeMillis();
+
+      // THEN
+      assertEquals(1, headers.toArray().length);
+      long nextAttemptTimestamp = new BigInteger(
+          headers.lastHeader(DEFAULT_HEADER_BACKOFF_TIMESTAMP).value()).longValue();
+      assertTrue(nextAttemptTimestamp >= failureTimestamp + TOPIC_DELAY_MS * 8 / 10
+              && nextAttemptTimestamp <= sendTimestamp + TOPIC_DELAY_MS * 12 / 10,
+          DELAY_SHOULD_BE_WITHIN_JITTER_BOUNDS);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.RECORD_SHOULD_GO_TO_TOPIC_OF_ITS_DELAY;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.retrytopic.DestinationTopic;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+
+class PolicyAwareDestinationTopicResolverTest {
+
+  private static final String LISTENER_ID = "listener";
+  private static final String MAIN_TOPIC = "topic";
+  private static final int ATTEMPTS_LIMIT = 5;
+  private static final RetryPolicy DEFAULT_POLICY = new RetryPolicy(ATTEMPTS_LIMIT, 1000, 2.0,
+      4000, 0.0);
+
+  @Test
+  void givenDelayTopics_whenRecordFails_thenItGoesToTopicOfItsNextDelay() {
+    // GIVEN
+    var retryPolicies = new RetryPolicies(DEFAULT_POLICY, Map.of());
+    var resolver = new PolicyAwareDestinationTopicResolver(Clock.systemUTC(), retryPolicies, true);
+    // Topics the retry topic configuration creates for the delays of the policy
+    resolver.addDestinationTopics(LISTENER_ID, createTopics(List.of(1000L, 2000L, 4000L)));
+    var exception = new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED);
+
+    // WHEN
+    DestinationTopic afterFirstAttempt = resolve(resolver, MAIN_TOPIC, 1, exception);
+    retryPolicies.setDefaultPolicy(DEFAULT_POLICY.withAttemptsAndInterval(ATTEMPTS_LIMIT, 3000));
+    DestinationTopic afterChangedPolicy = resolve(resolver, MAIN_TOPIC, 1, exception);
+    DestinationTopic afterLastAttempt = resolve(resolver, MAIN_TOPIC + "-retry-4000",
+        ATTEMPTS_LIMIT, exception);
+
+    // THEN
+    assertEquals(MAIN_TOPIC + "-retry-1000", afterFirstAttempt.getDestinationName(),
+        RECORD_SHOULD_GO_TO_TOPIC_OF_ITS_DELAY);
+    // A delay without its own topic is rounded up to the delay of the next one
+    assertEquals(MAIN_TOPIC + "-retry-4000", afterChangedPolicy.getDestinationName(),
+        RECORD_SHOULD_GO_TO_TOPIC_OF_ITS_DELAY);
+    assertTrue(afterLastAttempt.isDltTopic(), RECORD_SHOULD_GO_TO_TOPIC_OF_ITS_DELAY);
+  }
+
+  private static DestinationTopic resolve(PolicyAwareDestinationTopicResolver resolver,
+      String topic, int attempt, Exception exception) {
+    return resolver.resolveDestinationTopic(LISTENER_ID, topic, attempt, exception,
+        System.currentTimeMillis());
+  }
+
+  /**
+   * Set up the same way as the retry topics of the application, see KafkaRetryDlqConfiguration.
+   */
+  private static List<DestinationTopic> createTopics(List<Long> retryDelaysMs) {
+    return RetryTopicConfigurationBuilder.newInstance()
+        .maxAttempts(ATTEMPTS_LIMIT)
+        .customBackoff(new TieredBackOffPolicy(retryDelaysMs))
+        .useSingleTopicForSameIntervals()
+        .retryTopicSuffix("-retry")
+        .dltSuffix("-dlt")
+        .create(mock(KafkaOperations.class))
+        .getDestinationTopicProperties()
+        .stream()
+        .map(properties -> new DestinationTopic(MAIN_TOPIC + properties.suffix(), properties))
+        .toList();
+  }
+}
@@ -0,0 +1,149 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.DELAY_SHOULD_BE_WITHIN_JITTER_BOUNDS;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.EXCEPTION_POLICY_SHOULD_BE_USED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_DELAY;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_RETRY_DELAYS;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UPDATED_POLICY_SHOULD_BE_USED;
+import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROCESSING_ERROR_COULD_BE_RETRIED;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import com.enbirr.springkafkaretry.util.TestDataGenerator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.util.List;
+import java.util.Map;
+
+class RetryPoliciesTest {
+
+  private static final RetryPolicy DEFAULT_POLICY = new RetryPolicy(3, 1000, 2.0, 5000, 0.0);
+
+  @Test
+  void givenExponentialBackOff_whenAttemptsFail_thenDelayGrowsUpToMaxInterval() {
+    assertEquals(1000, DEFAULT_POLICY.getDelayAfterAttempt(1), UNEXPECTED_DELAY);
+    assertEquals(2000, DEFAULT_POLICY.getDelayAfterAttempt(2), UNEXPECTED_DELAY);
+    assertEquals(4000, DEFAULT_POLICY.getDelayAfterAttempt(3), UNEXPECTED_DELAY);
+    assertEquals(5000, DEFAULT_POLICY.getDelayAfterAttempt(4), UNEXPECTED_DELAY);
+  }
+
+  @Test
+  void givenJitter_whenDelayIsSpread_thenItStaysAroundTopicDelay() {
+    RetryPolicy policy = new RetryPolicy(3, 1000, 1.0, 1000, 0.2);
+    assertEquals(1000, policy.getDelayAfterAttempt(1), UNEXPECTED_DELAY);
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.applyJitter(1000);
+      assertTrue(delay >= 800 && delay <= 1200, DELAY_SHOULD_BE_WITHIN_JITTER_BOUNDS);
+    }
+  }
+
+  @Test
+  void givenExponentialAndExceptionPolicies_whenRetryDelaysAreRequested_thenTheyAreDistinct() {
+    // GIVEN
+    var retryPolicies = new RetryPolicies(DEFAULT_POLICY,
+        Map.of(ProcessingException.class, DEFAULT_POLICY.withAttemptsAndInterval(2, 500)), 5);
+
+    // WHEN
+    List<Long> retryDelaysMs = retryPolicies.getRetryDelaysMs();
+
+    // THEN
+    assertEquals(List.of(500L, 1000L, 2000L, 4000L, 5000L), retryDelaysMs,
+        UNEXPECTED_RETRY_DELAYS);
+  }
+
+  @Test
+  void givenPolicyForSuperclass_whenSubclassIsWrappedBySpring_thenSuperclassPolicyIsUsed() {
+    // GIVEN
+    RetryPolicy exceptionPolicy = DEFAULT_POLICY.withAttemptsAndInterval(5, 100);
+    var retryPolicies = new RetryPolicies(DEFAULT_POLICY,
+        Map.of(ProcessingException.class, exceptionPolicy));
+    ProcessingFatalException fatalException = TestDataGenerator.createProcessingFatalException();
+
+    // WHEN
+    RetryPolicy policy = retryPolicies.getPolicy(
+        new ListenerExecutionFailedException("Listener failed", fatalException));
+
+    // THEN
+    assertSame(exceptionPolicy, policy, EXCEPTION_POLICY_SHOULD_BE_USED);
+    assertEquals(5, retryPolicies.getMaxAttemptsCount());
+  }
+
+  @Test
+  void givenRecordFailedBefore_whenPolicyIsRequested_thenPolicyOfItsExceptionIsUsed() {
+    // GIVEN
+    RetryPolicy exceptionPolicy = DEFAULT_POLICY.withAttemptsAndInterval(5, 100);
+    var retryPolicies = new RetryPolicies(DEFAULT_POLICY,
+        Map.of(ProcessingException.class, exceptionPolicy));
+    var retryRecord = new ConsumerRecord<>("topic.retry", 0, 0L, "key", "value");
+    retryRecord.headers().add(KafkaHeaders.EXCEPTION_FQCN,
+        ProcessingFatalException.class.getName().getBytes(UTF_8));
+    var mainTopicRecord = new ConsumerRecord<>("topic", 0, 0L, "key", "value");
+
+    // WHEN
+    RetryPolicy retryRecordPolicy = retryPolicies.getPolicy(retryRecord);
+    RetryPolicy mainTopicRecordPolicy = retryPolicies.getPolicy(mainTopicRecord);
+
+    // THEN
+    assertSame(exceptionPolicy, retryRecordPolicy, EXCEPTION_POLICY_SHOULD_BE_USED);
+    assertSame(DEFAULT_POLICY, mainTopicRecordPolicy);
+  }
+
+  @Test
+  void givenRecordFailedWithUnknownClass_whenPolicyIsChanged_thenNewDefaultPolicyIsUsed() {
+    // GIVEN
+    var retryPolicies = new RetryPolicies(DEFAULT_POLICY, Map.of(), 5);
+    var retryRecord = new ConsumerRecord<>("topic.retry", 0, 0L, "key", "value");
+    retryRecord.headers().add(KafkaHeaders.EXCEPTION_FQCN,
+        "com.example.RemovedException".getBytes(UTF_8));
+    RetryPolicy changedPolicy = DEFAULT_POLICY.withAttemptsAndInterval(5, 100);
+
+    // WHEN
+    RetryPolicy policyBeforeChange = retryPolicies.getPolicy(retryRecord);
+    retryPolicies.setDefaultPolicy(changedPolicy);
+    RetryPolicy policyAfterChange = retryPolicies.getPolicy(retryRecord);
+
+    // THEN
+    assertSame(DEFAULT_POLICY, policyBeforeChange);
+    // The class name is cached as unknown, not the policy it got
+    assertSame(changedPolicy, policyAfterChange, UPDATED_POLICY_SHOULD_BE_USED);
+  }
+
+  @Test
+  void givenNoPolicyForException_whenPolicyIsRequested_thenDefaultPolicyIsUsed() {
+    var retryPolicies = new RetryPolicies(DEFAULT_POLICY,
+        Map.of(ProcessingFatalException.class, DEFAULT_POLICY.withAttemptsAndInterval(1, 100)));
+
+    RetryPolicy policy = retryPolicies.getPolicy(
+        new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED));
+
+    assertSame(DEFAULT_POLICY, policy);
+  }
+
+  @Test
+  void givenResolvedPolicy_whenPolicyIsChanged_thenNewPolicyIsUsedWithinAttemptsLimit() {
+    // GIVEN
+    var retryPolicies = new RetryPolicies(DEFAULT_POLICY, Map.of(), 5);
+    var exception = new ProcessingException(PROCESSING_ERROR_COULD_BE_RETRIED);
+    assertSame(DEFAULT_POLICY, retryPolicies.getPolicy(exception), UPDATED_POLICY_SHOULD_BE_USED);
+
+    // WHEN
+    RetryPolicy exceptionPolicy = DEFAULT_POLICY.withAttemptsAndInterval(1, 100);
+    retryPolicies.setExceptionPolicy(ProcessingException.class.getName(), exceptionPolicy);
+
+    // THEN
+    assertSame(exceptionPolicy, retryPolicies.getPolicy(exception), UPDATED_POLICY_SHOULD_BE_USED);
+    assertThrows(IllegalArgumentException.class, () -> retryPolicies.setDefaultPolicy(
+        DEFAULT_POLICY.withAttemptsAndInterval(6, 1000)));
+
+    retryPolicies.removeExceptionPolicy(ProcessingException.class.getName());
+    assertSame(DEFAULT_POLICY, retryPolicies.getPolicy(exception), UPDATED_POLICY_SHOULD_BE_USED);
+  }
+}
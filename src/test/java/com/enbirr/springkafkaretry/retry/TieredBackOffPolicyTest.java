@@ -0,0 +1,33 @@
+package com.enbirr.springkafkaretry.retry;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_DELAY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.retrytopic.BackOffValuesGenerator;
+
+import java.util.Arrays;
+import java.util.List;
+
+class TieredBackOffPolicyTest {
+
+  @Test
+  void givenMoreAttemptsThanTiers_whenRetryTopicsAreSetUp_thenLastTierIsReused() {
+    var backOffPolicy = new TieredBackOffPolicy(List.of(1000L, 10000L, 60000L));
+
+    // Spring calculates delays of the retry topics the same way
+    List<Long> delays = new BackOffValuesGenerator(5, backOffPolicy).generateValues();
+
+    assertEquals(List.of(1000L, 10000L, 60000L, 60000L), delays, UNEXPECTED_DELAY);
+  }
+
+  @Test
+  void givenMissingOrNonPositiveTier_whenPolicyIsCreated_thenItIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new TieredBackOffPolicy(List.of()));
+    assertThrows(IllegalArgumentException.class,
+        () -> new TieredBackOffPolicy(Arrays.asList(1000L, null)));
+    assertThrows(IllegalArgumentException.class,
+        () -> new TieredBackOffPolicy(List.of(1000L, 0L)));
+  }
+}
@@ -0,0 +1,135 @@
+package com.enbirr.springkafkaretry.serialization;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.OFFLOAD_DIRECTORY_SHOULD_BE_REQUIRED;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_RESTORED_VALUE;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNRESTORED_VALUE_SHOULD_GO_TO_DLQ;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.enbirr.springkafkaretry.configuration.KafkaCustomProperties;
+import com.enbirr.springkafkaretry.util.TestDataGenerator;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class RetryValueSerializerTest {
+
+  private static final String MAIN_TOPIC = "spring.kafka.example";
+  private static final String RETRY_TOPIC = MAIN_TOPIC + ".retry";
+  private static final String DLQ_TOPIC = MAIN_TOPIC + ".dlq";
+
+  @TempDir
+  private Path offloadDirectory;
+  private RetryValueSerializer serializer;
+  private RetryValueDeserializer deserializer;
+
+  @BeforeEach
+  void setUp() {
+    var kafkaProperties = createKafkaProperties();
+    kafkaProperties.setRetryValueOffloadDirectory(offloadDirectory.toString());
+    var offloadedValueStore = new OffloadedValueStore(kafkaProperties);
+    serializer = new RetryValueSerializer(kafkaProperties, offloadedValueStore);
+    deserializer = new RetryValueDeserializer(offloadedValueStore);
+  }
+
+  private static KafkaCustomProperties createKafkaProperties() {
+    var kafkaProperties = new KafkaCustomProperties();
+    kafkaProperties.setMainTopic(MAIN_TOPIC);
+    kafkaProperties.setRetryTopicSuffix(".retry");
+    kafkaProperties.setDlqTopicSuffix(".dlq");
+    // Codec of the JDK, so the test doesn't depend on the native ones
+    kafkaProperties.setRetryValueCompressionType("gzip");
+    kafkaProperties.setRetryValueCompressionMinBytes(100);
+    kafkaProperties.setRetryValueOffloadThresholdBytes(1000);
+    return kafkaProperties;
+  }
+
+  @Test
+  void givenValuesOfDifferentSizes_whenSentToRetryTopic_thenTheyAreRestoredByConsumer() {
+    for (String value : new String[]{"short", "a".repeat(500),
+        TestDataGenerator.generateMessage(100_000)}) {
+      // GIVEN the headers of the previous hop copied by the recoverer
+      var headers = new RecordHeaders();
+      headers.add(RetryValueSerializer.COMPRESSION_HEADER, "zstd".getBytes());
+
+      // WHEN
+      byte[] serializedValue = serializer.serialize(RETRY_TOPIC, headers, value.getBytes(UTF_8));
+      byte[] restoredValue = deserializer.deserialize(RETRY_TOPIC, headers, serializedValue);
+
+      // THEN
+      assertEquals(value, new String(restoredValue, UTF_8), UNEXPECTED_RESTORED_VALUE);
+      assertTrue(serializedValue.length < 1000, UNEXPECTED_RESTORED_VALUE);
+    }
+  }
+
+  @Test
+  void givenLargeValue_whenSentToMainTopic_thenItIsWrittenAsItIs() {
+    // GIVEN
+    var headers = new RecordHeaders();
+    byte[] value = TestDataGenerator.generateMessage(100_000).getBytes(UTF_8);
+
+    // WHEN
+    byte[] serializedValue = serializer.serialize(MAIN_TOPIC, headers, value);
+
+    // THEN
+    assertArrayEquals(value, serializedValue, UNEXPECTED_RESTORED_VALUE);
+    assertNull(headers.lastHeader(RetryValueSerializer.OFFLOADED_HEADER),
+        UNEXPECTED_RESTORED_VALUE);
+    assertNotNull(deserializer.deserialize(MAIN_TOPIC, headers, serializedValue),
+        UNEXPECTED_RESTORED_VALUE);
+  }
+
+  @Test
+  void givenMissingOffloadedValue_whenConsumed_thenRecordIsPassedOnAndSentToDlqAsItWasRead()
+      throws Exception {
+    // GIVEN a record of the retry topic, which offloaded file is lost
+    var headers = new RecordHeaders();
+    byte[] serializedValue = serializer.serialize(RETRY_TOPIC, headers,
+        TestDataGenerator.generateMessage(100_000).getBytes(UTF_8));
+    try (var offloadedFiles = Files.list(offloadDirectory)) {
+      for (Path offloadedFile : offloadedFiles.toList()) {
+        Files.delete(offloadedFile);
+      }
+    }
+
+    // WHEN
+    byte[] restoredValue;
+    try (var errorHandlingDeserializer = new ErrorHandlingDeserializer<>(deserializer)) {
+      restoredValue = errorHandlingDeserializer.deserialize(RETRY_TOPIC, headers, serializedValue);
+    }
+    // The recoverer copies the headers of the consumed record to the DLQ record
+    byte[] dlqValue = serializer.serialize(DLQ_TOPIC, headers, serializedValue);
+
+    // THEN
+    assertNull(restoredValue, UNRESTORED_VALUE_SHOULD_GO_TO_DLQ);
+    assertNotNull(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER),
+        UNRESTORED_VALUE_SHOULD_GO_TO_DLQ);
+    assertArrayEquals(serializedValue, dlqValue, UNRESTORED_VALUE_SHOULD_GO_TO_DLQ);
+    assertNull(headers.lastHeader(RetryValueSerializer.OFFLOADED_HEADER),
+        UNRESTORED_VALUE_SHOULD_GO_TO_DLQ);
+    assertNull(headers.lastHeader(RetryValueSerializer.UNRESTORED_HEADER),
+        UNRESTORED_VALUE_SHOULD_GO_TO_DLQ);
+  }
+
+  @Test
+  void givenOffloadingWithoutDirectory_whenStoreIsCreated_thenStartupFails() {
+    // GIVEN
+    var kafkaProperties = createKafkaProperties();
+    kafkaProperties.setRetryValueOffloadDirectory("");
+
+    // THEN
+    assertThrows(IllegalArgumentException.class, () -> new OffloadedValueStore(kafkaProperties),
+        OFFLOAD_DIRECTORY_SHOULD_BE_REQUIRED);
+  }
+}
@@ -0,0 +1,86 @@
+package com.enbirr.springkafkaretry.util;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.MAX_ATTEMPTS_SHOULD_BE_RESOLVED_LAZILY;
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_RECORD_DETAILS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ATTEMPTS;
+import static org.springframework.kafka.retrytopic.RetryTopicHeaders.DEFAULT_HEADER_ORIGINAL_TIMESTAMP;
+import static org.springframework.kafka.support.KafkaHeaders.ORIGINAL_OFFSET;
+import static org.springframework.kafka.support.KafkaHeaders.ORIGINAL_PARTITION;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RecordDetailsTest {
+
+  private static final int MAX_ATTEMPTS_COUNT = 3;
+
+  @Test
+  void givenMainTopicRecord_whenDetailsAreRendered_thenOnlyRecordCoordinatesArePrinted() {
+    var consumerRecord = new ConsumerRecord<>("spring.kafka.example", 1, 42L, "key", "value");
+
+    RecordDetails recordDetails = RecordDetails.of(consumerRecord, MAX_ATTEMPTS_COUNT);
+
+    assertEquals("topic: spring.kafka.example, partition: 1, offset: 42, attempt number: 1 of 3",
+        recordDetails.toString(), UNEXPECTED_RECORD_DETAILS);
+  }
+
+  @Test
+  void givenRetryTopicRecord_whenDetailsAreRendered_thenOriginalCoordinatesArePrinted() {
+    // GIVEN
+    var consumerRecord = new ConsumerRecord<>("spring.kafka.example.retry", 0, 7L, "key", "value");
+    consumerRecord.headers()
+        .add(ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(2).array())
+        .add(ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(3_000_000_000L).array())
+        .add(DEFAULT_HEADER_ATTEMPTS, ByteBuffer.allocate(Integer.BYTES).putInt(1).array())
+        // Spring replaces the attempts header value, the last one is actual
+        .add(DEFAULT_HEADER_ATTEMPTS, ByteBuffer.allocate(Integer.BYTES).putInt(2).array());
+
+    // WHEN
+    RecordDetails recordDetails = RecordDetails.of(consumerRecord, MAX_ATTEMPTS_COUNT);
+
+    // THEN
+    assertEquals("topic: spring.kafka.example.retry, partition: 0, offset: 7, "
+            + "original partition: 2, original offset: 3000000000, attempt number: 2 of 3",
+        recordDetails.toString(), UNEXPECTED_RECORD_DETAILS);
+  }
+
+  @Test
+  void givenMaxAttemptsResolver_whenDetailsAreRendered_thenCountIsResolvedOnce() {
+    // GIVEN
+    var consumerRecord = new ConsumerRecord<>("spring.kafka.example", 1, 42L, "key", "value");
+    var resolveCount = new AtomicInteger();
+
+    // WHEN
+    RecordDetails recordDetails = RecordDetails.of(consumerRecord, record -> {
+      resolveCount.incrementAndGet();
+      return MAX_ATTEMPTS_COUNT;
+    });
+    int resolveCountBeforeRendering = resolveCount.get();
+    String renderedText = recordDetails.toString();
+    int maxAttemptsCount = recordDetails.getMaxAttemptsCount();
+
+    // THEN
+    assertEquals(0, resolveCountBeforeRendering, MAX_ATTEMPTS_SHOULD_BE_RESOLVED_LAZILY);
+    assertEquals(1, resolveCount.get(), MAX_ATTEMPTS_SHOULD_BE_RESOLVED_LAZILY);
+    assertEquals(MAX_ATTEMPTS_COUNT, maxAttemptsCount);
+    assertEquals("topic: spring.kafka.example, partition: 1, offset: 42, attempt number: 1 of 3",
+        renderedText, UNEXPECTED_RECORD_DETAILS);
+  }
+
+  @Test
+  void givenBigIntegerTimestampHeader_whenItIsDecoded_thenValueIsTheSame() {
+    long timestamp = 1_700_000_000_123L;
+    var consumerRecord = new ConsumerRecord<>("spring.kafka.example.retry", 0, 7L, "key", "value");
+    consumerRecord.headers().add(DEFAULT_HEADER_ORIGINAL_TIMESTAMP,
+        BigInteger.valueOf(timestamp).toByteArray());
+
+    assertEquals(timestamp, KafkaUtils.getOriginalTimestamp(consumerRecord));
+    assertEquals(-1, KafkaUtils.decodeBigEndian(BigInteger.valueOf(-1).toByteArray()));
+    assertEquals(200, KafkaUtils.decodeBigEndian(BigInteger.valueOf(200).toByteArray()));
+  }
+}
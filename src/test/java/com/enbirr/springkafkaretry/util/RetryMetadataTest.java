@@ -0,0 +1,74 @@
+package com.enbirr.springkafkaretry.util;
+
+import static com.enbirr.springkafkaretry.constants.KafkaTestMessages.UNEXPECTED_RETRY_METADATA;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.kafka.support.KafkaHeaders.DLT_ORIGINAL_OFFSET;
+import static org.springframework.kafka.support.KafkaHeaders.DLT_ORIGINAL_PARTITION;
+import static org.springframework.kafka.support.KafkaHeaders.EXCEPTION_CAUSE_FQCN;
+import static org.springframework.kafka.support.KafkaHeaders.EXCEPTION_FQCN;
+
+import com.enbirr.springkafkaretry.exception.ProcessingException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+
+import java.nio.ByteBuffer;
+
+class RetryMetadataTest {
+
+  @Test
+  void givenUnknownExceptionClasses_whenMetadataIsEncoded_thenItIsDecodedTheSame() {
+    var retryMetadata = new RetryMetadata(2, 3_000_000_000L, "com.example.UnknownException",
+        ProcessingException.class.getName(), "Message with non-ASCII symbols: äöü");
+
+    RetryMetadata decodedMetadata = RetryMetadata.decode(retryMetadata.encode());
+
+    assertEquals(retryMetadata, decodedMetadata, UNEXPECTED_RETRY_METADATA);
+  }
+
+  @Test
+  void givenMainTopicRecord_whenMetadataHeaderIsCreated_thenItIsReadFromRetryRecord() {
+    // GIVEN
+    var mainTopicRecord = new ConsumerRecord<>("spring.kafka.example", 1, 42L, "key", "value");
+    var occurredException = new ListenerExecutionFailedException("Listener failed",
+        new ProcessingException("Processing failed"));
+
+    // WHEN
+    var retryRecord = new ConsumerRecord<>("spring.kafka.example.retry", 0, 7L, "key", "value");
+    KafkaUtils.createRetryMetadataHeaders(mainTopicRecord, occurredException)
+        .forEach(retryRecord.headers()::add);
+
+    // THEN
+    assertEquals(1, KafkaUtils.getOriginalPartition(retryRecord), UNEXPECTED_RETRY_METADATA);
+    assertEquals(42L, KafkaUtils.getOriginalOffset(retryRecord), UNEXPECTED_RETRY_METADATA);
+    assertEquals(ProcessingException.class.getName(),
+        KafkaUtils.getExceptionFqcn(retryRecord.headers()), UNEXPECTED_RETRY_METADATA);
+    assertNull(KafkaUtils.getExceptionCauseFqcn(retryRecord.headers()), UNEXPECTED_RETRY_METADATA);
+    assertEquals("Processing failed", KafkaUtils.getExceptionMessage(retryRecord.headers()),
+        UNEXPECTED_RETRY_METADATA);
+  }
+
+  @Test
+  void givenStringHeaders_whenTheyAreRead_thenTheSameValuesAreReturned() {
+    // GIVEN
+    var dlqRecord = new ConsumerRecord<>("spring.kafka.example.dlq", 0, 7L, "key", "value");
+    dlqRecord.headers()
+        .add(DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(2).array())
+        .add(DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(100L).array())
+        .add(EXCEPTION_FQCN, ProcessingException.class.getName().getBytes(UTF_8))
+        .add(EXCEPTION_CAUSE_FQCN, IllegalStateException.class.getName().getBytes(UTF_8));
+
+    // WHEN
+    RecordDetails recordDetails = RecordDetails.of(dlqRecord, 3);
+
+    // THEN
+    assertEquals(2, recordDetails.getOriginalPartition(), UNEXPECTED_RETRY_METADATA);
+    assertEquals(100L, recordDetails.getOriginalOffset(), UNEXPECTED_RETRY_METADATA);
+    assertEquals(ProcessingException.class.getName(),
+        KafkaUtils.getExceptionFqcn(dlqRecord.headers()), UNEXPECTED_RETRY_METADATA);
+    assertEquals(IllegalStateException.class.getName(),
+        KafkaUtils.getExceptionCauseFqcn(dlqRecord.headers()), UNEXPECTED_RETRY_METADATA);
+  }
+}
@@ -5,6 +5,7 @@ import static com.enbirr.springkafkaretry.constants.LogAndExceptionMessages.PROC
 
 import com.enbirr.springkafkaretry.exception.ProcessingException;
 import com.enbirr.springkafkaretry.exception.ProcessingFatalException;
+import org.apache.commons.lang3.RandomStringUtils;
 import org.jetbrains.annotations.NotNull;
 
 public class TestDataGenerator {
@@ -14,4 +15,9 @@ public class TestDataGenerator {
     ProcessingException cause = new ProcessingException(PROCESSING_ERROR_CAUSE);
     return new ProcessingFatalException(FATAL_PROCESSING_ERROR_NOT_RETRIABLE, cause);
   }
+
+  @NotNull
+  public static String generateMessage(int length) {
+    return RandomStringUtils.randomAlphanumeric(length);
+  }
 }